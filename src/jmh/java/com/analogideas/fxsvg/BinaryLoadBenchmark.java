@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Group;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading each test SVG file from the binary form written by
+ * {@link SvgDocument#write(OutputStream)} compared with parsing the SVG.
+ * {@code buildNode} and {@code mappedBuildNode} both end with a new Node,
+ * {@code mappedRead} is the load alone.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryLoadBenchmark {
+
+    // the files of Corpus.FILES, given to JMH by build.gradle
+    @Param
+    String file;
+
+    byte[] svg;
+    Path binaryFile;
+    ByteBuffer mapped;
+
+    @Setup
+    public void setup() throws IOException, XMLStreamException {
+        svg = Corpus.bytes(file);
+        binaryFile = Files.createTempFile("fxsvg", ".bin");
+        try (OutputStream out = Files.newOutputStream(binaryFile)) {
+            Corpus.document(file).write(out);
+        }
+        try (FileChannel channel = FileChannel.open(binaryFile, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mapped = null;
+        Files.deleteIfExists(binaryFile);
+    }
+
+    @Benchmark
+    public Group buildNode() throws XMLStreamException {
+        return Corpus.reader(svg, file).buildNode();
+    }
+
+    @Benchmark
+    public SvgDocument mappedRead() throws IOException {
+        return SvgDocument.read(mapped.duplicate());
+    }
+
+    @Benchmark
+    public Group mappedBuildNode() throws IOException {
+        return SvgDocument.read(mapped.duplicate()).newInstance();
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Access to the SVG files in src/test/resources for the benchmarks.  The
+ * names are listed by the build in the corpus.txt resource.
+ *
+ * @author scott
+ */
+final class Corpus {
+
+    // written by the corpusList task of build.gradle, which also gives the
+    // same names to the @Param file of the benchmarks
+    static final String[] FILES = new String(bytes("corpus.txt"), StandardCharsets.UTF_8).lines()
+            .filter(line -> !line.isBlank())
+            .toArray(String[]::new);
+
+    private Corpus() {
+    }
+
+    static byte[] bytes(String file) {
+        try (InputStream in = Objects.requireNonNull(Corpus.class.getResourceAsStream('/' + file), file)) {
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static SVGReader reader(byte[] svg, String file) {
+        return new SVGReader(new ByteArrayInputStream(svg), file.replace('.', '-'));
+    }
+
+    static SvgDocument document(String file) throws XMLStreamException {
+        return reader(bytes(file), file).readDocument();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Scene;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.image.WritableImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures scrolling an image with 50,000 Shapes in an 800x600 ScrollPane,
+ * with and without an {@link SvgCullingController}.  Each operation moves
+ * the scroll bars and takes a snapshot of the ScrollPane, which does the
+ * CSS, layout and rendering of a pulse on the JavaFX Application Thread.
+ * The image is a grid of 250 by 200 paths, rectangles and circles in rows
+ * of Groups, 5000 by 4000 pixels, so about 2% of it is in view.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CullingBenchmark {
+
+    static final int COLUMNS = 250;
+    static final int ROWS = 200;
+    static final int CELL = 20;
+    static final int WIDTH = 800;
+    static final int HEIGHT = 600;
+
+    @Param({"false", "true"})
+    boolean culling;
+
+    ScrollPane scrollPane;
+    WritableImage frame;
+    int step;
+
+    @Setup
+    public void setup() throws Exception {
+        startFx();
+        byte[] svg = grid().getBytes(StandardCharsets.UTF_8);
+        SvgDocument document = new SVGReader(new ByteArrayInputStream(svg), "grid").readDocument();
+        onFx(() -> {
+            scrollPane = new ScrollPane();
+            scrollPane.setPrefViewportWidth(WIDTH);
+            scrollPane.setPrefViewportHeight(HEIGHT);
+            if (culling) {
+                SvgCullingController.install(scrollPane, document);
+            } else {
+                scrollPane.setContent(document.newInstance());
+            }
+            new Scene(scrollPane, WIDTH, HEIGHT);
+            frame = new WritableImage(WIDTH, HEIGHT);
+            scrollPane.snapshot(null, frame);
+            // hiding Shapes mustn't change the size of what is scrolled
+            Bounds expected = document.newInstance().getBoundsInLocal();
+            Bounds actual = scrollPane.getContent().getBoundsInLocal();
+            if (!same(expected, actual)) {
+                throw new IllegalStateException("The content bounds changed from " + expected + " to " + actual);
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    public WritableImage scroll() throws Exception {
+        return onFx(() -> {
+            // jump around so the Shapes in view keep changing
+            step++;
+            scrollPane.setHvalue(step * 0.37 % 1.0);
+            scrollPane.setVvalue(step * 0.61 % 1.0);
+            return scrollPane.snapshot(null, frame);
+        });
+    }
+
+    // 50,000 Shapes, one Group for each row
+    static String grid() {
+        StringBuilder sb = new StringBuilder(COLUMNS * ROWS * 80);
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(COLUMNS * CELL)
+                .append("\" height=\"").append(ROWS * CELL).append("\">\n");
+        for (int row = 0; row < ROWS; row++) {
+            sb.append("<g id=\"row").append(row).append("\" transform=\"translate(0 ").append(row * CELL).append(")\">\n");
+            for (int col = 0; col < COLUMNS; col++) {
+                int x = col * CELL;
+                String color = "#" + Integer.toHexString(0x100000 + (row * 977 + col * 131) % 0xefffff);
+                switch ((row + col) % 3) {
+                    case 0 -> sb.append("<path d=\"M").append(x + 2).append(" 2 l16 0 -8 16 z\" fill=\"").append(color).append("\"/>\n");
+                    case 1 -> sb.append("<rect x=\"").append(x + 3).append("\" y=\"3\" width=\"14\" height=\"14\" fill=\"").append(color).append("\"/>\n");
+                    default -> sb.append("<circle cx=\"").append(x + 10).append("\" cy=\"10\" r=\"7\" stroke=\"").append(color).append("\" fill=\"none\"/>\n");
+                }
+            }
+            sb.append("</g>\n");
+        }
+        return sb.append("</svg>\n").toString();
+    }
+
+    static boolean same(Bounds a, Bounds b) {
+        return Math.abs(a.getMinX() - b.getMinX()) < 1e-6 && Math.abs(a.getMinY() - b.getMinY()) < 1e-6
+                && Math.abs(a.getMaxX() - b.getMaxX()) < 1e-6 && Math.abs(a.getMaxY() - b.getMaxY()) < 1e-6;
+    }
+
+    static void startFx() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException alreadyStarted) {
+            started.countDown();
+        }
+        started.await();
+    }
+
+    static <T> T onFx(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        return future.get();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.PathElement;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.util.Multiset;
+
+/**
+ * Reports the heap retained by each instance of the test SVG images, i.e.
+ * the cost of every extra copy of an icon that is kept alive.  Objects
+ * shared with the {@link SvgDocument} or with other instances, such as the
+ * path Strings and Paints, are reported separately since they are only paid
+ * for once.
+ * <p>
+ * Run it with {@code ./gradlew footprint}.  The run fails if an image needs
+ * more than its budget plus the tolerance, so a new allocation per Node
+ * shows up as a failure.  The sizes depend on the JVM, the committed budget
+ * is for JDK 17 with compressed oops.  Without a budget file, or for an
+ * image with no budget, the sizes are only reported, with a warning.  Record
+ * a budget with {@code ./gradlew footprint -PfootprintUpdate}.
+ * <p>
+ * It also reports an icon drawn 10,000 times with {@code <use>} next to
+ * the same drawing with a copy of the path for each, which isn't checked
+ * against the budget.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code footprint.budget} the budget file, the maximum bytes per
+ * instance by file name</li>
+ * <li>{@code footprint.tolerance} how far over the budget is allowed,
+ * default 0.02 for 2%</li>
+ * <li>{@code footprint.update} true to write the measured sizes to the
+ * budget file</li>
+ * </ul>
+ *
+ * @author scott
+ */
+public final class FootprintReport {
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String budgetName = System.getProperty("footprint.budget");
+        Path budgetFile = budgetName != null ? Path.of(budgetName) : null;
+        double tolerance = Double.parseDouble(System.getProperty("footprint.tolerance", "0.02"));
+        boolean update = Boolean.getBoolean("footprint.update");
+
+        if (update && budgetFile == null) {
+            System.err.println("footprint.update needs footprint.budget, the file to write");
+            System.exit(1);
+        }
+        Properties budget = new Properties();
+        boolean check = !update && budgetFile != null && Files.exists(budgetFile);
+        if (check) {
+            try (Reader in = Files.newBufferedReader(budgetFile)) {
+                budget.load(in);
+            }
+        } else if (!update) {
+            System.err.println("WARNING: no budget file " + (budgetFile != null ? budgetFile : "")
+                    + ", the sizes are not checked. Record one with footprint.update=true"
+                    + " (./gradlew footprint -PfootprintUpdate)");
+        }
+
+        Properties measured = new Properties();
+        List<String> failures = new ArrayList<>();
+        for (String file : Corpus.FILES) {
+            SvgDocument document = Corpus.document(file);
+            Map<String, Long> perInstance = retained(document);
+            GraphLayout template = GraphLayout.parseInstance(document);
+
+            long bytes = total(perInstance);
+            int nodes = document.nodeCount();
+            System.out.printf("%s: %d Nodes, %,d bytes per instance (%,d per Node), %,d bytes shared%n",
+                    file, nodes, bytes, bytes / Math.max(1, nodes), template.totalSize());
+            Map<String, Long> once = breakdown(template);
+            Map<String, Long> categories = new TreeMap<>(perInstance);
+            categories.putAll(once);
+            System.out.printf("    %-24s %12s %12s%n", "", "instance", "shared");
+            for (String category : categories.keySet()) {
+                System.out.printf("    %-24s %,12d %,12d%n", category,
+                        perInstance.getOrDefault(category, 0L), once.getOrDefault(category, 0L));
+            }
+            measured.setProperty(file, Long.toString(bytes));
+
+            String limit = budget.getProperty(file);
+            if (!check) {
+                // recording, or nothing to check against
+            } else if (limit == null) {
+                System.err.println("WARNING: " + file + " has no budget, record one with footprint.update=true");
+            } else if (bytes > Long.parseLong(limit) * (1.0 + tolerance)) {
+                failures.add(file + " uses " + bytes + " bytes per instance, the budget is " + limit);
+            }
+        }
+
+        uses();
+
+        if (update) {
+            try (Writer out = Files.newBufferedWriter(budgetFile)) {
+                measured.store(out, "Retained bytes per instance on Java " + System.getProperty("java.version")
+                        + ", written by FootprintReport");
+            }
+            System.out.println("Budget written to " + budgetFile);
+        }
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    // the same icon drawn 10,000 times with <use> and with copies of the path
+    private static void uses() throws Exception {
+        final int count = 10_000;
+        String icon = "d='M12 2C6.48 2 2 6.48 2 12s4.48 10 10 10 10-4.48 10-10S17.52 2 12 2zm-2 15l-5-5 1.41-1.41L10 14.17l7.59-7.59L19 8l-9 9z'"
+                + " fill='#336699' stroke='#000' stroke-width='0.5'";
+        StringBuilder used = new StringBuilder("<svg xmlns='http://www.w3.org/2000/svg'><defs><path id='icon' " + icon + "/></defs>");
+        StringBuilder copied = new StringBuilder("<svg xmlns='http://www.w3.org/2000/svg'>");
+        for (int i = 0; i < count; i++) {
+            int x = (i % 100) * 24;
+            int y = (i / 100) * 24;
+            used.append("<use href='#icon' x='").append(x).append("' y='").append(y).append("'/>");
+            copied.append("<path transform='translate(").append(x).append(' ').append(y).append(")' ").append(icon).append("/>");
+        }
+        used.append("</svg>");
+        copied.append("</svg>");
+        System.out.printf("%n%,d uses of one path compared with %,d copies of it:%n", count, count);
+        for (String[] svg : new String[][] {{"<use>", used.toString()}, {"copies", copied.toString()}}) {
+            byte[] bytes = svg[1].getBytes(StandardCharsets.UTF_8);
+            SvgDocument document = Corpus.reader(bytes, "uses").readDocument();
+            long perInstance = total(retained(document));
+            System.out.printf("    %-8s %,10d bytes of SVG, %,d Nodes, %,12d bytes per instance, %,12d bytes shared%n",
+                    svg[0], bytes.length, document.nodeCount(), perInstance, GraphLayout.parseInstance(document).totalSize());
+        }
+    }
+
+    // Everything an instance can reach that another instance can also reach
+    // is shared, not retained by the instance.  The walks are compared by
+    // their totals, GraphLayout.subtract compares addresses, which are wrong
+    // if the GC moves objects between the walks.
+    private static Map<String, Long> retained(SvgDocument document) {
+        Group other = document.newInstance();
+        Group instance = document.newInstance();
+        Map<String, Long> sizes = breakdown(GraphLayout.parseInstance(document, other, instance));
+        breakdown(GraphLayout.parseInstance(document, other)).forEach((c, size) -> sizes.merge(c, -size, Long::sum));
+        sizes.values().removeIf(size -> size == 0);
+        return sizes;
+    }
+
+    private static long total(Map<String, Long> sizes) {
+        return sizes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static Map<String, Long> breakdown(GraphLayout layout) {
+        Map<String, Long> sizes = new TreeMap<>();
+        Multiset<Class<?>> classSizes = layout.getClassSizes();
+        for (Class<?> c : layout.getClasses()) {
+            sizes.merge(category(c), classSizes.count(c), Long::sum);
+        }
+        return sizes;
+    }
+
+    private static String category(Class<?> c) {
+        if (Node.class.isAssignableFrom(c)) {
+            return "Node: " + c.getSimpleName();
+        } else if (c == String.class || c == byte[].class || c == char[].class) {
+            return "Strings";
+        } else if (c.getPackageName().equals("javafx.scene.paint")) {
+            return "Paints";
+        } else if (c.getPackageName().equals("javafx.scene.transform")) {
+            return "Transforms";
+        } else if (PathElement.class.isAssignableFrom(c)) {
+            return "PathElements";
+        }
+        return "Other";
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import com.analogideas.fxsvg.impl.SvgLexer;
+import com.analogideas.fxsvg.impl.SvgLinearGradient;
+import com.analogideas.fxsvg.impl.SvgRadialGradient;
+import com.analogideas.fxsvg.impl.SvgStop;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javafx.scene.paint.Paint;
+import javafx.scene.transform.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Making the Paints for gradients, which happens once for each gradient
+ * in a document, including following an href to the gradient with the
+ * stops, and the public transform parser.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradientBenchmark {
+
+    final String gradientTransform = "rotate(30 0.5 0.5)";
+    final Map<String, Object> defs = new HashMap<>();
+    double[] transform;
+    SvgLinearGradient linear;
+
+    @Setup
+    public void setup() {
+        transform = SvgLexer.transform(gradientTransform);
+        SvgLinearGradient withStops = new SvgLinearGradient(defs);
+        withStops.id("stops");
+        addStops(withStops::add);
+        defs.put("stops", withStops);
+
+        linear = newLinear();
+    }
+
+    private static void addStops(Consumer<SvgStop> add) {
+        String[] colors = {"#27aae1", "#ffffff", "rgb(12,34,56)", "red"};
+        for (int i = 0; i < colors.length; i++) {
+            SvgStop stop = new SvgStop();
+            stop.setOffset(i / (colors.length - 1.0));
+            stop.setColor(colors[i]);
+            stop.setOpacity(i == 1 ? 0.5 : 1.0);
+            add.accept(stop);
+        }
+    }
+
+    private SvgLinearGradient newLinear() {
+        SvgLinearGradient g = new SvgLinearGradient(defs);
+        g.setX2(1.0);
+        g.setTransform(transform);
+        addStops(g::add);
+        return g;
+    }
+
+    @Benchmark
+    public Paint linearPaint() {
+        // a new template, since the Paint is only made once
+        return newLinear().paint();
+    }
+
+    @Benchmark
+    public Paint radialPaint() {
+        SvgRadialGradient g = new SvgRadialGradient(defs);
+        g.setFx(0.25);
+        g.setFy(0.25);
+        g.setTransform(transform);
+        addStops(g::add);
+        return g.paint();
+    }
+
+    @Benchmark
+    public Paint hrefPaint() {
+        // stops inherited from another gradient
+        SvgLinearGradient g = new SvgLinearGradient(defs);
+        g.setY2(1.0);
+        g.setHref("stops");
+        return g.paint();
+    }
+
+    @Benchmark
+    public Paint cachedPaint() {
+        return linear.paint();
+    }
+
+    @Benchmark
+    public Transform transformsFromString() {
+        return SVGReader.transformsFromString(gradientTransform);
+    }
+
+}
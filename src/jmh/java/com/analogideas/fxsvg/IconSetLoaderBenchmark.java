@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loads a directory of icons made by copying the test SVG files many times,
+ * one at a time and with {@link SvgIconSetLoader}.  The score is the time to
+ * load the whole directory, divide the file count by it for files/second.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IconSetLoaderBenchmark {
+
+    // copies of each of the 16 test files, 125 gives 2000 icons
+    @Param({"8", "125"})
+    int copies;
+
+    Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("fxsvg-icons");
+        for (String file : Corpus.FILES) {
+            byte[] svg = Corpus.bytes(file);
+            for (int i = 0; i < copies; i++) {
+                Files.write(dir.resolve(i + "-" + file), svg);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(f);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, SvgDocument> sequential() throws IOException, XMLStreamException {
+        Map<String, SvgDocument> docs = new LinkedHashMap<>();
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.sorted().toList();
+        }
+        for (Path f : files) {
+            SvgDocument doc = new SVGReader(f.toFile()).readDocument();
+            docs.put(doc.id(), doc);
+        }
+        return docs;
+    }
+
+    @Benchmark
+    public Map<String, SvgDocument> parallel() throws IOException {
+        return new SvgIconSetLoader().loadDirectory(dir).documents();
+    }
+
+}
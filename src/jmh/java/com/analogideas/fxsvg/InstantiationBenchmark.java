@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Group;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares building a Node by parsing the SVG each time with creating a new
+ * instance of an already parsed {@link SvgDocument}.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstantiationBenchmark {
+
+    // the files of Corpus.FILES, given to JMH by build.gradle
+    @Param
+    String file;
+
+    byte[] svg;
+    SvgDocument document;
+
+    @Setup
+    public void setup() throws XMLStreamException {
+        svg = Corpus.bytes(file);
+        document = Corpus.reader(svg, file).readDocument();
+    }
+
+    @Benchmark
+    public Group buildNode() throws XMLStreamException {
+        return Corpus.reader(svg, file).buildNode();
+    }
+
+    @Benchmark
+    public Group newInstance() {
+        return document.newInstance();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by 5,000 icons, loaded from the test images in
+ * turn, with and without sharing the values of the templates between the
+ * documents.  The difference between the {@code retainedBytes} counters of
+ * the two benchmarks is the heap saved.  Since the corpus repeats the test
+ * images, everything in the later copies of an image is shared; an icon set
+ * where the icons are all different saves less.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class InternHeapBenchmark {
+
+    private static final int ICONS = 5000;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedBytes;
+    }
+
+    byte[][] svg;
+
+    @Setup
+    public void setup() {
+        svg = new byte[Corpus.FILES.length][];
+        for (int i = 0; i < svg.length; i++) {
+            svg[i] = Corpus.bytes(Corpus.FILES[i]);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.analogideas.fxsvg.internValues=true")
+    public List<SvgDocument> interned(Heap heap) throws XMLStreamException {
+        return load(heap);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public List<SvgDocument> notInterned(Heap heap) throws XMLStreamException {
+        return load(heap);
+    }
+
+    private List<SvgDocument> load(Heap heap) throws XMLStreamException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGC(memory);
+        List<SvgDocument> documents = new ArrayList<>(ICONS);
+        for (int n = 0; n < ICONS; n++) {
+            int i = n % svg.length;
+            // a different id for each copy, as for different files
+            documents.add(Corpus.reader(svg[i], n + "-" + Corpus.FILES[i]).readDocument());
+        }
+        heap.retainedBytes = usedAfterGC(memory) - before;
+        return documents;
+    }
+
+    private static long usedAfterGC(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
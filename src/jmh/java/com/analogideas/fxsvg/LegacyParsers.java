@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+import javafx.scene.transform.Affine;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Shear;
+import javafx.scene.transform.Transform;
+import javafx.scene.transform.Translate;
+
+/**
+ * The regex and substring based parsing that {@link SVGReader} used before
+ * {@link com.analogideas.fxsvg.impl.SvgLexer}, kept only to compare against.
+ *
+ * @author scott
+ */
+final class LegacyParsers {
+
+    private LegacyParsers() {
+    }
+
+    static Double[] points(String points) {
+        ArrayList<Double> pointList = new ArrayList<>();
+        String[] values = points.split("\s+,?\s*|,\s*");
+        for (String v : values) {
+            try {
+                pointList.add(Double.valueOf(v));
+            } catch(NumberFormatException ex) {}
+        }
+        return pointList.toArray(Double[]::new);
+    }
+
+    static Double[] pointsList(String points) {
+        ArrayList<Double> pointList = new ArrayList<>();
+        String[] values = points.split(",");
+        for (String v : values) {
+            try {
+                pointList.add(Double.valueOf(v.trim()));
+            } catch(NumberFormatException ex) {}
+        }
+        return pointList.toArray(Double[]::new);
+    }
+
+    static double[] toPrimitive(Double[] values) {
+        double[] d = new double[values.length];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = values[i];
+        }
+        return d;
+    }
+
+    static Transform transformsFromString(String value) {
+        Transform t = new Affine();
+        value = value.trim();
+        while(!value.isEmpty()) {
+            int paramEnd = value.indexOf(')')+1;
+            if (paramEnd <= 0)
+                break;
+            final String transform = value.substring(0, paramEnd);
+            t = t.createConcatenation(transformFromString(transform));
+            value = value.substring(paramEnd).trim();
+        }
+        return t;
+    }
+
+    static Transform transformFromString(String transform) {
+        int paramStart = transform.indexOf('(') + 1;
+        int paramEnd = transform.indexOf(')', paramStart);
+        if (paramStart < 0 || paramEnd < 0) {
+            throw new RuntimeException("No parameters for transform: "+transform);
+        }
+        Double[] p = points(transform.substring(paramStart, paramEnd));
+        if (transform.startsWith("matrix")) {
+            if (p.length == 6) {
+                return new Affine(p[0], p[2], p[4], p[1], p[3], p[5]);
+            }
+        } else if (transform.startsWith("translate")) {
+            if (p.length >= 2) {
+                return new Translate(p[0], p[1]);
+            } else if (p.length == 1) {
+                return new Translate(p[0], 0);
+            }
+        } else if (transform.startsWith("rotate")) {
+            if (p.length >= 3) {
+                return new Rotate(p[0], p[1], p[2]);
+            } else if (p.length == 1) {
+                return new Rotate(p[0]);
+            }
+        } else if (transform.startsWith("scale")) {
+            if (p.length >= 2) {
+                return new Scale(p[0], p[1]);
+            } else if (p.length == 1) {
+                return new Scale(p[0], p[0]);
+            }
+        } else if (transform.startsWith("skewX")) {
+            if (p.length >= 1) {
+                return new Shear(Math.tan(Math.toRadians(p[0])), 0);
+            }
+        } else if (transform.startsWith("skewY")) {
+            if (p.length >= 1) {
+                return new Shear(0, Math.tan(Math.toRadians(p[0])));
+            }
+        }
+        throw new RuntimeException("Unhandled transform: "+transform);
+    }
+
+    static void styles(String style, BiConsumer<String, String> action) {
+        String[] parts = style.split(";\\s*");
+        for (String part : parts) {
+            String[] keyValue = part.split("\\s*:\\s*");
+            if (keyValue.length != 2) {
+                continue;
+            }
+            action.accept(keyValue[0].trim(), keyValue[1].trim());
+        }
+    }
+
+    static double parseValue(String value) {
+        if (value.endsWith("%")) {
+            return Double.parseDouble(value.substring(0, value.length()-1)) / 100.0;
+        }
+        return Double.parseDouble(value);
+    }
+
+    // only the units that don't need a Screen or a Text
+    static double sizeFromAttr(String value) {
+        double w = 1.0;
+        if ("none".equals(value)) {
+            w = 0.0;
+        } else if (value.length() > 2 && !Character.isDigit(value.charAt(value.length()-1))) {
+            w = Double.parseDouble(value.substring(0, value.length()-2));
+            if (value.endsWith("pc")) {
+                w *= 12.0;
+            }
+        } else {
+            w = Double.parseDouble(value);
+        }
+        return w;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import com.analogideas.fxsvg.impl.SvgLexer;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.transform.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link SvgLexer} with the regex based parsing it replaced, for
+ * the attribute values that are parsed most often.  Run with
+ * {@code -prof gc} to see the difference in allocation.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MicroSyntaxBenchmark {
+
+    /** Number of x,y pairs in the polygon points. */
+    @Param({"8", "500"})
+    int pointCount;
+
+    String points;
+    final String transform = "translate(120.5,-30) rotate(45 10 10) scale(1.5) matrix(0.9,0.1,-0.1,0.9,5,6)";
+    final String style = "fill:#ff0000;fill-opacity:0.5;stroke:#000000;stroke-width:2.5;stroke-linecap:round;stroke-miterlimit:4";
+    final String dashArray = "5, 3, 2.5, 3";
+    final String length = "12.5pc";
+    final String emLength = "1.5em";
+    final String offset = "37.5%";
+    SVGReader reader;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pointCount; i++) {
+            // the mix of separators found in real files
+            sb.append(random.nextInt(10000) / 10.0).append(i % 3 == 0 ? ", " : ",")
+                    .append(random.nextInt(10000) / 100.0).append(' ');
+        }
+        points = sb.toString();
+        reader = new SVGReader(new ByteArrayInputStream(new byte[0]), "bench");
+        // absolute units without a Screen
+        reader.setUnitContext(SvgUnitContext.CSS);
+    }
+
+    @Benchmark
+    public double[] legacyPoints() {
+        return LegacyParsers.toPrimitive(LegacyParsers.points(points));
+    }
+
+    @Benchmark
+    public double[] lexerPoints() {
+        return SvgLexer.numbers(points);
+    }
+
+    @Benchmark
+    public Transform legacyTransform() {
+        return LegacyParsers.transformsFromString(transform);
+    }
+
+    @Benchmark
+    public double[] lexerTransform() {
+        return SvgLexer.transform(transform);
+    }
+
+    @Benchmark
+    public void legacyStyle(Blackhole bh) {
+        LegacyParsers.styles(style, (k, v) -> {
+            bh.consume(k);
+            bh.consume(v);
+        });
+    }
+
+    @Benchmark
+    public void lexerStyle(Blackhole bh) {
+        SvgLexer.declarations(style, (k, v) -> {
+            bh.consume(k);
+            bh.consume(v);
+        });
+    }
+
+    @Benchmark
+    public double[] legacyDashArray() {
+        return LegacyParsers.toPrimitive(LegacyParsers.pointsList(dashArray));
+    }
+
+    @Benchmark
+    public double[] lexerDashArray() {
+        return SvgLexer.numbers(dashArray);
+    }
+
+    @Benchmark
+    public double legacyLength() {
+        return LegacyParsers.sizeFromAttr(length);
+    }
+
+    @Benchmark
+    public double lexerLength() {
+        return reader.sizeFromAttr(length);
+    }
+
+    @Benchmark
+    public double emLength() {
+        return reader.sizeFromAttr(emLength);
+    }
+
+    @Benchmark
+    public double legacyOffset() {
+        return LegacyParsers.parseValue(offset);
+    }
+
+    @Benchmark
+    public double lexerOffset() {
+        return reader.parseValue(offset);
+    }
+
+}
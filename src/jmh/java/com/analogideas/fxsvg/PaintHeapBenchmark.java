@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the heap retained by the test images loaded 100 times, with and
+ * without sharing Paints between the documents.  The difference between the
+ * {@code retainedBytes} counters of the two benchmarks is the heap saved.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PaintHeapBenchmark {
+
+    private static final int COPIES = 100;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedBytes;
+    }
+
+    byte[][] svg;
+
+    @Setup
+    public void setup() {
+        svg = new byte[Corpus.FILES.length][];
+        for (int i = 0; i < svg.length; i++) {
+            svg[i] = Corpus.bytes(Corpus.FILES[i]);
+        }
+    }
+
+    @Benchmark
+    @Fork(1)
+    public List<SvgDocument> interned(Heap heap) throws XMLStreamException {
+        return load(heap);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.analogideas.fxsvg.internPaints=false")
+    public List<SvgDocument> notInterned(Heap heap) throws XMLStreamException {
+        return load(heap);
+    }
+
+    private List<SvgDocument> load(Heap heap) throws XMLStreamException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGC(memory);
+        List<SvgDocument> documents = new ArrayList<>(COPIES * svg.length);
+        for (int n = 0; n < COPIES; n++) {
+            for (int i = 0; i < svg.length; i++) {
+                documents.add(Corpus.reader(svg[i], Corpus.FILES[i]).readDocument());
+            }
+        }
+        heap.retainedBytes = usedAfterGC(memory) - before;
+        return documents;
+    }
+
+    private static long usedAfterGC(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.Group;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splits reading each test SVG file into its stages.  {@code stax} only
+ * walks the XML and touches every attribute, which is the floor for
+ * {@code readDocument}; {@code buildNode} adds creating the Nodes.
+ *
+ * @author scott
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    // the files of Corpus.FILES, given to JMH by build.gradle
+    @Param
+    String file;
+
+    byte[] svg;
+    XMLInputFactory factory;
+
+    @Setup
+    public void setup() {
+        svg = Corpus.bytes(file);
+        factory = XMLInputFactory.newDefaultFactory();
+    }
+
+    @Benchmark
+    public void stax(Blackhole bh) throws XMLStreamException {
+        XMLStreamReader xml = factory.createXMLStreamReader(new ByteArrayInputStream(svg), "utf-8");
+        while (xml.hasNext()) {
+            if (xml.next() == XMLEvent.START_ELEMENT) {
+                bh.consume(xml.getLocalName());
+                for (int i = 0; i < xml.getAttributeCount(); i++) {
+                    bh.consume(xml.getAttributeLocalName(i));
+                    bh.consume(xml.getAttributeValue(i));
+                }
+            }
+        }
+        xml.close();
+    }
+
+    @Benchmark
+    public SvgDocument readDocument() throws XMLStreamException {
+        return Corpus.reader(svg, file).readDocument();
+    }
+
+    @Benchmark
+    public Group buildNode() throws XMLStreamException {
+        return Corpus.reader(svg, file).buildNode();
+    }
+
+}
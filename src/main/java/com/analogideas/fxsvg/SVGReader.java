@@ -17,24 +17,45 @@ package com.analogideas.fxsvg;
 
 import com.analogideas.fxsvg.impl.SvgClip;
 import com.analogideas.fxsvg.impl.SvgContainer;
+import com.analogideas.fxsvg.impl.SvgCustom;
 import com.analogideas.fxsvg.impl.SvgData;
 import com.analogideas.fxsvg.impl.SvgDef;
+import com.analogideas.fxsvg.impl.SvgElement;
+import com.analogideas.fxsvg.impl.SvgGradient;
 import com.analogideas.fxsvg.impl.SvgGroup;
+import com.analogideas.fxsvg.impl.SvgLexer;
 import com.analogideas.fxsvg.impl.SvgLinearGradient;
 import com.analogideas.fxsvg.impl.SvgNode;
+import com.analogideas.fxsvg.impl.SvgPaints;
+import com.analogideas.fxsvg.impl.SvgPathData;
 import com.analogideas.fxsvg.impl.SvgRadialGradient;
 import com.analogideas.fxsvg.impl.SvgStop;
+import com.analogideas.fxsvg.impl.SvgSymbol;
+import com.analogideas.fxsvg.impl.SvgUse;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.random.RandomGenerator;
@@ -43,26 +64,12 @@ import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.Paint;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Ellipse;
 import javafx.scene.shape.FillRule;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Polygon;
-import javafx.scene.shape.Polyline;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.SVGPath;
-import javafx.scene.shape.Shape;
 import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.shape.StrokeLineJoin;
 import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 import javafx.scene.transform.Affine;
-import javafx.scene.transform.Rotate;
-import javafx.scene.transform.Scale;
-import javafx.scene.transform.Shear;
 import javafx.scene.transform.Transform;
-import javafx.scene.transform.Translate;
-import javafx.stage.Screen;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
@@ -80,26 +87,113 @@ public class SVGReader {
     private final ArrayDeque<SvgData> svgObjStack = new ArrayDeque<>();
 
     private final Map<String, Object> defs = new HashMap<>();
+    // identical path data is compiled once and shared
+    private final Map<String, SvgPathData> compiledPaths = new HashMap<>();
+    // the attributes of the use elements that haven't found their element
+    private final Map<SvgUse, UseRef> uses = new IdentityHashMap<>();
+    private boolean pathElements;
+    private boolean bakeTransforms;
+    private SvgExtensions extensions;
+    private SvgMetrics metrics = SvgMetrics.NONE;
+    // null for the Screen
+    private SvgUnitContext unitContext;
+    // for the document being read, and the viewport found in it
+    private SvgUnitContext units;
+    private double viewportWidth = Double.NaN;
+    private double viewportHeight = Double.NaN;
+    private SvgLazyGroup.Policy lazyGroups = SvgLazyGroup.Policy.EAGER;
+    private int elementCount;
+    // for each open element, whether it pushed an object on svgObjStack
+    private final ArrayDeque<Boolean> pushed = new ArrayDeque<>();
+    // attributes that were ignored, by name
+    private final Map<String, Integer> unsupportedAttributes = new HashMap<>();
+    private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
     
     static interface DeferredValue {
         void apply();
+
+        // false if it refers to a paint that hasn't been read yet
+        boolean ready();
+
+        // used in place of the paint until it can be applied
+        void applyPlaceholder(Paint placeholder);
+
+        PaintRef paint();
+    }
+
+    // a paint attribute and the opacity it is used with
+    record PaintRef(String paint, double opacity) {
     }
 
-    record DeferredFill(Shape shape, String fill, Map<String, Object> defs) implements DeferredValue {
+    record DeferredFill(SvgNode shape, String fill, double opacity, Map<String, Object> defs) implements DeferredValue {
         @Override
         public void apply() {
-            shape.setFill(paintFromAttr(defs,fill));
+            shape.setFill(paintFromAttr(defs, fill, opacity));
+        }
+
+        @Override
+        public boolean ready() {
+            return isPaintDefined(defs, fill);
+        }
+
+        @Override
+        public void applyPlaceholder(Paint placeholder) {
+            shape.setFill(placeholder);
+        }
+
+        @Override
+        public PaintRef paint() {
+            return new PaintRef(fill, opacity);
         }
     }
 
-    record DeferredStroke(Shape shape, String stroke, Map<String, Object> defs) implements DeferredValue {
+    record DeferredStroke(SvgNode shape, String stroke, double opacity, Map<String, Object> defs) implements DeferredValue {
         @Override
         public void apply() {
-            shape.setStroke(paintFromAttr(defs, stroke));
+            shape.setStroke(paintFromAttr(defs, stroke, opacity));
+        }
+
+        @Override
+        public boolean ready() {
+            return isPaintDefined(defs, stroke);
+        }
+
+        @Override
+        public void applyPlaceholder(Paint placeholder) {
+            shape.setStroke(placeholder);
+        }
+
+        @Override
+        public PaintRef paint() {
+            return new PaintRef(stroke, opacity);
         }
     }
 
     private final List<DeferredValue> deferredValues = new ArrayList<>();
+
+    // only kept while reading, the template of a use is just a reference
+    private static final class UseRef {
+        String href;
+        double x;
+        double y;
+        double width = Double.NaN;
+        double height = Double.NaN;
+    }
+
+    // the paint of the shape being read, from attributes or its style
+    private String fill;
+    private String stroke;
+    private double fillOpacity;
+    private double strokeOpacity;
+
+    // when building progressively, receives each top level Node as it is read
+    private SvgProgressiveBuild progressive;
+    // paints that weren't defined when a top level Node was built
+    private final List<DeferredValue> placeheld = new ArrayList<>();
+    private final Map<PaintRef, Paint> placeholders = new HashMap<>();
+
+    // checked between elements so an asynchronous read can be abandoned
+    private BooleanSupplier cancelled = () -> false;
     
     /**
      * Constructs a SVGReader that will build a Node from the given SVG file.
@@ -108,7 +202,7 @@ public class SVGReader {
      */
     public SVGReader(File svgFile) throws FileNotFoundException {
         this.svgData = new FileInputStream(Objects.requireNonNull(svgFile));
-        this.rootId = svgFile.getName().replace('.', '-').replace('#', '_');
+        this.rootId = idFromFileName(svgFile.getName());
     }
     
     /**
@@ -122,6 +216,11 @@ public class SVGReader {
         this.svgData = Objects.requireNonNull(svgStream);
     }
     
+    // the default root id for a file
+    static String idFromFileName(String name) {
+        return name.replace('.', '-').replace('#', '_');
+    }
+
     /**
      * Sets the id for the root Node of the image.  Any id attributes specified
      * in the SVG will be prefixed with this id+'-' to ensure they are unique
@@ -132,18 +231,264 @@ public class SVGReader {
     public void setId(String id) {
         rootId = id;
     }
+
+    /**
+     * Sets whether paths are built as {@link javafx.scene.shape.Path} Nodes
+     * with PathElements instead of {@link javafx.scene.shape.SVGPath} Nodes.
+     * Either way the path data is parsed only once.  An SVGPath shares one
+     * String with every copy of the image but JavaFX parses it again for each
+     * Node, a Path avoids that at the cost of more objects per Node.
+     * The default is to use SVGPath.
+     * @param pathElements true to build Path Nodes
+     */
+    public void setPathElements(boolean pathElements) {
+        this.pathElements = pathElements;
+    }
+
+    /**
+     * Sets whether transforms are applied to the geometry of the Shapes
+     * instead of being added to the Nodes.  Nested Groups with transforms
+     * are common in SVG exported from drawing programs, and JavaFX has to
+     * combine the chain of transforms whenever bounds are computed or the
+     * mouse is over a Node.
+     * <p>
+     * Where a transform can't be applied exactly, for example a circle under
+     * a skew, text, or a Shape filled with a gradient, the Shape gets a single
+     * Affine instead.  Groups then have no transforms, except for a Group with
+     * a clip which keeps one Affine.  The default is to keep the transforms.
+     * @param bakeTransforms true to apply transforms to the geometry
+     */
+    public void setBakeTransforms(boolean bakeTransforms) {
+        this.bakeTransforms = bakeTransforms;
+    }
+
+    /**
+     * Sets the handlers used for elements and attributes that aren't
+     * supported by this reader.
+     * @param extensions the handlers, or null for none
+     */
+    public void setExtensions(SvgExtensions extensions) {
+        this.extensions = extensions;
+    }
+
+    /**
+     * Sets which Groups create their children only when they are first
+     * visible, see {@link SvgLazyGroup}.  This helps with very large images
+     * where most of the drawing is out of view at any time, such as maps and
+     * schematics in a ScrollPane.  Groups whose bounds can't be computed, for
+     * example because they contain elements from {@link SvgExtensions}, are
+     * never lazy.  The default is {@link SvgLazyGroup.Policy#EAGER}.
+     * @param lazyGroups the Groups that are lazy
+     */
+    public void setLazyGroups(SvgLazyGroup.Policy lazyGroups) {
+        this.lazyGroups = Objects.requireNonNull(lazyGroups);
+    }
+
+    /**
+     * Sets the listener for measurements of reading the SVG and building
+     * Nodes from the documents read by this reader.
+     * @param metrics the listener, or {@link SvgMetrics#NONE}
+     */
+    public void setMetrics(SvgMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Sets what lengths with units are converted to pixels with.  The
+     * default, {@link SvgUnitContext#screen()}, asks the primary Screen for
+     * its resolution once for each document.  Set {@link SvgUnitContext#CSS}
+     * to read images the same way on any machine, without a Screen.
+     * @param unitContext the context, or null for the Screen
+     */
+    public void setUnitContext(SvgUnitContext unitContext) {
+        this.unitContext = unitContext;
+    }
+
+    /**
+     * Gets the number of attributes that were ignored by the last read,
+     * because they aren't supported and no extension handled them.
+     * The names are logged at {@link Level#FINE}.
+     * @return the number of ignored attributes
+     */
+    public int unsupportedAttributeCount() {
+        int count = 0;
+        for (int n : unsupportedAttributes.values()) {
+            count += n;
+        }
+        return count;
+    }
     
     /**
      * Creates a Node that will render as the SVG image using a hierarchy of
      * JavaFX Shapes.
+     * This is the same as {@code readDocument().newInstance()}, if more than
+     * one copy of the image is needed keep the {@link SvgDocument} instead.
      * @return a Group Node representing the SVG image 
      * @throws javax.xml.stream.XMLStreamException 
      */
     public Group buildNode() throws XMLStreamException  {
-        XMLStreamReader svgStream = javax.xml.stream.XMLInputFactory.newDefaultFactory().createXMLStreamReader(svgData, "utf-8");
+        return readDocument().newInstance();
+    }
+
+    /**
+     * Creates a Node that will render as the SVG image, with an index of the
+     * ids of its elements for finding them by id or by position.
+     * This is the same as {@code readDocument().newIndexedInstance()}.
+     * @return the Node and its index
+     * @throws javax.xml.stream.XMLStreamException
+     */
+    public SvgInstance buildInstance() throws XMLStreamException  {
+        return readDocument().newIndexedInstance();
+    }
+
+    /**
+     * Reads the SVG data into an immutable {@link SvgDocument} that can be
+     * used to create any number of Nodes without parsing the XML again.
+     * The SVG data can only be read once, the stream is closed when done.
+     * @return the parsed SVG image
+     * @throws javax.xml.stream.XMLStreamException 
+     */
+    public SvgDocument readDocument() throws XMLStreamException {
+        try (InputStream in = svgData) {
+            return read(in);
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    /**
+     * Builds the Node in the background using the default Executor, which
+     * uses virtual threads when they are available.
+     * @return a future that completes with a Group Node representing the SVG image
+     * @see #buildNodeAsync(java.util.concurrent.Executor)
+     */
+    public CompletableFuture<Group> buildNodeAsync() {
+        return buildNodeAsync(SvgExecutors.defaultExecutor());
+    }
+
+    /**
+     * Builds the Node in the background.  The SVG is parsed and the Node
+     * hierarchy is created on the given Executor, the Group is not attached
+     * to a Scene so it can be added to one on the JavaFX Application Thread
+     * when the future completes.
+     * <p>
+     * Cancelling the future, or completing it any other way, stops the
+     * parsing at the next element.
+     * @param executor used to read the SVG and build the Node
+     * @return a future that completes with a Group Node representing the SVG image
+     */
+    public CompletableFuture<Group> buildNodeAsync(Executor executor) {
+        return readAsync(executor, SvgDocument::newInstance);
+    }
+
+    /**
+     * Builds the Node in the background, giving up if it takes too long.
+     * @param executor used to read the SVG and build the Node
+     * @param timeout how long to wait before the future is completed
+     * exceptionally with a {@link java.util.concurrent.TimeoutException}
+     * @return a future that completes with a Group Node representing the SVG image
+     * @see #buildNodeAsync(java.util.concurrent.Executor)
+     */
+    public CompletableFuture<Group> buildNodeAsync(Executor executor, Duration timeout) {
+        return buildNodeAsync(executor).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Builds the Node in the background and adds its parts to the scene
+     * graph as they are read, so a large image appears piece by piece
+     * instead of all at once.  Uses the default Executor and a budget of
+     * {@link SvgProgressiveBuild#DEFAULT_BUDGET} per pulse.
+     * This must be called on the JavaFX Application Thread.
+     * @return the build, with the Group that is filled in
+     * @see #buildNodeProgressively(java.util.concurrent.Executor, java.time.Duration)
+     */
+    public SvgProgressiveBuild buildNodeProgressively() {
+        return buildNodeProgressively(SvgExecutors.defaultExecutor(), SvgProgressiveBuild.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Builds the Node in the background and adds its parts to the scene
+     * graph as they are read.  The SVG is parsed on the given Executor and
+     * the Nodes for each child of the {@code <svg>} element are created there
+     * as soon as the child has been read.  They are added to the Group of the
+     * build on the JavaFX Application Thread, in order, spending at most the
+     * budget on each pulse.
+     * <p>
+     * A fill or stroke that refers to a gradient further on in the file is
+     * transparent, with a placeholder Color, until the whole
+     * file has been read, then the placeholders are replaced with the
+     * gradients.  A {@code <use>} of an element further on in the file is
+     * empty in the Nodes of the build.  Transforms are baked in the document, see
+     * {@link #setBakeTransforms(boolean)}, but not in the Nodes of the build.
+     * <p>
+     * This must be called on the JavaFX Application Thread.  Cancelling
+     * {@link SvgProgressiveBuild#getDocument()} stops the build, the Nodes
+     * already added are kept.
+     * @param executor used to read the SVG and build the Nodes
+     * @param budget the longest time to spend adding Nodes on each pulse
+     * @return the build, with the Group that is filled in
+     */
+    public SvgProgressiveBuild buildNodeProgressively(Executor executor, Duration budget) {
+        SvgProgressiveBuild build = new SvgProgressiveBuild(rootId, budget);
+        progressive = build;
+        CompletableFuture<SvgDocument> read = readDocumentAsync(executor);
+        read.whenComplete((document, failure) -> {
+            if (failure != null) {
+                build.fail(failure);
+            }
+        });
+        build.getDocument().whenComplete((document, failure) -> read.cancel(false));
+        build.start();
+        return build;
+    }
+
+    /**
+     * Reads the SVG data into a {@link SvgDocument} in the background.
+     * @param executor used to read the SVG
+     * @return a future that completes with the parsed SVG image
+     * @see #buildNodeAsync(java.util.concurrent.Executor)
+     */
+    public CompletableFuture<SvgDocument> readDocumentAsync(Executor executor) {
+        return readAsync(executor, Function.identity());
+    }
+
+    private <T> CompletableFuture<T> readAsync(Executor executor, Function<SvgDocument, T> finish) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        cancelled = result::isDone;
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return; // cancelled before it started
+                }
+                try {
+                    result.complete(finish.apply(readDocument()));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    private SvgDocument read(InputStream in) throws XMLStreamException {
+        SvgEvents.Parse parse = new SvgEvents.Parse();
+        parse.begin();
+        final boolean measured = metrics != SvgMetrics.NONE;
+        long start = measured ? System.nanoTime() : 0L;
+        CountingInputStream counted = new CountingInputStream(in);
+        XMLStreamReader svgStream = javax.xml.stream.XMLInputFactory.newDefaultFactory().createXMLStreamReader(counted, "utf-8");
         svgObjStack.clear();
         defs.clear();
+        uses.clear();
         deferredValues.clear();
+        pushed.clear();
+        unsupportedAttributes.clear();
+        elementCount = 0;
+        units = null;
+        viewportWidth = Double.NaN;
+        viewportHeight = Double.NaN;
         
         SvgGroup svgNode = new SvgGroup();
         svgNode.id(rootId != null ? rootId : "");
@@ -153,20 +498,51 @@ public class SVGReader {
             int parseEvent = svgStream.next();
             switch (parseEvent) {
                 case XMLEvent.START_ELEMENT: {
+                    if (cancelled.getAsBoolean()) {
+                        svgStream.close();
+                        throw new CancellationException("Reading SVG was cancelled");
+                    }
+                    elementCount++;
                     String name = svgStream.getLocalName();
+                    int depth = svgObjStack.size();
                     process(name, svgStream);
+                    // unless the element was read to its end, e.g. text
+                    if (svgStream.getEventType() != XMLEvent.END_ELEMENT) {
+                        pushed.push(svgObjStack.size() > depth);
+                    }
                     break;
                 }
                 case XMLEvent.END_ELEMENT: {
-                    String name = svgStream.getLocalName();
-                    if (producesObject(name)) {
+                    if (pushed.pop()) {
                         SvgData obj = svgObjStack.pop();
+                        if (obj instanceof SvgElement e && e.id() != null) {
+                            // any element can be drawn by a use
+                            defs.putIfAbsent(e.id(), e);
+                        }
+                        if (obj instanceof SvgUse u) {
+                            // unless the element is further on
+                            resolveUse(u);
+                        }
                         if (obj instanceof SvgDef svgdef) {
                             // drop it, the defs are already added to the map
                             LOGGER.log(logLevel, String.valueOf(svgdef));
+                        } else if (obj instanceof SvgSymbol) {
+                            // only drawn by a use
+                        } else if (obj instanceof SvgClip) {
+                            // inside or outside of defs, only used by the
+                            // clip-path of other elements
+                        } else if (obj instanceof SvgGradient g) {
+                            // inside or outside of defs, the Paint is made
+                            // when it is first used
+                            if (g.id() != null) {
+                                defs.put(g.id(), g);
+                            }
                         } else if (svgObjStack.peek() instanceof SvgContainer c) {
                             //LOGGER.log(logLevel, () -> "Adding "+obj+" to "+c);
                             c.add(obj);
+                            if (progressive != null && svgObjStack.size() == 1 && obj instanceof SvgElement e) {
+                                buildTopLevel(e);
+                            }
                         }
                     }
                     break;
@@ -180,109 +556,496 @@ public class SVGReader {
                     break;
             }
         }
+        svgStream.close();
+        compiledPaths.clear();
+        for (SvgUse u : new ArrayList<>(uses.keySet())) {
+            if (!resolveUse(u)) {
+                LOGGER.log(Level.WARNING, () -> "Can't find element for use of \""+uses.get(u).href+'"');
+            }
+        }
+        uses.clear();
+        int unsupported = unsupportedAttributeCount();
+        if (unsupported > 0) {
+            LOGGER.log(Level.FINE, () -> "Ignored attributes: "+unsupportedAttributes);
+        }
+        parse.end();
+        long parsed = measured ? System.nanoTime() : 0L;
+
+        SvgEvents.Resolve resolve = new SvgEvents.Resolve();
+        resolve.begin();
+        deferredValues.addAll(placeheld);
+        int deferred = deferredValues.size();
         deferredValues.forEach(DeferredValue::apply);
-        return svgNode.group();
+        deferredValues.clear();
+        // what the placeholders in the Nodes already built are replaced with
+        Map<Paint, Paint> fixes = new IdentityHashMap<>();
+        placeholders.forEach((ref, placeholder) -> fixes.put(placeholder, paintFromAttr(defs, ref.paint(), ref.opacity())));
+        placeheld.clear();
+        placeholders.clear();
+        if (bakeTransforms) {
+            // after the paints are known, gradients prevent baking
+            svgNode.bakeTransforms();
+        }
+        resolve.end();
+        SvgDocument document = new SvgDocument(rootId, svgNode, counted.count, elementCount, unsupported, metrics);
+
+        if (measured) {
+            metrics.parsed(rootId, counted.count, elementCount, unsupported, parsed - start);
+            metrics.resolved(rootId, deferred, System.nanoTime() - parsed);
+        }
+        if (parse.shouldCommit()) {
+            parse.set(rootId, counted.count, elementCount, document.nodeCount(), unsupported);
+            parse.commit();
+        }
+        if (resolve.shouldCommit()) {
+            resolve.set(rootId, counted.count, elementCount, document.nodeCount(), unsupported);
+            resolve.commit();
+        }
+        if (progressive != null) {
+            progressive.finish(document, fixes);
+        }
+        return document;
+    }
+
+    // Finds the element of a use and positions it.  False if the element
+    // hasn't been read yet.
+    private boolean resolveUse(SvgUse u) {
+        UseRef ref = uses.get(u);
+        Object target = ref.href != null ? defs.get(rootId + '-' + ref.href) : null;
+        if (ref.href != null && !(target instanceof SvgElement)) {
+            return false;
+        }
+        uses.remove(u);
+        if (target instanceof SvgElement e) {
+            if (!u.setTarget(e)) {
+                LOGGER.log(Level.WARNING, () -> "Ignoring use of \""+ref.href+"\" inside itself");
+                return true;
+            }
+            // after the transform of the use
+            u.setTransform(new double[] {1, 0, ref.x, 0, 1, ref.y});
+            if (e instanceof SvgSymbol symbol) {
+                double[] viewBox = symbol.viewBoxTransform(ref.width, ref.height);
+                if (viewBox != null) {
+                    u.setTransform(viewBox);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Builds the Node for a child of the root as soon as it has been read.
+    // The paints that refer to gradients that haven't been read yet get a
+    // transparent placeholder, one for each paint, which is replaced at the
+    // end.  The template gets the real paint before the document is used.
+    private void buildTopLevel(SvgElement e) {
+        boolean placeheldHere = false;
+        for (DeferredValue v : deferredValues) {
+            if (v.ready()) {
+                v.apply();
+            } else {
+                // a new instance, so it can be told apart from any other paint
+                v.applyPlaceholder(placeholders.computeIfAbsent(v.paint(), ref -> new Color(0, 0, 0, 0)));
+                placeheld.add(v);
+                placeheldHere = true;
+            }
+        }
+        deferredValues.clear();
+        progressive.add(e.newNode(), placeheldHere);
+    }
+
+    // counts the bytes read by the XML parser
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
     }
     
-    private boolean producesObject(String elementName) {
-        return switch (elementName) {
-            case "g", "path", "polygon", "line", "circle", "ellipse", "rect",
-                "polyline", "text", "defs", "clipPath", "linearGradient",
-                "radialGradient", "stop" -> true;
-            default -> false;
+    /**
+     * Applies the value of an attribute to the object for an element.
+     */
+    @FunctionalInterface
+    private interface AttributeHandler<T> {
+        void apply(SVGReader reader, T target, String value);
+    }
+
+    // the attributes handled for one type of element, built once
+    private static final class AttributeTable<T> {
+        private final Map<String, AttributeHandler<T>> handlers = new HashMap<>();
+
+        AttributeTable<T> with(String name, AttributeHandler<? super T> handler) {
+            handlers.put(name, handler::apply);
+            return this;
+        }
+
+        AttributeTable<T> with(AttributeTable<? super T> table) {
+            table.handlers.forEach(this::with);
+            return this;
+        }
+
+        AttributeHandler<T> get(String name) {
+            return handlers.get(name);
+        }
+    }
+
+    /**
+     * Handles the start of an element.
+     */
+    @FunctionalInterface
+    private interface ElementHandler {
+        void start(SVGReader reader, String name, XMLStreamReader svgStream);
+    }
+
+    // attributes of every rendered element
+    private static final AttributeTable<SvgElement> ELEMENT_ATTRIBUTES = new AttributeTable<SvgElement>()
+            // Usually id is set for Group
+            .with("id", (r, e, v) -> e.id(r.rootId + '-' + v))
+            .with("transform", (r, e, v) -> r.applyTransform(e, v))
+            .with("opacity", (r, e, v) -> e.setOpacity(SvgLexer.number(v, 1.0)))
+            .with("clip-path", (r, e, v) -> e.setClip(r.clipFromAttr(v)))
+            .with("style", (r, e, v) -> r.applyStyles(e, v));
+
+    private static final AttributeTable<SvgUse> USE_ATTRIBUTES = new AttributeTable<SvgUse>()
+            .with(ELEMENT_ATTRIBUTES)
+            .with("x", (r, u, v) -> r.uses.get(u).x = r.widthFromAttr(v))
+            .with("y", (r, u, v) -> r.uses.get(u).y = r.heightFromAttr(v))
+            .with("width", (r, u, v) -> r.uses.get(u).width = r.widthFromAttr(v))
+            .with("height", (r, u, v) -> r.uses.get(u).height = r.heightFromAttr(v))
+            .with("href", (r, u, v) -> href(v, id -> r.uses.get(u).href = id));
+
+    private static final AttributeTable<SvgSymbol> SYMBOL_ATTRIBUTES = new AttributeTable<SvgSymbol>()
+            .with(ELEMENT_ATTRIBUTES)
+            .with("viewBox", (r, s, v) -> s.setViewBox(SvgLexer.numbers(v)))
+            .with("preserveAspectRatio", (r, s, v) -> s.setPreserveAspectRatio(v))
+            .with("width", (r, s, v) -> s.setWidth(r.widthFromAttr(v)))
+            .with("height", (r, s, v) -> s.setHeight(r.heightFromAttr(v)));
+
+    private static final AttributeTable<SvgGroup> GROUP_ATTRIBUTES = new AttributeTable<SvgGroup>()
+            .with(ELEMENT_ATTRIBUTES)
+            .with("data-fxsvg-lazy", (r, g, v) -> g.setLazy("true".equals(v) ? r.lazyPolicy() : SvgLazyGroup.Policy.EAGER));
+
+    // TODO: support inheriting presentation attributes from Group
+    private static final AttributeTable<SvgNode> SHAPE_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(ELEMENT_ATTRIBUTES)
+            .with("fill", (r, n, v) -> r.fill = v)
+            .with("stroke", (r, n, v) -> r.stroke = v)
+            .with("fill-opacity", (r, n, v) -> r.fillOpacity = SvgLexer.fraction(v, 1.0))
+            .with("stroke-opacity", (r, n, v) -> r.strokeOpacity = SvgLexer.fraction(v, 1.0))
+            .with("stroke-linecap", (r, n, v) -> n.setStrokeLineCap(lineCap(v)))
+            .with("stroke-linejoin", (r, n, v) -> n.setStrokeLineJoin(lineJoin(v)))
+            .with("stroke-miterlimit", (r, n, v) -> n.setStrokeMiterLimit(r.sizeFromAttr(v)))
+            .with("stroke-width", (r, n, v) -> n.setStrokeWidth(r.sizeFromAttr(v)))
+            .with("stroke-dasharray", (r, n, v) -> n.setStrokeDashArray(dashArray(v)));
+
+    private static final AttributeTable<SvgNode> PATH_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("d", (r, n, v) -> n.setPath(r.compiledPaths.computeIfAbsent(v, SvgPathData::compile)))
+            .with("fill-rule", (r, n, v) -> fillRule(n, v))
+            .with("clip-rule", (r, n, v) -> fillRule(n, v));
+
+    private static final AttributeTable<SvgNode> POLY_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("points", (r, n, v) -> n.setPoints(SvgLexer.numbers(v)));
+
+    private static final AttributeTable<SvgNode> LINE_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("x1", (r, n, v) -> n.setX1(r.widthFromAttr(v)))
+            .with("y1", (r, n, v) -> n.setY1(r.heightFromAttr(v)))
+            .with("x2", (r, n, v) -> n.setX2(r.widthFromAttr(v)))
+            .with("y2", (r, n, v) -> n.setY2(r.heightFromAttr(v)));
+
+    private static final AttributeTable<SvgNode> RECT_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("x", (r, n, v) -> n.setX(r.widthFromAttr(v)))
+            .with("y", (r, n, v) -> n.setY(r.heightFromAttr(v)))
+            .with("width", (r, n, v) -> n.setWidth(r.widthFromAttr(v)))
+            .with("height", (r, n, v) -> n.setHeight(r.heightFromAttr(v)))
+            .with("rx", (r, n, v) -> n.setRx(r.widthFromAttr(v)))
+            .with("ry", (r, n, v) -> n.setRy(r.heightFromAttr(v)));
+
+    private static final AttributeTable<SvgNode> CIRCLE_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("cx", (r, n, v) -> n.setCx(r.widthFromAttr(v)))
+            .with("cy", (r, n, v) -> n.setCy(r.heightFromAttr(v)))
+            .with("r", (r, n, v) -> n.setR(r.sizeFromAttr(v)));
+
+    private static final AttributeTable<SvgNode> ELLIPSE_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("cx", (r, n, v) -> n.setCx(r.widthFromAttr(v)))
+            .with("cy", (r, n, v) -> n.setCy(r.heightFromAttr(v)))
+            .with("rx", (r, n, v) -> n.setRx(r.widthFromAttr(v)))
+            .with("ry", (r, n, v) -> n.setRy(r.heightFromAttr(v)));
+
+    private static final AttributeTable<SvgNode> TEXT_ATTRIBUTES = new AttributeTable<SvgNode>()
+            .with(SHAPE_ATTRIBUTES)
+            .with("x", (r, n, v) -> n.setX(r.widthFromAttr(v)))
+            .with("y", (r, n, v) -> n.setY(r.heightFromAttr(v)));
+
+    private static final AttributeTable<SvgLinearGradient> LINEAR_GRADIENT_ATTRIBUTES = new AttributeTable<SvgLinearGradient>()
+            .with("x1", (r, g, v) -> g.setX1(r.parseValue(v)))
+            .with("y1", (r, g, v) -> g.setY1(r.parseValue(v)))
+            .with("x2", (r, g, v) -> g.setX2(r.parseValue(v)))
+            .with("y2", (r, g, v) -> g.setY2(r.parseValue(v)))
+            .with("gradientUnits", (r, g, v) -> g.setUserSpace("userSpaceOnUse".equals(v.trim())))
+            .with("gradientTransform", (r, g, v) -> g.setTransform(SvgLexer.transform(v)))
+            .with("spreadMethod", (r, g, v) -> g.setCycleMethod(cycleMethod(v)))
+            .with("href", (r, g, v) -> href(v, g::setHref))
+            .with("id", (r, g, v) -> g.id(v));
+
+    private static final AttributeTable<SvgRadialGradient> RADIAL_GRADIENT_ATTRIBUTES = new AttributeTable<SvgRadialGradient>()
+            .with("fx", (r, g, v) -> g.setFx(r.parseValue(v)))
+            .with("fy", (r, g, v) -> g.setFy(r.parseValue(v)))
+            .with("cx", (r, g, v) -> g.setCx(r.parseValue(v)))
+            .with("cy", (r, g, v) -> g.setCy(r.parseValue(v)))
+            .with("r", (r, g, v) -> g.setR(r.parseValue(v)))
+            .with("gradientUnits", (r, g, v) -> g.setUserSpace("userSpaceOnUse".equals(v.trim())))
+            .with("gradientTransform", (r, g, v) -> g.setTransform(SvgLexer.transform(v)))
+            .with("spreadMethod", (r, g, v) -> g.setCycleMethod(cycleMethod(v)))
+            .with("href", (r, g, v) -> href(v, g::setHref))
+            .with("id", (r, g, v) -> g.id(v));
+            // TODO: fr is new in SVG 2.0
+            // To map to JavaFX we will need to use this to adjust the
+            // stop positions.
+
+    private static final AttributeTable<SvgStop> STOP_ATTRIBUTES = new AttributeTable<SvgStop>()
+            .with("offset", (r, s, v) -> s.setOffset(r.parseValue(v))) // can be a percentage
+            .with("style", (r, s, v) -> { // e.g. stop-opacity:1;stop-color:#27aae1
+                s.setOpacity(1.0);
+                s.setColor("#000");
+                SvgLexer.declarations(v, (key, value) -> {
+                    switch (key) {
+                        case "stop-opacity" -> s.setOpacity(SvgLexer.number(value, 1.0));
+                        case "stop-color" -> s.setColor(value);
+                        default -> r.unsupportedAttribute(key);
+                    }
+                });
+            })
+            .with("stop-color", (r, s, v) -> s.setColor(v))
+            .with("stop-opacity", (r, s, v) -> s.setOpacity(SvgLexer.number(v, 1.0)))
+            .with("id", (r, s, v) -> s.id(v));
+
+    private static final Map<String, ElementHandler> ELEMENTS = new HashMap<>();
+    static {
+        ELEMENTS.put("svg", (r, name, s) -> {
+            // beginning a SVG document
+            // TODO: process width, height, viewBox
+            if (r.svgObjStack.size() == 1 && Double.isNaN(r.viewportWidth)) {
+                r.viewport(s);
+            }
+        });
+        ELEMENTS.put("g", (r, name, s) -> {
+            SvgGroup g = new SvgGroup();
+            if (r.svgObjStack.size() == 1) {
+                // a child of the root
+                g.setLazy(r.lazyGroups);
+            }
+            r.push(name, g, GROUP_ATTRIBUTES, s);
+        });
+        ELEMENTS.put("path", shape(SvgNode.Kind.PATH, PATH_ATTRIBUTES));
+        ELEMENTS.put("polygon", shape(SvgNode.Kind.POLYGON, POLY_ATTRIBUTES));
+        ELEMENTS.put("polyline", shape(SvgNode.Kind.POLYLINE, POLY_ATTRIBUTES));
+        ELEMENTS.put("line", shape(SvgNode.Kind.LINE, LINE_ATTRIBUTES));
+        ELEMENTS.put("rect", shape(SvgNode.Kind.RECT, RECT_ATTRIBUTES));
+        ELEMENTS.put("circle", shape(SvgNode.Kind.CIRCLE, CIRCLE_ATTRIBUTES));
+        ELEMENTS.put("ellipse", shape(SvgNode.Kind.ELLIPSE, ELLIPSE_ATTRIBUTES));
+        ELEMENTS.put("text", SVGReader::processText);
+        ELEMENTS.put("use", (r, name, s) -> {
+            SvgUse u = new SvgUse();
+            r.uses.put(u, new UseRef());
+            r.push(name, u, USE_ATTRIBUTES, s);
+        });
+        ELEMENTS.put("symbol", (r, name, s) -> r.push(name, new SvgSymbol(), SYMBOL_ATTRIBUTES, s));
+        ELEMENTS.put("defs", (r, name, s) -> r.svgObjStack.push(new SvgDef(r.defs)));
+        ELEMENTS.put("clipPath", (r, name, s) -> r.push(name, new SvgClip(), ELEMENT_ATTRIBUTES, s));
+        ELEMENTS.put("linearGradient", (r, name, s) -> {
+            SvgLinearGradient g = new SvgLinearGradient(r.defs);
+            r.push(name, g, LINEAR_GRADIENT_ATTRIBUTES, s);
+        });
+        ELEMENTS.put("radialGradient", (r, name, s) -> {
+            SvgRadialGradient g = new SvgRadialGradient(r.defs);
+            r.push(name, g, RADIAL_GRADIENT_ATTRIBUTES, s);
+        });
+        ELEMENTS.put("stop", (r, name, s) -> r.push(name, new SvgStop(), STOP_ATTRIBUTES, s));
+        ELEMENTS.put("style", (r, name, s) -> {
+            // This will require more advanced CSS parsing,
+            // and a map of defaults to apply to various element types
+            // e.g. <style> svg { fill: none; stroke-width: 30px; } </style>
+            // mean s stroke width of 30 should be set on all shapes that
+            // don't explicitly set their own.
+            LOGGER.log(Level.WARNING, "<style> element isn't supported yet");
+        });
+    }
+
+    private static ElementHandler shape(SvgNode.Kind kind, AttributeTable<SvgNode> attributes) {
+        return (r, name, s) -> {
+            SvgNode shape = new SvgNode(kind);
+            shape.setPathElements(r.pathElements);
+            r.processShape(name, shape, attributes, s);
+            r.svgObjStack.push(shape);
         };
     }
-    
+
     // process an element
     private void process( String name, XMLStreamReader svgStream) {
-        switch (name) {
-            case "svg": // beginning a SVG document
-                // TODO: process width, height, viewBox
-                break;
-            case "g":
-                processGroup(svgStream);
-                break;
-            case "path":
-                processPath(svgStream);
-                break;
-            case "polygon":
-                processPolygon(svgStream);
-                break;
-            case "line":
-                processLine(svgStream);
-                break;
-            case "circle":
-                processCircle(svgStream);
-                break;
-            case "ellipse":
-                processEllipse(svgStream);
-                break;
-            case "rect":
-                processRect(svgStream);
-                break;
-            case "polyline":
-                processPolyline(svgStream);
-                break;
-            case "text":
-                processText(svgStream);
-                break;
-            case "defs":
-                svgObjStack.push(new SvgDef(defs));
-                break;
-            case "clipPath":
-                processClipPath(svgStream);
-                break;
-            case "linearGradient":
-                processLinearGradient(svgStream);
-                break;
-            case "radialGradient":
-                processRadialGradient(svgStream);
-                break;
-            case "stop":
-                processGradientStop(svgStream);
-                break;
-            case "style":
-                // This will require more advanced CSS parsing,
-                // and a map of defaults to apply to various element types
-                // e.g. <style> svg { fill: none; stroke-width: 30px; } </style>
-                // mean s stroke width of 30 should be set on all shapes that
-                // don't explicitly set their own.
-                LOGGER.log(Level.WARNING, "<style> element isn't supported yet");
-                // fall-through
-            default:
-                LOGGER.log(logLevel, () -> "Unhandled element: \""+name+"\", attribute count = "+svgStream.getAttributeCount());
+        ElementHandler handler = ELEMENTS.get(name);
+        if (handler != null) {
+            handler.start(this, name, svgStream);
+        } else if (!processExtension(name, svgStream)) {
+            LOGGER.log(logLevel, () -> "Unhandled element: \""+name+"\", attribute count = "+svgStream.getAttributeCount());
         }
     }
 
-    private static RandomGenerator rng = RandomGenerator.getDefault();
-    
-    private Paint paintFromAttr(String paint) {
-        return paintFromAttr(defs, paint);
+    private boolean processExtension(String name, XMLStreamReader svgStream) {
+        SvgElementHandler handler = extensions != null ? extensions.element(name) : null;
+        if (handler == null) {
+            return false;
+        }
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < svgStream.getAttributeCount(); i++) {
+            attributes.put(svgStream.getAttributeLocalName(i), svgStream.getAttributeValue(i));
+        }
+        Supplier<? extends Node> factory = handler.element(name, Collections.unmodifiableMap(attributes));
+        if (factory == null) {
+            return false;
+        }
+        push(name, new SvgCustom(factory), ELEMENT_ATTRIBUTES, svgStream);
+        return true;
+    }
+
+    private void processShape(String name, SvgNode shape, AttributeTable<SvgNode> attributes, XMLStreamReader svgStream) {
+        fill = null;
+        stroke = null;
+        fillOpacity = 1.0;
+        strokeOpacity = 1.0;
+        processAttributes(name, shape, attributes, svgStream);
+        if (fill == null && fillOpacity != 1.0) {
+            fill = "black"; // the initial value
+        }
+        // Deferred because they may use forward references
+        if (fill != null) {
+            deferredValues.add(new DeferredFill(shape, fill, fillOpacity, defs));
+        }
+        if (stroke != null) {
+            deferredValues.add(new DeferredStroke(shape, stroke, strokeOpacity, defs));
+        }
+    }
+
+    // Groups in a clip path are never lazy, the clip is always drawn
+    private SvgLazyGroup.Policy lazyPolicy() {
+        for (SvgData d : svgObjStack) {
+            if (d instanceof SvgClip) {
+                return SvgLazyGroup.Policy.EAGER;
+            }
+        }
+        return lazyGroups;
+    }
+
+    private <T extends SvgData> void push(String name, T obj, AttributeTable<? super T> attributes, XMLStreamReader svgStream) {
+        processAttributes(name, obj, attributes, svgStream);
+        svgObjStack.push(obj);
+    }
+
+    private <T> void processAttributes(String elementName, T target, AttributeTable<? super T> attributes, XMLStreamReader svgStream) {
+        final int attrCount = svgStream.getAttributeCount();
+        for (int i = 0; i < attrCount; i++) {
+            String attrName = svgStream.getAttributeLocalName(i);
+            String ns = svgStream.getAttributeNamespace(i);
+            // attributes from other namespaces, e.g. inkscape:label, are
+            // not SVG attributes even if the local name is the same
+            AttributeHandler<? super T> handler = ns == null || ns.isEmpty() || XLINK_NS.equals(ns)
+                    ? attributes.get(attrName) : null;
+            if (handler != null) {
+                handler.apply(this, target, svgStream.getAttributeValue(i));
+            } else if (!processExtension(elementName, target, attrName, svgStream.getAttributeValue(i))
+                    && !(target instanceof SvgCustom)) {
+                // the handler for a custom element was given all of its attributes
+                unsupportedAttribute(attrName);
+            }
+        }
     }
+
+    private boolean processExtension(String elementName, Object target, String attrName, String value) {
+        SvgAttributeHandler handler = extensions != null ? extensions.attribute(attrName) : null;
+        if (handler != null && target instanceof SvgElement element) {
+            Consumer<? super Node> customizer = handler.attribute(elementName, value);
+            if (customizer != null) {
+                element.addCustomizer(customizer);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void unsupportedAttribute(String name) {
+        unsupportedAttributes.merge(name, 1, Integer::sum);
+    }
+
+    private static RandomGenerator rng = RandomGenerator.getDefault();
     
-    private static Paint paintFromAttr(Map<String,Object> defs, String paint) {
+    private static Paint paintFromAttr(Map<String,Object> defs, String paint, double opacity) {
         if ("none".equals(paint))
             return null;
         if (paint.startsWith("url(#")) {
             String ref = paint.substring(5,paint.indexOf(')'));
             Object obj = defs.get(ref);
-            if (obj instanceof Paint p) {
-                //System.out.println("Found paint: "+paint);
-                return p;
+            if (obj instanceof SvgGradient g) {
+                return SvgPaints.withOpacity(g.paint(), opacity);
+            } else if (obj instanceof Paint p) {
+                return SvgPaints.withOpacity(p, opacity);
             } else {
                 LOGGER.log(Level.WARNING, () -> "No Paint looking up \""+ref+'"');
                 return Color.rgb(rng.nextInt(256),rng.nextInt(256),rng.nextInt(256));
             }
         }
-        return Color.valueOf(paint);
+        return SvgPaints.color(paint, opacity);
     }
     
-    private Node clipFromAttr(String clip) {
+    // true if the paint doesn't refer to a paint server that hasn't been
+    // read, or a gradient that inherits from one
+    private static boolean isPaintDefined(Map<String, Object> defs, String paint) {
+        if (paint.startsWith("url(#")) {
+            int end = paint.indexOf(')');
+            if (end < 0) {
+                return true;
+            }
+            Object obj = defs.get(paint.substring(5, end));
+            return obj instanceof SvgGradient g ? g.ready() : obj instanceof Paint;
+        }
+        return true;
+    }
+
+    private SvgElement clipFromAttr(String clip) {
         if (clip.startsWith("url(#")) {
             var ref = clip.substring(5,clip.indexOf(')'));
             Object obj = defs.get(rootId + '-' +ref);
-            if (obj instanceof Node n) {
-                return n;
+            if (obj instanceof SvgClip c) {
+                return c;
             } else {
                 LOGGER.log(Level.WARNING, () -> "Can't find clip for id=\""+ref+'"');
             }
@@ -292,480 +1055,58 @@ public class SVGReader {
         return null;
     }
 
-    private void processGroup(XMLStreamReader svgStream) {
-        SvgGroup g = new SvgGroup();
-        processShapeAttributes(g.group(), svgStream);
-        svgObjStack.push(g);
-    }
-    
-    private void processClipPath(XMLStreamReader svgStream) {
-        var g = new Group();
-        processShapeAttributes(g, svgStream); // will assign ID
-        svgObjStack.push(new SvgClip(g));
-    }
-
-    private void processPath(XMLStreamReader svgStream) {
-        SVGPath path = new SVGPath();
-        processShapeAttributes(path, svgStream);
-        push(path);
-    }
-    
-    private void processPolygon(XMLStreamReader svgStream) {
-        Polygon poly = new Polygon();
-        processShapeAttributes(poly, svgStream);
-        push(poly);
-    }
-
-    private void processLine(XMLStreamReader svgStream) {
-        Line line = new Line();
-        processShapeAttributes(line, svgStream);
-        push(line);
-    }
-    
-    private void processRect(XMLStreamReader svgStream) {
-        Rectangle rect = new Rectangle();
-        processShapeAttributes(rect, svgStream);
-        push(rect);
-    }
-
-    private void processCircle(XMLStreamReader svgStream) {
-        Circle circle = new Circle();
-        processShapeAttributes(circle, svgStream);
-        push(circle);
-    }
-    
-    private void processEllipse(XMLStreamReader svgStream) {
-        Ellipse ellipse = new Ellipse();
-        processShapeAttributes(ellipse, svgStream);
-        push(ellipse);
-    }
-
-    private void processPolyline(XMLStreamReader svgStream) {
-        Polyline polyline = new Polyline();
-        processShapeAttributes(polyline, svgStream);
-        push(polyline);
-    }
-    
-    private void processText(XMLStreamReader svgStream) {
-        Text text = new Text();
-        processShapeAttributes(text, svgStream);
+    private void processText(String name, XMLStreamReader svgStream) {
+        SvgNode text = new SvgNode(SvgNode.Kind.TEXT);
+        processShape(name, text, TEXT_ATTRIBUTES, svgStream);
         try {
-            text.setText(svgStream.getElementText());
+            text.setText(elementText(svgStream));
         } catch(XMLStreamException ex) {
             LOGGER.log(Level.SEVERE,"Failed reading text", ex);
         }
-        push(text);
-    }
-    
-    private void processLinearGradient(XMLStreamReader svgStream) {
-        SvgLinearGradient svgGradient = new SvgLinearGradient(defs);
-        processLinearGradientAttributes(svgGradient, svgStream);
-        svgObjStack.push(svgGradient);
-    }
-    
-    private void processRadialGradient(XMLStreamReader svgStream) {
-        SvgRadialGradient svgGradient = new SvgRadialGradient(defs);
-        processRadialGradientAttributes(svgGradient, svgStream);
-        svgObjStack.push(svgGradient);
-    }
-    
-    private void processGradientStop(XMLStreamReader svgStream) {
-        SvgStop svgStop = new SvgStop();
-        processGradientStopAttributes(svgStop, svgStream);
-        svgObjStack.push(svgStop);
-    }
-    
-    private void push(Node n) {
-        svgObjStack.push(new SvgNode(n));
-    }
-    
-    private void processLinearGradientAttributes(SvgLinearGradient grad, XMLStreamReader svgStream) {
-        boolean usedPercent = false;
-        final int attrCount = svgStream.getAttributeCount();
-        for (int i = 0; i < attrCount; i++) {
-            String attrName = svgStream.getAttributeLocalName(i);
-            String value = svgStream.getAttributeValue(i);
-            if (value.endsWith("%")) {
-                usedPercent = true;
-            }
-            switch (attrName) {
-                case "x1":
-                    grad.setX1(parseValue(value));
-                    break;
-                case "y1":
-                grad.setY1(parseValue(value));
-                break;
-                case "x2":
-                grad.setX2(parseValue(value));
-                break;
-                case "y2":
-                    grad.setY2(parseValue(value));
-                    break;
-                    case "gradientUnits":
-                    break;
-                    case "gradientTransform":
-                    grad.setTransform(value);
-                    break;
-                    case "spreadMethod":
-                    CycleMethod cycle = switch(value) {
-                        default -> CycleMethod.NO_CYCLE;
-                        case "pad" -> CycleMethod.NO_CYCLE;
-                        case "reflect" -> CycleMethod.REFLECT;
-                        case "repeat" -> CycleMethod.REPEAT;
-                    };
-                    grad.setCycleMethod(cycle);
-                    break;
-                case "href":
-                if (value.startsWith("#")) {
-                    grad.setHref(value.substring(1));
-                }
-                break;
-                case "id":
-                String id = value;
-                grad.id(id);
-                break;
-            }
+        // the end of the element was consumed, so it will not be popped from
+        // the stack by read()
+        if (svgObjStack.peek() instanceof SvgContainer c) {
+            c.add(text);
         }
-        grad.setProportional(usedPercent); // dumb heuristic
     }
 
-    private void processRadialGradientAttributes(SvgRadialGradient grad, XMLStreamReader svgStream) {
-        final int attrCount = svgStream.getAttributeCount();
-        boolean usedPercent = false;
-        for (int i = 0; i < attrCount; i++) {
-            String attrName = svgStream.getAttributeLocalName(i);
-            String value = svgStream.getAttributeValue(i);
-            if (value.endsWith("%")) {
-                usedPercent = true;
-            }
-            switch (attrName) {
-                case "fx":
-                    grad.setFx(parseValue(value));
-                    break;
-                case "fy":
-                    grad.setFy(parseValue(value));
-                    break;
-                case "cx":
-                    grad.setCx(parseValue(value));
-                    break;
-                case "cy":
-                    grad.setCy(parseValue(value));
-                    break;
-                case "r":
-                    grad.setR(parseValue(value));
-                    break;
-                case "gradientUnits":
-                    break;
-                case "gradientTransform":
-                    grad.setTransform(value);
-                    break;
-                case "spreadMethod":
-                    grad.setCycleMethod(cycleMethod(value));
-                    break;
-                case "href":
-                    if (value.startsWith("#")) {
-                        grad.setHref(value.substring(1));
-                    } else {
-                        LOGGER.log(Level.WARNING, () -> "Ignoring external href, "+attrName+':'+value);
-                    }
-                    break;
-                case "id":
-                    grad.id(value);
-                    break;
-                case "fr":
-                    // TODO: new in SVG 2.0
-                    // To map to JavaFX we will need to use this to adjust the
-                    // stop positions.
-                    // fall-through
-                default:
-                    LOGGER.log(logLevel, () -> "Ignoring style: "+attrName+':'+value);
-            }
-        }
-        grad.setProportional(usedPercent); // dumb heuristic
-    }
-    
-    private void processGradientStopAttributes(SvgStop svgStop, XMLStreamReader svgStream) {
-        final int attrCount = svgStream.getAttributeCount();
-        for (int i = 0; i < attrCount; i++) {
-            String attrName = svgStream.getAttributeLocalName(i);
-            String value = svgStream.getAttributeValue(i);
-            //System.out.println("attr: " + attrName + ", value: " + value);
-            switch (attrName) {
-                case "offset":
-                    svgStop.setOffset(parseValue(value)); // can be a percentage
-                    break;
-                case "style": // e.g. stop-opacity:1;stop-color:#27aae1
-                {
-                    double opacity = 1.0;
-                    String color = "#000";
-                    String[] properties = value.split("\\s*;\\s*");
-                    for (String prop : properties) {
-                        String[] keyvalue = prop.split("\\s*:\\s*");
-                        if (keyvalue.length >= 2) {
-                            switch(keyvalue[0].trim()) {
-                                case "stop-opacity":
-                                    opacity = Double.parseDouble(keyvalue[1]);
-                                    break;
-                                case "stop-color":
-                                    color = keyvalue[1];
-                                    break;
-                            }
-                        }
-                    }
-                    svgStop.setOpacity(opacity);
-                    svgStop.setColor(color);
-                    break;
+    // The text of an element and the elements in it, e.g. a tspan, which
+    // aren't supported otherwise.  Unlike getElementText() this doesn't
+    // fail on a child element, and it always stops on the end of the
+    // element it started in.
+    private static String elementText(XMLStreamReader svgStream) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (svgStream.next()) {
+                case XMLEvent.START_ELEMENT -> depth++;
+                case XMLEvent.END_ELEMENT -> depth--;
+                case XMLEvent.CHARACTERS, XMLEvent.CDATA, XMLEvent.SPACE -> sb.append(svgStream.getText());
+                case XMLEvent.END_DOCUMENT -> throw new XMLStreamException("No end for text element");
+                default -> {
                 }
-                case "stop-color":
-                    svgStop.setColor(value);
-                    break;
-                case "stop-opacity":
-                    svgStop.setOpacity(Double.parseDouble(value));
-                    break;
-                case "id":
-                    svgStop.id(value);
-                    break;
             }
         }
+        return sb.toString();
     }
-    
-    // Also handles Groups
-    private void processShapeAttributes(Node node, XMLStreamReader svgStream) {
-        if (node instanceof Shape shape) {
-            shape.setStroke(null); // SVG default for stroke is invisible/absent
+
+    private static void fillRule(SvgNode path, String value) {
+        if ("evenodd".equals(value)) {
+            path.setFillRule(FillRule.EVEN_ODD);
+        } else if ("nonzero".equals(value)) {
+            path.setFillRule(FillRule.NON_ZERO);
         }
-        final int attrCount = svgStream.getAttributeCount();
-        for (int i = 0; i < attrCount; i++) {
-            String attrName = svgStream.getAttributeLocalName(i);
-            String value = svgStream.getAttributeValue(i);
-            //System.out.println("attr: " + attrName + ", value: " + value);
-            switch (attrName) {
-                case "fill":
-                    if (node instanceof Shape shape) {
-                        // Deferred because it may use forward references
-                        deferredValues.add(new DeferredFill(shape, value, defs));
-                    } else {
-                        // TODO: support inheriting values from Group
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "clip-rule": // fall-through
-                case "fill-rule":
-                    if (node instanceof SVGPath path) {
-                        if ("evenodd".equals(value)) {
-                            path.setFillRule(FillRule.EVEN_ODD);
-                        } else if ("nonzero".equals(value)) {
-                            path.setFillRule(FillRule.NON_ZERO);
-                        }
-                    }
-                    break;
-                case "stroke":
-                    if (node instanceof Shape shape) {
-                        deferredValues.add(new DeferredStroke(shape, value, defs));
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "stroke-linecap":
-                    if (node instanceof Shape shape) {
-                        shape.setStrokeLineCap(lineCap(value));
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "stroke-linejoin":
-                    if (node instanceof Shape shape) {
-                        shape.setStrokeLineJoin(lineJoin(value));
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "stroke-miterlimit":
-                    if (node instanceof Shape shape) {
-                        shape.setStrokeMiterLimit(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "stroke-width":
-                    if (node instanceof Shape shape) {
-                        shape.setStrokeWidth(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "stroke-dasharray":
-                    if (node instanceof Shape shape) {
-                        shape.getStrokeDashArray().addAll(pointsList(value));// comma separated numbers
-                    } else {
-                        LOGGER.log(logLevel, () -> attrName+" ignored, Node is not a Shape: "+node.getClass().getName());
-                    }
-                    break;
-                case "fill-opacity":
-                case "stroke-opacity":
-                    // TODO: tweak colour - could lookup DeferredFill/DeferredStroke for this shape and replace
-                    // with a version that also takes opacity into account
-                    LOGGER.log(logLevel, "fill-opacity and stroke-opacity are not supported yet.");
-                    break;
-                case "opacity":
-                    node.setOpacity(Double.parseDouble(value));
-                    break;
-                case "clip-path":
-                    node.setClip(clipFromAttr(value));
-                    break;
-                // Usually id is set for Group
-                case "id":
-                    String id = rootId + '-' + value;
-                    //System.out.println("id=\"" + id + "\"");
-                    node.setId(id);
-                    break;
-                case "transform":
-                    applyTransform(node, value);
-                    break;
-                case "style":
-                    applyStyles(node, value);
-                    break;
-                // Path
-                case "d":
-                    if(node instanceof SVGPath path) {
-                        path.setContent(value);
-                    } else {
-                        LOGGER.log(logLevel, "d ignored, Node is not a SVGPath,");
-                    }
-                    break;
-                // Polygon or Polyline
-                case "points":
-                {
-                    Double[] p = points(value);
-                    if (node instanceof Polygon polygon) {
-                        polygon.getPoints().addAll(p);
-                    } else if (node instanceof Polyline polyline) {
-                        polyline.getPoints().addAll(p);
-                    } else {
-                        LOGGER.log(logLevel, "points ignored, Node is not a Polygon or Polyline.");
-                    }
-                    break;
-                }
-                // Rectangle
-                case "x":
-                {
-                    double x = sizeFromAttr(value);
-                    if (node instanceof Rectangle rect) {
-                        rect.setX(x);
-                    } else if (node instanceof Text text) {
-                        text.setX(x);
-                    } else {
-                        LOGGER.log(logLevel, "x ignored, Node is not a Rectangle or Text.");
-                    }
-                    break;
-                }
-                case "y":
-                {
-                    double y = sizeFromAttr(value);
-                    if (node instanceof Rectangle rect) {
-                        rect.setY(y);
-                    } else if (node instanceof Text text) {
-                        text.setY(y);
-                    } else {
-                        LOGGER.log(logLevel, "y ignored, Node is not a Rectangle or Text.");
-                    }
-                    break;
-                }
-                case "rx": // rect or ellipse
-                {
-                    double rx = sizeFromAttr(value);
-                    if (node instanceof Rectangle rect) {
-                        rect.setArcWidth(rx);
-                    } else if (node instanceof Ellipse ellipse) {
-                        ellipse.setRadiusX(rx);
-                    } else {
-                        LOGGER.log(logLevel, "rx ignored, Node is not a Rectangle or Ellipse.");
-                    }
-                    break;
-                }
-                case "ry":
-                    double ry = sizeFromAttr(value);
-                    if (node instanceof Rectangle rect) {
-                        rect.setArcHeight(ry);
-                    } else if (node instanceof Ellipse ellipse) {
-                        ellipse.setRadiusY(ry);
-                    } else {
-                        LOGGER.log(logLevel, "ry ignored, Node is not a Rectangle or Ellipse.");
-                    }
-                    break;
-                case "width":
-                    if (node instanceof Rectangle rect) {
-                        rect.setWidth(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "width ignored, Node is not a Rectangle.");
-                    }
-                    break;
-                case "height":
-                    if (node instanceof Rectangle rect) {
-                        rect.setHeight(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "height ignored, Node is not a Rectangle.");
-                    }
-                    break;
-                // Circle or Ellipse
-                case "cx":
-                    double cx = sizeFromAttr(value);
-                    if (node instanceof Circle circ) {
-                        circ.setCenterX(cx);
-                    } else if (node instanceof Ellipse ellipse) {
-                        ellipse.setCenterX(cx);
-                    }
-                case "cy":
-                    double cy = sizeFromAttr(value);
-                    if (node instanceof Circle circ) {
-                        circ.setCenterY(cy);
-                    } else if (node instanceof Ellipse ellipse) {
-                        ellipse.setCenterY(cy);
-                    }
-                    break;
-                case "r": // circle
-                    if (node instanceof Circle circ) {
-                        circ.setRadius(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "r ignored, Node is not a Circle.");
-                    }
-                    break;
-                // Line
-                case "x1":
-                    if (node instanceof Line line) {
-                        line.setStartX(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "x1 ignored, Node is not a Line.");
-                    }
-                    break;
-                case "y1":
-                    if (node instanceof Line line) {
-                        line.setStartY(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "y1 ignored, Node is not a Line.");
-                    }
-                    break;
-                case "x2":
-                    if (node instanceof Line line) {
-                        line.setEndX(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "x2 ignored, Node is not a Line.");
-                    }
-                    break;
-                case "y2":
-                    if (node instanceof Line line) {
-                        line.setEndY(sizeFromAttr(value));
-                    } else {
-                        LOGGER.log(logLevel, "y2 ignored, Node is not a Line.");
-                    }
-                    break;
-                default:
-                    System.out.println("Ignoring attribute: "+attrName+'='+value);
-            }
+    }
+
+    private static void href(String value, Consumer<String> setHref) {
+        if (value.startsWith("#")) {
+            setHref.accept(value.substring(1));
+        } else {
+            LOGGER.log(Level.WARNING, () -> "Ignoring external href: "+value);
         }
     }
-    
-    private CycleMethod cycleMethod(String value) {
+
+    private static CycleMethod cycleMethod(String value) {
         return switch (value) {
             default -> CycleMethod.NO_CYCLE;
             case "pad" -> CycleMethod.NO_CYCLE;
@@ -774,7 +1115,7 @@ public class SVGReader {
         };
     }
             
-    private StrokeLineJoin lineJoin(String value) {
+    private static StrokeLineJoin lineJoin(String value) {
         return switch(value) {
             case "bevel" -> StrokeLineJoin.BEVEL;
             case "miter" -> StrokeLineJoin.MITER;
@@ -782,7 +1123,8 @@ public class SVGReader {
             default -> StrokeLineJoin.ROUND;
         };
     }
-    private StrokeLineCap lineCap(String value) {
+
+    private static StrokeLineCap lineCap(String value) {
         return switch(value) {
             case "butt" -> StrokeLineCap.BUTT;
             case "square" -> StrokeLineCap.SQUARE;
@@ -791,240 +1133,238 @@ public class SVGReader {
         };
     }
     
-    private static Double[] points(String points) {
-        ArrayList<Double> pointList = new ArrayList<>();
-        String[] values = points.split("\s+,?\s*|,\s*");
-        for (String v : values) {
-            try {
-                pointList.add(Double.valueOf(v));
-            } catch(NumberFormatException ex) {}
-        }
-        return pointList.toArray(Double[]::new);
+    // null for "none" or an empty list
+    private static double[] dashArray(String value) {
+        double[] dashes = SvgLexer.numbers(value);
+        return dashes.length > 0 ? dashes : null;
     }
 
-    private Double[] pointsList(String points) {
-        ArrayList<Double> pointList = new ArrayList<>();
-        String[] values = points.split(",");
-        for (String v : values) {
-            try {
-                pointList.add(Double.valueOf(v.trim()));
-            } catch(NumberFormatException ex) {}
+    private void applyTransform(SvgElement element, String value) {
+        double[] m = SvgLexer.transform(value);
+        if (m != null) {
+            element.setTransform(m);
         }
-        return pointList.toArray(Double[]::new);
     }
-    
-    private void applyTransform(Node node, String value) {
-        node.getTransforms().addAll(transformsFromString(value));
-    }
-    
+
+    /**
+     * Parses an SVG transform list, e.g. {@code "translate(10,20) scale(2)"}.
+     * Unknown transforms are ignored.
+     * @param value the transform list
+     * @return a single Transform equivalent to the list
+     */
     public static Transform transformsFromString(String value) {
-        Transform t = new Affine();
-        value = value.trim();
-        //LOGGER.log(logLevel, value);
-        while(!value.isEmpty()) {
-            int paramEnd = value.indexOf(')')+1;
-            if (paramEnd <= 0)
-                break;
-            final String transform = value.substring(0, paramEnd);
-            t = t.createConcatenation(transformFromString(transform));
-            value = value.substring(paramEnd).trim();
-        }
-        return t;
+        double[] m = SvgLexer.transform(value);
+        return m == null ? new Affine() : new Affine(m[0], m[1], m[2], m[3], m[4], m[5]);
     }
-    
+
+    /**
+     * Parses a single SVG transform function, e.g. {@code "rotate(45)"}.
+     * @param transform the transform function
+     * @return the Transform
+     * @throws RuntimeException if the transform is not valid
+     */
     public static Transform transformFromString(String transform) {
-        int paramStart = transform.indexOf('(') + 1;
-        int paramEnd = transform.indexOf(')', paramStart);
-        if (paramStart < 0 || paramEnd < 0) {
+        SvgLexer lexer = new SvgLexer(transform);
+        lexer.skipWhitespace();
+        String name = lexer.name();
+        lexer.skipWhitespace();
+        if (!lexer.consume('(')) {
             throw new RuntimeException("No parameters for transform: "+transform);
         }
-        Double[] p = points(transform.substring(paramStart, paramEnd));
-        if (transform.startsWith("matrix")) {
-            if (p.length == 6) {
-                //System.out.println("matrix " + Arrays.toString(p));
-                //  SVG  0  2  4   Order of parameters
-                //       1  3  5   are column-wise
-                //
-                //JavaFX 0  1  2   Order of parameters
-                //       3  4  5   are row-wise
-                //
-                return new Affine(p[0], p[2], p[4], p[1], p[3], p[5]);
-            } else {
-                LOGGER.log(Level.WARNING, () -> "Bad Matrix " + Arrays.toString(p));
-            }
-        } else if (transform.startsWith("translate")) {
-            //System.out.println("translate " + Arrays.toString(p));
-            if (p.length >= 2) {
-                return new Translate(p[0], p[1]);
-            } else if (p.length == 1) {
-                return new Translate(p[0], 0);
-            }
-        } else if (transform.startsWith("rotate")) {
-            //System.out.println("rotate " + Arrays.toString(p));
-            if (p.length >= 3) {
-                return new Rotate(p[0], p[1], p[2]);
-            } else if (p.length == 1) {
-                return new Rotate(p[0]);
-            }
-        } else if (transform.startsWith("scale")) {
-            //System.out.println("scale " + Arrays.toString(p));
-            if (p.length >= 2) {
-                return new Scale(p[0], p[1]);
-            } else if (p.length == 1) {
-                return new Scale(p[0], p[0]);
-            }
-        } else if (transform.startsWith("skewX")) {
-            if (p.length >= 1) {
-                double angle = Math.toRadians(p[0]);
-                return new Shear(Math.tan(angle), 0);
-            }
-        } else if (transform.startsWith("skewY")) {
-            if (p.length >= 1) {
-                double angle = Math.toRadians(p[0]);
-                return new Shear(0, Math.tan(angle));
+        double[] p = new double[6];
+        int count = 0;
+        lexer.skipWhitespace();
+        while (!lexer.atEnd() && lexer.peek() != ')') {
+            double v = lexer.number();
+            if (Double.isNaN(v) || count == p.length) {
+                throw new RuntimeException("Bad parameters for transform: "+transform);
             }
+            p[count++] = v;
+            lexer.skipSeparator();
+        }
+        double[] m = SvgLexer.matrix(name, p, count);
+        if (m == null) {
+            throw new RuntimeException("Unhandled transform: "+transform);
         }
+        return new Affine(m[0], m[1], m[2], m[3], m[4], m[5]);
+    }
 
-        throw new RuntimeException("Unhandled transform: "+transform);
+    private void applyStyles(SvgElement node, String style) {
+        SvgLexer.declarations(style, (key, value) -> applyStyle(node, key, value));
+        // for text font-family, font-size, ...
+        // posisble transforms... etc
     }
 
-    // TODO: may need to change this to use SvgNode wrapper to support deferred
-    // application of paint and construction of paint from separate color and
-    // opacity values
-    private void applyStyles(Node node, String style) {
-        String[] parts = style.split(";\\s*");
-        for (String part : parts) {
-            String[] keyValue = part.split("\\s*:\\s*");
-            if (keyValue.length != 2) {
-                LOGGER.log(Level.WARNING, () -> "Odd style info: \""+part+"\" split into: "+Arrays.toString(keyValue));
-                continue;
-            }
-            String key = keyValue[0].trim();
-            String value = keyValue[1].trim();
-            switch(key) {
-                case "stroke":
-                    if (node instanceof Shape s) {
-                        s.setStroke(paintFromAttr(value));
-                    }
-                    break;
-                case "stroke-linecap":
-                    if (node instanceof Shape s) {
-                        s.setStrokeLineCap(lineCap(value));
-                    }
-                    break;
-                case "stroke-linejoin":
-                    if (node instanceof Shape s) {
-                        s.setStrokeLineJoin(lineJoin(value));
-                    }
-                    break;
-                case "stroke-miterlimit":
-                    if (node instanceof Shape s) {
-                        s.setStrokeMiterLimit(sizeFromAttr(value));
-                    }
-                    break;
-                case "stroke-opacity":
-                    // TODO: support stroke-opacity != 1
-                    if (node instanceof Shape s) {
-                        double op = Double.parseDouble(value);
-                        if (op != 1.0) {
-                            LOGGER.log(logLevel, () -> "Style not supported yet, Key: "+key+", value: "+value);
-                        }
-                    }
-                    break;
-                case "fill":
-                    if (node instanceof Shape s) {
-                        s.setFill(paintFromAttr(value));
-                    }
-                    break;
-                case "fill-opacity":
-                    // TODO: support fill-opacity != 1
-                    if (node instanceof Shape s) {
-                        double op = Double.parseDouble(value);
-                        if (op != 1.0) {
-                            LOGGER.log(logLevel, () -> "Style not supported yet, Key: "+key+", value: "+value);
-                        }
-                    }
-                    break;
-                case "font-family":
-                    if (node instanceof Text text) {
-                        text.setFont(Font.font(value));
-                    }
-                    break;
-                case "stroke-width":
-                    if (node instanceof Shape s) {
-                        s.setStrokeWidth(sizeFromAttr(value));
-                    }
-                    break;
-                case "stroke-dasharray":
-                    if (!"none".equals(value)) {
-                        LOGGER.log(logLevel, () -> "Style not supported yet, Key: "+key+", value: "+value);
-                    }
-                    break;
-                case "fill-rule": {
-                    var rule = switch(value) {
-                            case "evenodd" -> FillRule.EVEN_ODD;
-                            default -> FillRule.NON_ZERO;
-                        };
-                    if (node instanceof SVGPath s) {
-                        s.setFillRule(rule);
-                    }
-                    break;
+    private void applyStyle(SvgElement node, String key, String value) {
+        switch(key) {
+            case "stroke":
+                if (node instanceof SvgNode) {
+                    stroke = value;
                 }
-                case "transform":
-                default:
-                    LOGGER.log(logLevel, () -> "Style not supported yet, Key: "+key+", value: "+value);
-                    break;
+                break;
+            case "stroke-linecap":
+                if (node instanceof SvgNode s) {
+                    s.setStrokeLineCap(lineCap(value));
+                }
+                break;
+            case "stroke-linejoin":
+                if (node instanceof SvgNode s) {
+                    s.setStrokeLineJoin(lineJoin(value));
+                }
+                break;
+            case "stroke-miterlimit":
+                if (node instanceof SvgNode s) {
+                    s.setStrokeMiterLimit(sizeFromAttr(value));
+                }
+                break;
+            case "stroke-opacity":
+                if (node instanceof SvgNode) {
+                    strokeOpacity = SvgLexer.fraction(value, 1.0);
+                }
+                break;
+            case "fill":
+                if (node instanceof SvgNode) {
+                    fill = value;
+                }
+                break;
+            case "fill-opacity":
+                if (node instanceof SvgNode) {
+                    fillOpacity = SvgLexer.fraction(value, 1.0);
+                }
+                break;
+            case "font-family":
+                if (node instanceof SvgNode text && text.is(SvgNode.Kind.TEXT)) {
+                    text.setFont(Font.font(value));
+                }
+                break;
+            case "stroke-width":
+                if (node instanceof SvgNode s) {
+                    s.setStrokeWidth(sizeFromAttr(value));
+                }
+                break;
+            case "stroke-dasharray":
+                if (node instanceof SvgNode s) {
+                    s.setStrokeDashArray(dashArray(value));
+                }
+                break;
+            case "fill-rule": {
+                var rule = switch(value) {
+                        case "evenodd" -> FillRule.EVEN_ODD;
+                        default -> FillRule.NON_ZERO;
+                    };
+                if (node instanceof SvgNode s && s.is(SvgNode.Kind.PATH)) {
+                    s.setFillRule(rule);
+                }
+                break;
             }
+            case "transform":
+            default:
+                LOGGER.log(logLevel, () -> "Style not supported yet, Key: "+key+", value: "+value);
+                break;
         }
-        // for text font-family, font-size, ...
-        // posisble transforms... etc
     }
 
     double parseValue(String value) {
-        if (value.endsWith("%")) {
-            return Double.parseDouble(value.substring(0, value.length()-1)) / 100.0;
-        }
-        return Double.parseDouble(value);
+        return SvgLexer.fraction(value, 0.0);
+    }
+
+    // a length in the x direction, percentages are of the viewport width
+    double widthFromAttr(String value) {
+        return length(value, 0);
     }
 
+    // a length in the y direction, percentages are of the viewport height
+    double heightFromAttr(String value) {
+        return length(value, 1);
+    }
+
+    // percentages are of the diagonal of the viewport
     double sizeFromAttr(String value) {
-        double w = 1.0;
-        if ("none".equals(value)) {
-            w = 0.0;
-        } else if (value.length() > 2 && !Character.isDigit(value.charAt(value.length()-1))) {
-            // has units
-            //  px | mm | cm | in | pt | pc | em | ex
-            // Would be nice to be able to use the JavaFX CSS Parser here.
-            // E.g.
-            //var font = Font.font(null);
-            //ParsedValue<ParsedValue<String, Size>, Number> parsedValue = ???
-            //w = javafx.css.converter.SizeConverter.getInstance().convert(parsedValue, font).doubleValue();
-
-            w = Double.parseDouble(value.substring(0, value.length()-2));
-
-            if (value.endsWith("pc")) {
-                w *= 12.0; // 12 points in a pica
-            } else if (value.endsWith("em")) {
-                // wrong because we aren't using the right font
-                Text t = new Text("m");
-                t.applyCss();
-                w *= t.getBoundsInLocal().getWidth();
-            } else if (value.endsWith("ex")) {
-                // wrong because we aren't using the right font
-                Text t = new Text("x");
-                t.applyCss();
-                w *= t.getBoundsInLocal().getWidth();
-            } else if (value.endsWith("mm")) {
-                w *= Screen.getPrimary().getDpi() * 0.03937;
-            } else if (value.endsWith("cm")) {
-                w *= Screen.getPrimary().getDpi() * 0.3937;
-            } else if (value.endsWith("in")) {
-                w *= Screen.getPrimary().getDpi(); // could be wrong screen
-            }
-        } else {
-            w = Double.parseDouble(value);
+        return length(value, 2);
+    }
+
+    // axis 0 for x, 1 for y and 2 for other lengths
+    private double length(String value, int axis) {
+        SvgLexer lexer = new SvgLexer(value);
+        lexer.skipWhitespace();
+        if (lexer.consume("none")) {
+            return 0.0;
+        }
+        double w = lexer.number();
+        if (Double.isNaN(w)) {
+            LOGGER.log(Level.WARNING, () -> "Bad length: \""+value+"\"");
+            return 0.0;
+        }
+        lexer.skipWhitespace();
+        if (lexer.atEnd() || lexer.consume("px")) {
+            return w;
+        }
+        // mm | cm | in | pt | pc | em | ex | %
+        // Would be nice to be able to use the JavaFX CSS Parser here.
+        SvgUnitContext u = units();
+        if (lexer.consume("pt")) {
+            w *= u.dpi() / 72.0;
+        } else if (lexer.consume("pc")) {
+            w *= u.dpi() / 6.0; // 12 points in a pica
+        } else if (lexer.consume("em")) {
+            // the font of the document, not of the element
+            w *= u.em();
+        } else if (lexer.consume("ex")) {
+            w *= u.ex();
+        } else if (lexer.consume("mm")) {
+            w *= u.dpi() / 25.4;
+        } else if (lexer.consume("cm")) {
+            w *= u.dpi() / 2.54;
+        } else if (lexer.consume("in")) {
+            w *= u.dpi();
+        } else if (lexer.consume('%')) {
+            // without a viewport, as if it were 100 by 100
+            double vw = Double.isNaN(viewportWidth) ? 100.0 : viewportWidth;
+            double vh = Double.isNaN(viewportHeight) ? 100.0 : viewportHeight;
+            double base = switch (axis) {
+                case 0 -> vw;
+                case 1 -> vh;
+                default -> Math.sqrt((vw * vw + vh * vh) / 2.0);
+            };
+            w *= base / 100.0;
         }
         return w;
     }
 
+    // the context for the document being read
+    private SvgUnitContext units() {
+        if (units == null) {
+            units = unitContext != null ? unitContext : SvgUnitContext.screen();
+            viewportWidth = units.viewportWidth();
+            viewportHeight = units.viewportHeight();
+        }
+        return units;
+    }
+
+    // the viewport that percentages refer to, from the viewBox or else the
+    // size of the outermost <svg> element, unless the context gives one
+    private void viewport(XMLStreamReader svgStream) {
+        SvgUnitContext u = units();
+        if (!Double.isNaN(u.viewportWidth())) {
+            return;
+        }
+        String viewBox = svgStream.getAttributeValue(null, "viewBox");
+        double[] box = viewBox != null ? SvgLexer.numbers(viewBox) : null;
+        if (box != null && box.length == 4 && box[2] > 0 && box[3] > 0) {
+            viewportWidth = box[2];
+            viewportHeight = box[3];
+            return;
+        }
+        String width = svgStream.getAttributeValue(null, "width");
+        String height = svgStream.getAttributeValue(null, "height");
+        if (width != null && height != null && !width.contains("%") && !height.contains("%")) {
+            double w = widthFromAttr(width);
+            double h = heightFromAttr(height);
+            if (w > 0 && h > 0) {
+                viewportWidth = w;
+                viewportHeight = h;
+            }
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.NumberBinding;
 import javafx.geometry.Pos;
@@ -96,11 +97,21 @@ public class SVGViewer extends Application {
         for (File svgFile : svgFiles) {
             System.out.println(svgFile);
             SVGReader svgReader = new SVGReader(svgFile);
-            Group svgImg = svgReader.buildNode();
-            svgImg.scaleXProperty().bind(scaleProp);
-            svgImg.scaleYProperty().bind(scaleProp);
-            Group wrap = new Group(svgImg);
+            // keep the order of the files while they load in the background
+            Group wrap = new Group();
             box.getChildren().add(wrap);
+            // less detail when the slider shrinks the images
+            svgReader.readDocumentAsync(SvgExecutors.defaultExecutor())
+                    .thenApply(SvgDocument::newLodInstance)
+                    .thenAcceptAsync(svgImg -> {
+                        svgImg.scaleXProperty().bind(scaleProp);
+                        svgImg.scaleYProperty().bind(scaleProp);
+                        wrap.getChildren().add(svgImg);
+                    }, Platform::runLater)
+                    .exceptionally(ex -> {
+                        System.err.println("Failed to load " + svgFile + ": " + ex);
+                        return null;
+                    });
         }
         HBox ctrls = new HBox(new Label("Scale:"), slider);
         ScrollPane sp = new ScrollPane(box);
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.function.Consumer;
+import javafx.scene.Node;
+
+/**
+ * Handles an attribute that {@link SVGReader} doesn't support.  Register it
+ * with {@link SvgExtensions#attribute(String, SvgAttributeHandler)}.
+ * <p>
+ * The handler is called once when the attribute is read.  The Consumer it
+ * returns is called with each Node built for the element, possibly on
+ * different threads.
+ *
+ * @author scott
+ */
+@FunctionalInterface
+public interface SvgAttributeHandler {
+
+    /**
+     * Called when the attribute is read on a shape, group or an element
+     * created by an {@link SvgElementHandler}.
+     * @param element the local name of the element
+     * @param value the value of the attribute
+     * @return changes each Node built for the element, or null to ignore the
+     * attribute
+     */
+    Consumer<? super Node> attribute(String element, String value);
+}
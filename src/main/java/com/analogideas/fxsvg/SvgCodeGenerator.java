@@ -0,0 +1,139 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import com.analogideas.fxsvg.impl.SvgJavaWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Compiles SVG images into Java classes, so they can be built without
+ * reading anything at run time.  Each class has a static
+ * {@code newInstance()} method that returns the same Nodes as
+ * {@link SVGReader#buildNode()}, and an {@code ID} constant with the id of
+ * the root Node.  Only JavaFX is needed to use the generated classes.
+ * <p>
+ * Lengths with units are converted with {@link SvgUnitContext#CSS}, so the
+ * generated source doesn't depend on the screen of the build machine.
+ * <p>
+ * Run it from the build with:
+ * <pre>
+ * java com.analogideas.fxsvg.SvgCodeGenerator &lt;output directory&gt; &lt;package&gt; &lt;SVG file or directory&gt;...
+ * </pre>
+ * The class names are derived from the file names, e.g. {@code open-folder.svg}
+ * becomes {@code OpenFolderSvg}.
+ *
+ * @author scott
+ */
+public final class SvgCodeGenerator {
+
+    private SvgCodeGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length < 3) {
+            System.err.println("Usage: SvgCodeGenerator <output directory> <package> <SVG file or directory>...");
+            System.exit(2);
+        }
+        Path outputDir = Path.of(args[0]);
+        String packageName = args[1];
+        List<Path> files = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            Path p = Path.of(args[i]);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> s = Files.list(p)) {
+                    s.filter(f -> f.getFileName().toString().toLowerCase().endsWith(".svg")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(p);
+            }
+        }
+        for (Path file : files) {
+            generate(file, outputDir, packageName);
+        }
+    }
+
+    /**
+     * Generates the class for an SVG file.
+     * @param svgFile the SVG image
+     * @param outputDir the root of the generated source tree
+     * @param packageName the package of the class, or an empty String
+     * @return the Java file written
+     * @throws IOException if a file can't be read or written
+     * @throws XMLStreamException if the SVG can't be parsed
+     */
+    public static Path generate(Path svgFile, Path outputDir, String packageName) throws IOException, XMLStreamException {
+        String fileName = svgFile.getFileName().toString();
+        String className = className(fileName);
+        SVGReader reader = new SVGReader(svgFile.toFile());
+        reader.setUnitContext(SvgUnitContext.CSS);
+        SvgDocument document = reader.readDocument();
+        Path dir = packageName.isEmpty() ? outputDir : outputDir.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(dir);
+        Path javaFile = dir.resolve(className + ".java");
+        try (Writer out = Files.newBufferedWriter(javaFile)) {
+            generate(document, packageName, className, fileName, out);
+        }
+        return javaFile;
+    }
+
+    /**
+     * Writes the source of a class that builds the Nodes of a document.
+     * @param document the parsed image
+     * @param packageName the package of the class, or an empty String
+     * @param className the simple name of the class
+     * @param source where the image came from, for the comments
+     * @param out where to write the source
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the document has elements created
+     * or changed by {@link SvgExtensions}
+     */
+    public static void generate(SvgDocument document, String packageName, String className,
+            String source, Appendable out) throws IOException {
+        SvgJavaWriter.write(document.id(), document.root(), packageName, className, source, out);
+    }
+
+    /**
+     * Derives a class name from a file name, e.g. {@code 1-arrow.svg} becomes
+     * {@code Svg1Arrow}.
+     * @param fileName the SVG file name
+     * @return a valid Java class name
+     */
+    public static String className(String fileName) {
+        String base = fileName.toLowerCase().endsWith(".svg") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        StringBuilder sb = new StringBuilder();
+        boolean upper = true;
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            if (Character.isLetterOrDigit(c) && c < 0x80) {
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            } else {
+                upper = true;
+            }
+        }
+        if (sb.isEmpty() || Character.isDigit(sb.charAt(0))) {
+            return "Svg" + sb;
+        }
+        return sb.append("Svg").toString();
+    }
+}
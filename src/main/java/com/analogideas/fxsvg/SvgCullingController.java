@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Hides the Shapes of a large image that are outside the viewport of a
+ * ScrollPane, so JavaFX doesn't have to render them or look at them when
+ * picking.  The Shapes to show are found with a {@link SvgSpatialIndex}
+ * built from the bounds in the template, and only the Shapes that come into
+ * or go out of view are changed.
+ * <p>
+ * JavaFX leaves invisible Nodes out of the bounds of their Parent, so the
+ * controller adds a transparent rectangle with the bounds of the whole image
+ * as its last child, like {@link SvgLazyGroup} does.  The size of the content
+ * and the scroll bars don't change as Shapes are hidden.
+ * <p>
+ * The viewport is checked again when the image or an ancestor moves or is
+ * scaled, including when the ScrollPane is scrolled, and when the viewport
+ * is resized.  The image may be anywhere in the content of the ScrollPane.
+ * <p>
+ * The controller sets the {@code visible} property of the indexed Nodes, it
+ * shouldn't be changed by anything else while the controller is installed.
+ * This class must be used on the JavaFX Application Thread.
+ *
+ * @author scott
+ */
+public final class SvgCullingController {
+
+    private final ScrollPane scrollPane;
+    private final Group image;
+    private final SvgSpatialIndex<Node> index;
+    private final Rectangle placeholder;
+    private Set<Node> shown = identitySet();
+    private final InvalidationListener listener = o -> update();
+
+    /**
+     * Starts hiding the Nodes of the image that are outside the viewport.
+     * @param scrollPane the ScrollPane that shows the image
+     * @param image the image, in the content of the ScrollPane
+     * @param index the Nodes of the image, by their bounds in the local
+     * coordinates of the image
+     * @see SvgDocument#index(Group)
+     */
+    public SvgCullingController(ScrollPane scrollPane, Group image, SvgSpatialIndex<Node> index) {
+        this.scrollPane = Objects.requireNonNull(scrollPane);
+        this.image = Objects.requireNonNull(image);
+        this.index = Objects.requireNonNull(index);
+        Bounds bounds = image.getBoundsInLocal();
+        placeholder = new Rectangle(bounds.getMinX(), bounds.getMinY(),
+                Math.max(0, bounds.getWidth()), Math.max(0, bounds.getHeight()));
+        // transparent rather than no fill, so it counts in the bounds
+        placeholder.setFill(Color.TRANSPARENT);
+        placeholder.setMouseTransparent(true);
+        image.getChildren().add(placeholder);
+        // every Node starts out visible
+        index.search(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, shown::add);
+        image.localToSceneTransformProperty().addListener(listener);
+        image.sceneProperty().addListener(listener);
+        scrollPane.viewportBoundsProperty().addListener(listener);
+        update();
+    }
+
+    /**
+     * Creates a new instance of a document as the content of a ScrollPane,
+     * with its Shapes hidden when they are out of view.
+     * @param scrollPane the ScrollPane
+     * @param document the image
+     * @return the controller, its image is the content of the ScrollPane
+     */
+    public static SvgCullingController install(ScrollPane scrollPane, SvgDocument document) {
+        Group image = document.newInstance();
+        scrollPane.setContent(image);
+        return new SvgCullingController(scrollPane, image, document.index(image));
+    }
+
+    /**
+     * The image whose Nodes are hidden.
+     * @return the image
+     */
+    public Group getImage() {
+        return image;
+    }
+
+    /**
+     * The number of indexed Nodes that are visible.
+     * @return the visible Node count
+     */
+    public int getShownCount() {
+        return shown.size();
+    }
+
+    /**
+     * Shows and hides the Nodes for the current viewport.  This is called
+     * automatically, it is only needed if the viewport changes in a way the
+     * controller can't see, such as a change to the clip of an ancestor.
+     */
+    public void update() {
+        Bounds area = viewport();
+        Set<Node> now = identitySet();
+        if (area != null) {
+            index.search(area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), now::add);
+        }
+        for (Node node : shown) {
+            if (!now.contains(node)) {
+                node.setVisible(false);
+            }
+        }
+        for (Node node : now) {
+            if (!shown.contains(node)) {
+                node.setVisible(true);
+            }
+        }
+        shown = now;
+    }
+
+    /**
+     * Stops hiding Nodes, makes all of the indexed Nodes visible again and
+     * removes the rectangle that kept the bounds of the image.
+     */
+    public void dispose() {
+        image.localToSceneTransformProperty().removeListener(listener);
+        image.sceneProperty().removeListener(listener);
+        scrollPane.viewportBoundsProperty().removeListener(listener);
+        index.search(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, node -> node.setVisible(true));
+        image.getChildren().remove(placeholder);
+        shown.clear();
+    }
+
+    // the viewport in the local coordinates of the image, or null if it
+    // isn't shown
+    private Bounds viewport() {
+        Bounds viewport = scrollPane.getViewportBounds();
+        if (viewport == null || image.getScene() == null || image.getScene() != scrollPane.getScene()) {
+            return null;
+        }
+        // the skin places the viewport inside the insets
+        Bounds inPane = new BoundingBox(scrollPane.snappedLeftInset(), scrollPane.snappedTopInset(),
+                viewport.getWidth(), viewport.getHeight());
+        return image.sceneToLocal(scrollPane.localToScene(inPane));
+    }
+
+    private static Set<Node> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import com.analogideas.fxsvg.impl.SvgBinaryCodec;
+import com.analogideas.fxsvg.impl.SvgGroup;
+import com.analogideas.fxsvg.impl.SvgInterner;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+/**
+ * A parsed SVG image.  The XML is read once by {@link SVGReader#readDocument()}
+ * and the result can be used to create any number of Nodes without parsing
+ * it again.
+ * <p>
+ * An SvgDocument is immutable, it may be shared freely and
+ * {@link #newInstance()} may be called from any thread.
+ * <p>
+ * A document can be saved in a compact binary form with {@link #write(OutputStream)}
+ * and loaded again with {@link #read(ByteBuffer)} or {@link #map(Path)},
+ * which is much faster than parsing the SVG since there is no XML, color or
+ * path data to parse.
+ * <p>
+ * For images that are shown at many sizes, {@link #newLodInstance()}
+ * creates a Node that draws less detail at small scales.
+ * {@link #newIndexedInstance()} creates a Node with an index of the ids of
+ * its elements, for finding them by id or position.
+ *
+ * @author scott
+ */
+public final class SvgDocument {
+
+    private final String id;
+    private final SvgGroup root;
+    private final long weight;
+    private final int nodes;
+    // from reading the SVG, for the build events
+    private final long bytes;
+    private final int elements;
+    private final int unsupportedAttributes;
+    private final SvgMetrics metrics;
+    // simplified templates for drawing at small scales, created when first needed
+    private final AtomicReferenceArray<SvgGroup> levels = new AtomicReferenceArray<>(SvgLodGroup.LEVELS);
+    // for SvgInstance, created when first needed
+    private volatile Ids ids;
+
+    // the position of the Node for each id, and the bounds of the Shapes
+    // with their ids in document order
+    record Ids(Map<String, int[]> paths, String[] owners, SvgSpatialIndex<Integer> bounds) {
+    }
+
+    SvgDocument(String id, SvgGroup root) {
+        this(id, root, 0, 0, 0, SvgMetrics.NONE);
+    }
+
+    SvgDocument(String id, SvgGroup root, long bytes, int elements, int unsupportedAttributes, SvgMetrics metrics) {
+        this.id = id;
+        this.root = Objects.requireNonNull(root);
+        SvgInterner.intern(root);
+        this.weight = root.weight();
+        this.nodes = root.nodeCount();
+        this.bytes = bytes;
+        this.elements = elements;
+        this.unsupportedAttributes = unsupportedAttributes;
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * The id used for the root Node of each instance.
+     * @return the root id
+     */
+    public String id() {
+        return id;
+    }
+
+    // the template, not to be changed
+    SvgGroup root() {
+        return root;
+    }
+
+    /**
+     * Estimates the memory retained by this document.
+     * @return the estimated size in bytes
+     */
+    public long weight() {
+        return weight;
+    }
+
+    /**
+     * The number of Nodes in each instance.
+     * @return the Node count
+     */
+    public int nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Creates a new Node hierarchy that renders this image.  Each call returns
+     * a new Group that is not shared with any other caller.
+     * @return a Group Node representing the SVG image
+     */
+    public Group newInstance() {
+        SvgEvents.Build event = new SvgEvents.Build();
+        event.begin();
+        long start = metrics != SvgMetrics.NONE ? System.nanoTime() : 0L;
+        Group group = root.group();
+        if (metrics != SvgMetrics.NONE) {
+            metrics.built(id, nodes, System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.set(id, bytes, elements, nodes, unsupportedAttributes);
+            event.commit();
+        }
+        return group;
+    }
+
+    /**
+     * Creates a new Node hierarchy that draws less detail when it is shown at
+     * a small scale, see {@link SvgLodGroup}.  The simplified templates are
+     * created the first time each level is needed and kept by this document.
+     * @return a Group Node representing the SVG image
+     */
+    public Group newLodInstance() {
+        SvgLodGroup group = new SvgLodGroup(level -> level(level).childNodes());
+        if (root.id() != null) {
+            group.setId(root.id());
+        }
+        return group;
+    }
+
+    // the template for a level of detail, level 0 is the full image
+    private SvgGroup level(int level) {
+        if (level == 0) {
+            return root;
+        }
+        SvgGroup template = levels.get(level);
+        if (template == null) {
+            template = root.simplified(SvgLodGroup.tolerance(level), SvgLodGroup.minArea(level));
+            if (!levels.compareAndSet(level, null, template)) {
+                template = levels.get(level);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Builds a spatial index of the Shapes in an instance of this document,
+     * for finding the Shapes in an area without visiting every Node.  The
+     * bounds are computed from the template and include the stroke, the
+     * transforms and the clips.  Lazy Groups are indexed as a whole and Nodes
+     * from {@link SvgExtensions} aren't indexed.
+     * @param instance a Group created by {@link #newInstance()}
+     * @return the Nodes indexed by their bounds in the local coordinates of
+     * the instance
+     * @see SvgCullingController
+     */
+    public SvgSpatialIndex<Node> index(Group instance) {
+        List<Node> nodes = new ArrayList<>();
+        List<double[]> bounds = new ArrayList<>();
+        root.nodeBounds(instance, (node, b) -> {
+            nodes.add(node);
+            bounds.add(b);
+        });
+        return SvgSpatialIndex.build(nodes, bounds);
+    }
+
+    /**
+     * Creates a new Node hierarchy with an index of the ids of its elements
+     * and of their bounds, see {@link SvgInstance}.  The index is built from
+     * the template the first time this is called and shared by all of the
+     * instances of this document.
+     * @return the new instance
+     */
+    public SvgInstance newIndexedInstance() {
+        return new SvgInstance(this, newInstance());
+    }
+
+    Ids ids() {
+        Ids i = ids;
+        if (i == null) {
+            // the ids of the elements start with the id of the document
+            String prefix = id + '-';
+            Map<String, int[]> paths = new HashMap<>();
+            root.idPaths((elementId, path) -> {
+                if (elementId.startsWith(prefix)) {
+                    paths.putIfAbsent(elementId.substring(prefix.length()), path);
+                }
+            });
+            List<String> owners = new ArrayList<>();
+            List<Integer> order = new ArrayList<>();
+            List<double[]> bounds = new ArrayList<>();
+            root.idBounds((elementId, b) -> {
+                if (elementId.startsWith(prefix) && isFinite(b)) {
+                    order.add(owners.size());
+                    owners.add(elementId.substring(prefix.length()));
+                    bounds.add(b);
+                }
+            });
+            ids = i = new Ids(paths, owners.toArray(String[]::new), SvgSpatialIndex.build(order, bounds));
+        }
+        return i;
+    }
+
+    private static boolean isFinite(double[] b) {
+        return Double.isFinite(b[0]) && Double.isFinite(b[1]) && Double.isFinite(b[2]) && Double.isFinite(b[3]);
+    }
+
+    /**
+     * Writes this document in the binary form read by {@link #read(ByteBuffer)}.
+     * The stream is not closed.
+     * @param out where to write the document
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the document has elements created
+     * or changed by {@link SvgExtensions}, which can't be saved
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(SvgBinaryCodec.encode(id, root));
+    }
+
+    /**
+     * Reads a document written by {@link #write(OutputStream)}, starting at
+     * the position of the buffer.  The position is moved past the document,
+     * so several documents can be read from one buffer.  The buffer isn't
+     * used after this returns.
+     * @param buffer the binary document
+     * @return the document
+     * @throws IOException if the buffer doesn't hold a document of a supported
+     * version or it is corrupt
+     */
+    public static SvgDocument read(ByteBuffer buffer) throws IOException {
+        SvgBinaryCodec.Image image = SvgBinaryCodec.decode(buffer);
+        return new SvgDocument(image.id(), image.root());
+    }
+
+    /**
+     * Reads a document from a file written by {@link #write(OutputStream)}
+     * by mapping it into memory.
+     * @param file the binary document
+     * @return the document
+     * @throws IOException if the file can't be read or isn't a document of a
+     * supported version
+     */
+    public static SvgDocument map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+}
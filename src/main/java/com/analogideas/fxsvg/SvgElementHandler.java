@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import javafx.scene.Node;
+
+/**
+ * Creates Nodes for an SVG element that {@link SVGReader} doesn't support.
+ * Register it with {@link SvgExtensions#element(String, SvgElementHandler)}.
+ * <p>
+ * The handler is called once when the element is read.  The Supplier it
+ * returns is called each time a Node is built from the image, possibly on
+ * different threads, so it must create a new Node each time.  The standard
+ * id, transform, opacity, clip-path and style attributes are applied to the
+ * Node after it is created.  Child elements of the element are ignored.
+ *
+ * @author scott
+ */
+@FunctionalInterface
+public interface SvgElementHandler {
+
+    /**
+     * Called when the element is read.
+     * @param name the local name of the element
+     * @param attributes the attributes of the element by local name
+     * @return creates a new Node for each instance of the image, or null to
+     * ignore the element
+     */
+    Supplier<? extends Node> element(String name, Map<String, String> attributes);
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for reading SVG images and building Nodes from
+ * them.  They are disabled unless a recording enables them, e.g. with
+ * {@code -XX:StartFlightRecording} and the default settings, and cost almost
+ * nothing when disabled.
+ *
+ * @author scott
+ */
+final class SvgEvents {
+
+    private SvgEvents() {
+    }
+
+    @Category({"fxsvg"})
+    @StackTrace(false)
+    abstract static class Phase extends Event {
+        @Label("Source")
+        @Description("The id of the root Node of the image")
+        String sourceId;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Elements")
+        int elements;
+
+        @Label("Nodes")
+        @Description("The number of Nodes in each instance of the image")
+        int nodes;
+
+        @Label("Unsupported Attributes")
+        int unsupportedAttributes;
+
+        void set(String sourceId, long bytes, int elements, int nodes, int unsupportedAttributes) {
+            this.sourceId = sourceId;
+            this.bytes = bytes;
+            this.elements = elements;
+            this.nodes = nodes;
+            this.unsupportedAttributes = unsupportedAttributes;
+        }
+    }
+
+    @Name("com.analogideas.fxsvg.Parse")
+    @Label("SVG Parse")
+    @Description("Reading the XML of an SVG image into a document")
+    static final class Parse extends Phase {
+    }
+
+    @Name("com.analogideas.fxsvg.Resolve")
+    @Label("SVG Resolve")
+    @Description("Resolving the paints that may use forward references and finishing the document")
+    static final class Resolve extends Phase {
+    }
+
+    @Name("com.analogideas.fxsvg.Build")
+    @Label("SVG Build")
+    @Description("Creating the Nodes for an instance of an SVG image")
+    static final class Build extends Phase {
+    }
+}
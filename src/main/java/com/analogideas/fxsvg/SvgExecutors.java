@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The default Executor for reading SVG data in the background.
+ *
+ * @author scott
+ */
+final class SvgExecutors {
+
+    private static final Executor DEFAULT = create();
+
+    private SvgExecutors() {
+    }
+
+    /**
+     * Virtual threads when running on Java 21 or later, otherwise a pool of
+     * daemon threads, one per processor.  Reads beyond that wait in a queue
+     * rather than each starting a thread.  Idle threads end after a minute.
+     * @return the shared default Executor
+     */
+    static Executor defaultExecutor() {
+        return DEFAULT;
+    }
+
+    private static Executor create() {
+        try {
+            // we are compiled for Java 17, use virtual threads when available
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger count = new AtomicInteger();
+            int threads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "fxsvg-reader-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
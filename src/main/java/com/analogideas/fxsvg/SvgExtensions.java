@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Handlers for SVG elements and attributes that {@link SVGReader} doesn't
+ * support, for use with {@link SVGReader#setExtensions(SvgExtensions)}.
+ * Handlers are only used for element and attribute names that SVGReader
+ * doesn't handle itself.  Names are local names, without a namespace prefix.
+ * <p>
+ * The handlers must be registered before the extensions are given to a
+ * reader.  After that the same extensions may be used by any number of
+ * readers on different threads.
+ *
+ * @author scott
+ */
+public final class SvgExtensions {
+
+    private final Map<String, SvgElementHandler> elements = new HashMap<>();
+    private final Map<String, SvgAttributeHandler> attributes = new HashMap<>();
+
+    /**
+     * Creates extensions with no handlers.
+     */
+    public SvgExtensions() {
+    }
+
+    /**
+     * Registers a handler for an element.
+     * @param name the local name of the element
+     * @param handler creates the Nodes for the element
+     * @return this
+     */
+    public SvgExtensions element(String name, SvgElementHandler handler) {
+        elements.put(Objects.requireNonNull(name), Objects.requireNonNull(handler));
+        return this;
+    }
+
+    /**
+     * Registers a handler for an attribute.
+     * @param name the local name of the attribute
+     * @param handler applies the attribute to the Nodes
+     * @return this
+     */
+    public SvgExtensions attribute(String name, SvgAttributeHandler handler) {
+        attributes.put(Objects.requireNonNull(name), Objects.requireNonNull(handler));
+        return this;
+    }
+
+    SvgElementHandler element(String name) {
+        return elements.get(name);
+    }
+
+    SvgAttributeHandler attribute(String name) {
+        return attributes.get(name);
+    }
+}
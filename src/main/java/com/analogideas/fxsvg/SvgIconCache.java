@@ -0,0 +1,399 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.Group;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A cache of parsed SVG images.  Each image is parsed once into a
+ * {@link SvgDocument} and every lookup returns a new Node built from it.
+ * <p>
+ * The cache is bounded by the estimated memory used by the documents (see
+ * {@link SvgDocument#weight()}) rather than by the number of entries, the
+ * least recently used documents are evicted first.  All methods may be called
+ * from any thread.  If several threads ask for the same image at the same
+ * time it is only parsed once, the other threads wait for the result.
+ *
+ * @author scott
+ */
+public final class SvgIconCache {
+    private static final Logger LOGGER = Logger.getLogger(SvgIconCache.class.getName());
+
+    /**
+     * Identifies an SVG image and knows how to read it.
+     */
+    public static final class Key {
+        private final Object identity;
+        private final Source source;
+        private final long retained; // memory held by the key itself
+
+        private Key(Object identity, Source source, long retained) {
+            this.identity = identity;
+            this.source = source;
+            this.retained = retained;
+        }
+
+        /**
+         * A key for an SVG file.  The root id is derived from the file name
+         * as it is by {@link SVGReader#SVGReader(java.io.File)}.
+         * @param file the SVG file
+         * @return the key for the file
+         */
+        public static Key file(File file) {
+            File f = file.getAbsoluteFile();
+            return new Key(f, () -> new SVGReader(f).readDocument(), 0);
+        }
+
+        /**
+         * A key for an SVG resource found with
+         * {@link Class#getResourceAsStream(java.lang.String)}.
+         * Resources in a named module can only be found if the package is
+         * open.  The root id is derived from the resource name.
+         * @param c the class used to find the resource
+         * @param name the name of the resource
+         * @return the key for the resource
+         */
+        public static Key resource(Class<?> c, String name) {
+            String absName = absoluteName(c, name);
+            String fileName = absName.substring(absName.lastIndexOf('/') + 1);
+            return new Key(new ResourceId(c.getClassLoader(), absName), () -> {
+                InputStream in = c.getResourceAsStream('/' + absName);
+                if (in == null) {
+                    throw new FileNotFoundException("No resource named " + absName);
+                }
+                return new SVGReader(in, SVGReader.idFromFileName(fileName)).readDocument();
+            }, 0);
+        }
+
+        /**
+         * A key for SVG data that is already in memory.  The key is based on
+         * a hash of the data so the same image always has the same key.
+         * The data is kept by the key, it is included in the weight of the
+         * cached image.
+         * @param svg the SVG data, it must not be modified afterwards
+         * @param rootId ID to use for the root Node
+         * @return the key for the data
+         */
+        public static Key content(byte[] svg, String rootId) {
+            return new Key(new ContentId(new Digest(sha256(svg)), rootId),
+                    () -> new SVGReader(new ByteArrayInputStream(svg), rootId).readDocument(),
+                    svg.length);
+        }
+
+        private static String absoluteName(Class<?> c, String name) {
+            if (name.startsWith("/")) {
+                return name.substring(1);
+            }
+            String pkg = c.getPackageName();
+            return pkg.isEmpty() ? name : pkg.replace('.', '/') + '/' + name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && identity.equals(other.identity);
+        }
+
+        @Override
+        public int hashCode() {
+            return identity.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + identity;
+        }
+    }
+
+    /**
+     * A snapshot of the cache statistics.
+     * @param hitCount number of lookups that found the image in the cache
+     * @param missCount number of lookups that had to read the image
+     * @param evictionCount number of images removed to stay within the weight limit
+     * @param loadFailureCount number of images that failed to load
+     * @param size number of images currently in the cache
+     * @param weight estimated bytes used by the images currently in the cache
+     */
+    public record Stats(long hitCount, long missCount, long evictionCount,
+            long loadFailureCount, int size, long weight) {
+
+        public double hitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+    }
+
+    private interface Source {
+        SvgDocument read() throws IOException, XMLStreamException;
+    }
+
+    private record ResourceId(ClassLoader loader, String name) {}
+
+    private record ContentId(Digest digest, String rootId) {}
+
+    private record Digest(byte[] hash) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Digest d && Arrays.equals(hash, d.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(hash);
+        }
+
+        @Override
+        public String toString() {
+            return "sha256:" + HexFormat.of().formatHex(hash);
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<SvgDocument> document = new CompletableFuture<>();
+        long weight; // zero until loaded
+    }
+
+    private final long maxWeight;
+    // access ordered so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long loadFailureCount;
+
+    /**
+     * Creates a cache that holds documents up to the given total weight.
+     * @param maxWeight the maximum estimated size in bytes of all cached documents
+     */
+    public SvgIconCache(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight must not be negative: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Gets a new Node for the SVG file.
+     * @param file the SVG file
+     * @return a new Group Node representing the SVG image
+     * @throws IOException if the file can't be read
+     * @throws XMLStreamException if the SVG can't be parsed
+     */
+    public Group get(File file) throws IOException, XMLStreamException {
+        return get(Key.file(file));
+    }
+
+    /**
+     * Gets a new Node for the SVG resource.
+     * @param c the class used to find the resource
+     * @param name the name of the resource
+     * @return a new Group Node representing the SVG image
+     * @throws IOException if the resource can't be read
+     * @throws XMLStreamException if the SVG can't be parsed
+     * @see Key#resource(java.lang.Class, java.lang.String)
+     */
+    public Group getResource(Class<?> c, String name) throws IOException, XMLStreamException {
+        return get(Key.resource(c, name));
+    }
+
+    /**
+     * Gets a new Node for the image identified by the key.
+     * @param key identifies the SVG image
+     * @return a new Group Node representing the SVG image
+     * @throws IOException if the image can't be read
+     * @throws XMLStreamException if the SVG can't be parsed
+     */
+    public Group get(Key key) throws IOException, XMLStreamException {
+        return document(key).newInstance();
+    }
+
+    /**
+     * Gets the parsed image identified by the key, reading it if it isn't
+     * already cached.
+     * @param key identifies the SVG image
+     * @return the parsed SVG image
+     * @throws IOException if the image can't be read
+     * @throws XMLStreamException if the SVG can't be parsed
+     */
+    public SvgDocument document(Key key) throws IOException, XMLStreamException {
+        Objects.requireNonNull(key);
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                missCount++;
+                load = true;
+            } else {
+                hitCount++;
+            }
+        }
+        if (load) {
+            load(key, entry);
+        }
+        try {
+            return entry.document.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            } else if (cause instanceof XMLStreamException xse) {
+                throw xse;
+            }
+            throw ex;
+        }
+    }
+
+    private void load(Key key, Entry entry) {
+        try {
+            SvgDocument doc = key.source.read();
+            synchronized (entries) {
+                if (entries.get(key) == entry) {
+                    entry.weight = doc.weight() + key.retained;
+                    weight += entry.weight;
+                    evict();
+                }
+            }
+            entry.document.complete(doc);
+        } catch (Exception | Error ex) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+                loadFailureCount++;
+            }
+            entry.document.completeExceptionally(ex);
+        }
+    }
+
+    // must hold the lock
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.weight > 0) { // still loading otherwise
+                it.remove();
+                weight -= eldest.weight;
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Reads the images in the background so later lookups don't have to wait.
+     * Images that fail to load are logged and not cached.
+     * @param keys the images to read
+     * @return a future that completes when all of the images have been read
+     */
+    public CompletableFuture<Void> preload(Collection<Key> keys) {
+        return preload(keys, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads the images in the background so later lookups don't have to wait.
+     * Images that fail to load are logged and not cached.
+     * @param keys the images to read
+     * @param executor used to read the images
+     * @return a future that completes when all of the images have been read
+     */
+    public CompletableFuture<Void> preload(Collection<Key> keys, Executor executor) {
+        List<CompletableFuture<?>> loads = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            loads.add(CompletableFuture.runAsync(() -> {
+                try {
+                    document(key);
+                } catch (IOException | XMLStreamException | RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, ex, () -> "Failed to preload " + key);
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Removes the image from the cache.
+     * @param key identifies the SVG image
+     */
+    public void invalidate(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+    }
+
+    /**
+     * Removes all images from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Gets the current statistics for the cache.
+     * @return a snapshot of the cache statistics
+     */
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hitCount, missCount, evictionCount, loadFailureCount,
+                    entries.size(), weight);
+        }
+    }
+
+    /**
+     * The maximum total weight of the cached documents.
+     * @return the maximum estimated size in bytes
+     */
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
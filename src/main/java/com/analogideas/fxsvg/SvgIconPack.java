@@ -0,0 +1,365 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import javafx.scene.Group;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Many icons in a single file, so an application doesn't need a resource
+ * lookup and a zip entry for each icon.  The icons are stored in the binary
+ * form written by {@link SvgDocument#write(OutputStream)} with an index
+ * sorted by name.
+ * <p>
+ * Opening a pack maps the file into memory and only checks the header, so
+ * it takes the same time however many icons there are.  Finding an icon is
+ * a binary search of the index, and each icon is decoded the first time it
+ * is asked for.  The decoded documents are kept by the pack.  All methods
+ * may be called from any thread.
+ * <p>
+ * Create a pack from a directory of SVG files with:
+ * <pre>
+ * java com.analogideas.fxsvg.SvgIconPack &lt;pack file&gt; &lt;SVG file or directory&gt;...
+ * </pre>
+ * The name of each icon is the path of the file relative to the directory,
+ * without the .svg extension, e.g. {@code actions/open}.
+ * <p>
+ * The file format, all big-endian:
+ * <pre>
+ * int   magic 'FXSP'
+ * short version
+ * short flags (0)
+ * int   number of icons
+ * index entries sorted by the UTF-8 bytes of the name:
+ *   int name offset, int name length, int data offset, int data length
+ * names, UTF-8
+ * data, one binary SvgDocument for each icon
+ * </pre>
+ * Offsets are from the start of the file, which limits a pack to 2GB.
+ *
+ * @author scott
+ */
+public final class SvgIconPack {
+
+    public static final int MAGIC = 0x46585350; // FXSP
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final Map<Integer, SvgDocument> decoded = new ConcurrentHashMap<>();
+
+    private SvgIconPack(ByteBuffer buffer) throws IOException {
+        // absolute reads only, so the buffer is never changed
+        this.buffer = buffer.slice();
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+            throw new StreamCorruptedException("Not an icon pack");
+        }
+        short version = this.buffer.getShort(4);
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported icon pack version: " + version);
+        }
+        count = this.buffer.getInt(8);
+        if (count < 0 || (long) count * ENTRY_SIZE > this.buffer.capacity() - HEADER_SIZE) {
+            throw new StreamCorruptedException("Truncated icon pack");
+        }
+    }
+
+    /**
+     * Opens a pack file by mapping it into memory.
+     * @param file the pack
+     * @return the pack
+     * @throws IOException if the file can't be read or isn't a pack of a
+     * supported version
+     */
+    public static SvgIconPack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SvgIconPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Uses a pack that is already in memory, from the position to the limit
+     * of the buffer.  The buffer must not be changed afterwards.
+     * @param buffer the pack
+     * @return the pack
+     * @throws IOException if the buffer isn't a pack of a supported version
+     */
+    public static SvgIconPack of(ByteBuffer buffer) throws IOException {
+        return new SvgIconPack(buffer);
+    }
+
+    /**
+     * The number of icons in the pack.
+     * @return the number of icons
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks if the pack has an icon.
+     * @param name the name of the icon
+     * @return true if the pack has the icon
+     */
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * The names of the icons, in the order of their UTF-8 bytes.  The names
+     * are read from the pack as they are used.
+     * @return the names
+     */
+    public List<String> names() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return new String(name(index), StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Gets the document for an icon, decoding it the first time.
+     * @param name the name of the icon
+     * @return the document, or null if the pack doesn't have the icon
+     * @throws UncheckedIOException if the icon is corrupt
+     */
+    public SvgDocument document(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        return decoded.computeIfAbsent(index, this::decode);
+    }
+
+    /**
+     * Creates a new Node for an icon.
+     * @param name the name of the icon
+     * @return a new Group representing the icon
+     * @throws IllegalArgumentException if the pack doesn't have the icon
+     * @throws UncheckedIOException if the icon is corrupt
+     */
+    public Group newInstance(String name) {
+        SvgDocument document = document(name);
+        if (document == null) {
+            throw new IllegalArgumentException("No icon named " + name);
+        }
+        return document.newInstance();
+    }
+
+    private SvgDocument decode(int index) {
+        int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        int offset = buffer.getInt(entry + 8);
+        int length = buffer.getInt(entry + 12);
+        try {
+            if (offset < 0 || length < 0 || offset > buffer.capacity() - length) {
+                throw new StreamCorruptedException("Bad icon pack entry " + index);
+            }
+            return SvgDocument.read(buffer.slice(offset, length));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private byte[] name(int index) {
+        int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        byte[] name = new byte[length];
+        buffer.get(offset, name);
+        return name;
+    }
+
+    // binary search of the index, comparing the bytes in place
+    private int indexOf(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = compare(mid, key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int index, byte[] key) {
+        int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(buffer.get(offset + i) & 0xff, key[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    /**
+     * Writes a pack.
+     * @param icons the documents by icon name
+     * @param out where to write the pack, it is not closed
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if a document can't be written, see
+     * {@link SvgDocument#write(OutputStream)}
+     */
+    public static void write(Map<String, SvgDocument> icons, OutputStream out) throws IOException {
+        // sort by the same order the binary search uses
+        Map<byte[], SvgDocument> sorted = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<String, SvgDocument> e : icons.entrySet()) {
+            sorted.put(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue());
+        }
+        List<byte[]> data = new ArrayList<>(sorted.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (SvgDocument document : sorted.values()) {
+            bytes.reset();
+            document.write(bytes);
+            data.add(bytes.toByteArray());
+        }
+
+        long nameOffset = HEADER_SIZE + (long) sorted.size() * ENTRY_SIZE;
+        long dataOffset = nameOffset;
+        for (byte[] name : sorted.keySet()) {
+            dataOffset += name.length;
+        }
+        long end = dataOffset;
+        for (byte[] d : data) {
+            end += d.length;
+        }
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("An icon pack is limited to 2GB");
+        }
+
+        DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+        dout.writeInt(MAGIC);
+        dout.writeShort(VERSION);
+        dout.writeShort(0);
+        dout.writeInt(sorted.size());
+        int i = 0;
+        for (byte[] name : sorted.keySet()) {
+            dout.writeInt((int) nameOffset);
+            dout.writeInt(name.length);
+            dout.writeInt((int) dataOffset);
+            dout.writeInt(data.get(i).length);
+            nameOffset += name.length;
+            dataOffset += data.get(i).length;
+            i++;
+        }
+        for (byte[] name : sorted.keySet()) {
+            dout.write(name);
+        }
+        for (byte[] d : data) {
+            dout.write(d);
+        }
+        dout.flush();
+    }
+
+    /**
+     * Reads SVG files and writes them to a pack.  The icons in a directory
+     * are named by their path relative to the directory, without the .svg
+     * extension.  The documents have the same ids that
+     * {@link SVGReader#SVGReader(java.io.File)} would give them.
+     * @param packFile the pack to write
+     * @param sources SVG files and directories of SVG files
+     * @throws IOException if a file can't be read or written
+     * @throws XMLStreamException if an SVG file can't be parsed
+     * @throws IllegalArgumentException if two files have the same name
+     */
+    public static void pack(Path packFile, List<Path> sources) throws IOException, XMLStreamException {
+        Map<String, SvgDocument> icons = new TreeMap<>();
+        for (Path source : sources) {
+            if (Files.isDirectory(source)) {
+                List<Path> files;
+                try (Stream<Path> s = Files.walk(source)) {
+                    files = s.filter(f -> Files.isRegularFile(f) && isSvg(f)).sorted().toList();
+                }
+                for (Path f : files) {
+                    String name = source.relativize(f).toString().replace(f.getFileSystem().getSeparator(), "/");
+                    add(icons, name.substring(0, name.length() - 4), f);
+                }
+            } else {
+                String name = source.getFileName().toString();
+                add(icons, isSvg(source) ? name.substring(0, name.length() - 4) : name, source);
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(packFile)) {
+            write(icons, out);
+        }
+    }
+
+    private static boolean isSvg(Path f) {
+        return f.getFileName().toString().toLowerCase().endsWith(".svg");
+    }
+
+    private static void add(Map<String, SvgDocument> icons, String name, Path file) throws IOException, XMLStreamException {
+        if (icons.containsKey(name)) {
+            throw new IllegalArgumentException("More than one icon named " + name);
+        }
+        icons.put(name, new SVGReader(file.toFile()).readDocument());
+    }
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length < 2) {
+            System.err.println("Usage: SvgIconPack <pack file> <SVG file or directory>...");
+            System.exit(2);
+        }
+        List<Path> sources = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sources.add(Path.of(args[i]));
+        }
+        pack(Path.of(args[0]), sources);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reads a set of SVG files in parallel.
+ * <p>
+ * Each image gets the same id that {@link SVGReader#SVGReader(java.io.File)}
+ * would give it, derived from the file name.  A file that can't be read does
+ * not stop the others from loading, it is reported in
+ * {@link Result#failures()}.
+ *
+ * @author scott
+ */
+public final class SvgIconSetLoader {
+
+    /**
+     * The images that were loaded and the ones that failed.
+     * @param documents the parsed images by id, in the order they were listed
+     * @param failures the reason each image failed, by file or resource name
+     */
+    public record Result(Map<String, SvgDocument> documents, Map<String, Exception> failures) {
+
+        public Result {
+            documents = Collections.unmodifiableMap(documents);
+            failures = Collections.unmodifiableMap(failures);
+        }
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+    }
+
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private record Item(String name, String id, Source source) {}
+
+    private final Executor executor;
+
+    /**
+     * Creates a loader that reads the images using the common ForkJoinPool.
+     */
+    public SvgIconSetLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a loader that reads the images using the given Executor.
+     * @param executor used to read the images
+     */
+    public SvgIconSetLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Reads all of the .svg files in a directory.
+     * @param dir the directory containing the SVG files
+     * @return the images and any failures
+     * @throws IOException if the directory can't be listed
+     */
+    public Result loadDirectory(Path dir) throws IOException {
+        return load(dir, "*.{svg,SVG}");
+    }
+
+    /**
+     * Reads the files under a directory that match a glob pattern.  The
+     * pattern is matched against the path relative to the directory, so
+     * {@code "*.svg"} only matches files directly in the directory while
+     * {@code "**.svg"} also matches files in sub-directories.
+     * @param dir the directory to search
+     * @param glob the pattern for the files to read
+     * @return the images and any failures
+     * @throws IOException if the directory can't be searched
+     * @see java.nio.file.FileSystem#getPathMatcher(java.lang.String)
+     */
+    public Result load(Path dir, String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        List<Item> items = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(f -> matcher.matches(dir.relativize(f)) && Files.isRegularFile(f))
+                    .sorted()
+                    .forEach(f -> items.add(new Item(f.toString(),
+                            SVGReader.idFromFileName(f.getFileName().toString()),
+                            () -> Files.newInputStream(f))));
+        }
+        return load(items);
+    }
+
+    /**
+     * Reads SVG resources found with
+     * {@link Class#getResourceAsStream(java.lang.String)}.
+     * @param c the class used to find the resources
+     * @param names the names of the resources
+     * @return the images and any failures
+     */
+    public Result loadResources(Class<?> c, Collection<String> names) {
+        List<Item> items = new ArrayList<>(names.size());
+        for (String name : names) {
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            items.add(new Item(name, SVGReader.idFromFileName(fileName), () -> {
+                InputStream in = c.getResourceAsStream(name);
+                if (in == null) {
+                    throw new FileNotFoundException("No resource named " + name);
+                }
+                return in;
+            }));
+        }
+        return load(items);
+    }
+
+    private Result load(List<Item> items) {
+        List<CompletableFuture<SvgDocument>> reads = new ArrayList<>(items.size());
+        for (Item item : items) {
+            reads.add(CompletableFuture.supplyAsync(() -> read(item), executor));
+        }
+        Map<String, SvgDocument> documents = new LinkedHashMap<>();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            try {
+                SvgDocument doc = reads.get(i).join();
+                if (documents.putIfAbsent(item.id(), doc) != null) {
+                    failures.put(item.name(), new IllegalStateException("Duplicate id: " + item.id()));
+                }
+            } catch (CompletionException ex) {
+                failures.put(item.name(), ex.getCause() instanceof Exception e ? e : ex);
+            }
+        }
+        return new Result(documents, failures);
+    }
+
+    private static SvgDocument read(Item item) {
+        try {
+            return new SVGReader(item.source().open(), item.id()).readDocument();
+        } catch (IOException | XMLStreamException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+/**
+ * A Node hierarchy created from a {@link SvgDocument}, with an index of the
+ * ids of its elements.  The ids are those in the SVG, without the prefix
+ * that is added to the ids of the Nodes, so {@code lookup("gauge")} finds
+ * the Node for {@code <path id="gauge">} without searching the scene graph
+ * like {@link Node#lookup(String)} does.
+ * <p>
+ * The elements under a point or in an area are found from the bounds of
+ * the Shapes, which are computed once from the template, so JavaFX doesn't
+ * have to pick through the Shapes.  Each Shape is found by its own id or
+ * the id of the closest Group that has one.  Since only the bounds are
+ * compared, an element is found anywhere in the box around it.
+ * <p>
+ * The index is shared by all of the instances of a document.  It is only
+ * correct while the children of the Groups aren't added, removed or moved.
+ * Create instances with {@link SvgDocument#newIndexedInstance()}.  This
+ * class must be used on the JavaFX Application Thread once the Node is in
+ * a Scene.
+ *
+ * @author scott
+ */
+public final class SvgInstance {
+
+    private final SvgDocument document;
+    private final Group node;
+    private final SvgDocument.Ids ids;
+
+    SvgInstance(SvgDocument document, Group node) {
+        this.document = Objects.requireNonNull(document);
+        this.node = Objects.requireNonNull(node);
+        this.ids = document.ids();
+    }
+
+    /**
+     * The document this instance was created from.
+     * @return the document
+     */
+    public SvgDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * The root of the Node hierarchy.
+     * @return the Group that draws the image
+     */
+    public Group getNode() {
+        return node;
+    }
+
+    /**
+     * The ids of the elements that can be found with {@link #lookup(String)}.
+     * @return the ids, as they are in the SVG
+     */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(ids.paths().keySet());
+    }
+
+    /**
+     * Finds the Node of the element with the given id.  If the id is used
+     * more than once, the first element is found.  A lazy Group on the way
+     * to the Node creates its children.
+     * @param id the id in the SVG
+     * @return the Node, or null if there is no element with the id
+     */
+    public Node lookup(String id) {
+        int[] path = ids.paths().get(id);
+        if (path == null) {
+            return null;
+        }
+        Node n = node;
+        for (int i : path) {
+            if (n instanceof SvgLazyGroup lazy) {
+                lazy.materialize();
+            }
+            if (!(n instanceof Parent p) || i >= p.getChildrenUnmodifiable().size()) {
+                return null; // the children were changed
+            }
+            n = p.getChildrenUnmodifiable().get(i);
+        }
+        return n;
+    }
+
+    /**
+     * Finds the elements whose bounds contain a point.
+     * @param x the x coordinate in the local coordinates of {@link #getNode()}
+     * @param y the y coordinate in the local coordinates of {@link #getNode()}
+     * @return the ids, the element drawn on top first
+     */
+    public List<String> idsAt(double x, double y) {
+        return idsIn(x, y, x, y);
+    }
+
+    /**
+     * Finds the elements whose bounds intersect an area.
+     * @param minX the left of the area, in the local coordinates of {@link #getNode()}
+     * @param minY the top of the area
+     * @param maxX the right of the area
+     * @param maxY the bottom of the area
+     * @return the ids, the element drawn on top first
+     */
+    public List<String> idsIn(double minX, double minY, double maxX, double maxY) {
+        List<Integer> found = ids.bounds().search(minX, minY, maxX, maxY);
+        // later Shapes are drawn on top
+        found.sort(Collections.reverseOrder());
+        Set<String> result = new LinkedHashSet<>();
+        for (int i : found) {
+            result.add(ids.owners()[i]);
+        }
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javax.management.NotificationEmitter;
+
+/**
+ * A Group whose children are only created when it is first visible, for
+ * large images where most of the drawing is scrolled out of view.  Until
+ * then it holds a transparent rectangle with the precomputed bounds of the
+ * children, so layout and scrolling work as if the children were there.
+ * <p>
+ * The Group is visible when its bounds intersect the Scene and the clips of
+ * its ancestors, e.g. the viewport of a ScrollPane.  This is checked again
+ * when the Group or an ancestor moves, when the Group is made visible, and
+ * when the Scene is resized.  The
+ * children can also be created by calling {@link #materialize()}.
+ * <p>
+ * A releasable Group removes its children again when the JVM runs low on
+ * memory, if it is not visible.  They are created again when it is visible.
+ * Memory is low when a garbage collection leaves a heap pool that supports
+ * a collection usage threshold, such as the old generation, more than 85%
+ * full.  The fraction can be set with the system property
+ * {@code com.analogideas.fxsvg.lowMemory}, e.g. 0.7 for 70%.  A threshold
+ * the application has already set on a pool is kept.
+ * <p>
+ * Enable this with {@link SVGReader#setLazyGroups(Policy)}.  This class must
+ * be used on the JavaFX Application Thread once it is in a Scene.
+ *
+ * @author scott
+ */
+public final class SvgLazyGroup extends Group {
+
+    /**
+     * Which Groups of an image are lazy.
+     */
+    public enum Policy {
+        /** All of the Nodes are created when the image is built. */
+        EAGER,
+        /**
+         * The top level Groups of the image are lazy, and any Group with a
+         * {@code data-fxsvg-lazy="true"} attribute.  A top level Group can be
+         * excluded with {@code data-fxsvg-lazy="false"}.
+         */
+        LAZY,
+        /** The same Groups as {@link #LAZY}, which are also releasable. */
+        RELEASABLE
+    }
+
+    private static final Set<SvgLazyGroup> RELEASABLE = Collections.newSetFromMap(new WeakHashMap<>());
+    private static final double LOW_MEMORY = Double.parseDouble(System.getProperty("com.analogideas.fxsvg.lowMemory", "0.85"));
+    private static boolean watching;
+
+    private final Bounds bounds;
+    private final Supplier<Node[]> children;
+    private final boolean releasable;
+    private final Rectangle placeholder;
+    private boolean materialized;
+
+    private final InvalidationListener check = o -> checkVisible();
+    private final ChangeListener<Scene> sceneListener = (o, oldScene, newScene) -> {
+        if (oldScene != null) {
+            oldScene.widthProperty().removeListener(check);
+            oldScene.heightProperty().removeListener(check);
+        }
+        if (newScene != null) {
+            newScene.widthProperty().addListener(check);
+            newScene.heightProperty().addListener(check);
+        }
+        checkVisible();
+    };
+
+    /**
+     * Creates a Group that calls the supplier for its children the first time
+     * it is visible.
+     * @param bounds the bounds of the children in the coordinates of this Group
+     * @param children creates the children, it may be called again if the
+     * Group is releasable
+     * @param releasable true if the children may be removed under memory pressure
+     */
+    public SvgLazyGroup(Bounds bounds, Supplier<Node[]> children, boolean releasable) {
+        this.bounds = Objects.requireNonNull(bounds);
+        this.children = Objects.requireNonNull(children);
+        this.releasable = releasable;
+        placeholder = new Rectangle(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+        // transparent rather than no fill, so it counts in the bounds
+        placeholder.setFill(Color.TRANSPARENT);
+        placeholder.setMouseTransparent(true);
+        getChildren().add(placeholder);
+        watch(true);
+    }
+
+    /**
+     * The bounds of the children, known before they are created.
+     * @return the bounds in the coordinates of this Group
+     */
+    public Bounds getPrecomputedBounds() {
+        return bounds;
+    }
+
+    /**
+     * Checks if the children have been created.
+     * @return true if this Group has its real children
+     */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    /**
+     * Creates the children now if they haven't been created yet.
+     * @return the children
+     */
+    public List<Node> materialize() {
+        if (!materialized) {
+            materialized = true;
+            watch(false);
+            getChildren().setAll(children.get());
+            if (releasable) {
+                register(this);
+            }
+        }
+        return getChildren();
+    }
+
+    /**
+     * Removes the children, to be created again when this Group is next
+     * visible.  Nothing is done if the Group is not releasable.
+     */
+    public void release() {
+        if (materialized && releasable) {
+            materialized = false;
+            getChildren().setAll(placeholder);
+            synchronized (RELEASABLE) {
+                RELEASABLE.remove(this);
+            }
+            watch(true);
+            checkVisible();
+        }
+    }
+
+    // listen for changes that may make the Group visible
+    private void watch(boolean on) {
+        if (on) {
+            sceneProperty().addListener(sceneListener);
+            localToSceneTransformProperty().addListener(check);
+            visibleProperty().addListener(check);
+            Scene scene = getScene();
+            if (scene != null) {
+                sceneListener.changed(sceneProperty(), null, scene);
+            }
+        } else {
+            sceneProperty().removeListener(sceneListener);
+            localToSceneTransformProperty().removeListener(check);
+            visibleProperty().removeListener(check);
+            Scene scene = getScene();
+            if (scene != null) {
+                sceneListener.changed(sceneProperty(), scene, null);
+            }
+        }
+    }
+
+    private void checkVisible() {
+        if (!materialized && isShowing()) {
+            materialize();
+        }
+    }
+
+    // intersects the Scene and the clips of the ancestors
+    private boolean isShowing() {
+        Scene scene = getScene();
+        if (scene == null || !isVisible()) {
+            return false;
+        }
+        Bounds area = new BoundingBox(0, 0, scene.getWidth(), scene.getHeight());
+        for (Parent p = getParent(); p != null; p = p.getParent()) {
+            if (!p.isVisible()) {
+                return false;
+            }
+            Node clip = p.getClip();
+            if (clip != null) {
+                area = intersect(area, p.localToScene(clip.getBoundsInParent()));
+                if (area == null) {
+                    return false;
+                }
+            }
+        }
+        return intersect(area, localToScene(bounds)) != null;
+    }
+
+    private static Bounds intersect(Bounds a, Bounds b) {
+        double minX = Math.max(a.getMinX(), b.getMinX());
+        double minY = Math.max(a.getMinY(), b.getMinY());
+        double maxX = Math.min(a.getMaxX(), b.getMaxX());
+        double maxY = Math.min(a.getMaxY(), b.getMaxY());
+        return minX <= maxX && minY <= maxY ? new BoundingBox(minX, minY, maxX - minX, maxY - minY) : null;
+    }
+
+    // when memory is low the releasable Groups that aren't visible are released
+    private static void register(SvgLazyGroup group) {
+        synchronized (RELEASABLE) {
+            RELEASABLE.add(group);
+            if (!watching) {
+                watching = true;
+                watchMemory();
+            }
+        }
+    }
+
+    // The JVM checks the collection usage threshold of a pool after each
+    // garbage collection, so only memory that is still in use counts.
+    private static void watchMemory() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && max > 0 && pool.getCollectionUsageThreshold() == 0) {
+                pool.setCollectionUsageThreshold((long) (max * LOW_MEMORY));
+            }
+        }
+        NotificationEmitter memory = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        memory.addNotificationListener((n, handback) -> lowMemory(),
+                n -> MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(n.getType()), null);
+    }
+
+    private static void lowMemory() {
+        Platform.runLater(() -> {
+            List<SvgLazyGroup> groups;
+            synchronized (RELEASABLE) {
+                groups = new ArrayList<>(RELEASABLE);
+            }
+            for (SvgLazyGroup g : groups) {
+                if (!g.isShowing()) {
+                    g.release();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+/**
+ * A Group that draws an image with less detail when it is shown at a small
+ * scale, such as a thumbnail or a zoomed out view.  Level 0 is the full
+ * image, each level after that is for half the scale of the one before.
+ * Paths, polygons and polylines are simplified so that their outlines move
+ * by less than half a pixel, and elements with bounds smaller than a quarter
+ * of a pixel are left out.
+ * <p>
+ * The scale is taken from the transform to the Scene, which includes the
+ * scale of this Group and of its ancestors, and the output scale of the
+ * Window.  The children are replaced when the scale crosses to another
+ * level.  The simplified templates are kept by the {@link SvgDocument}, so
+ * there are at most {@link #LEVELS} for each image however many Groups show
+ * it.
+ * <p>
+ * Create one with {@link SvgDocument#newLodInstance()}.  This class must be
+ * used on the JavaFX Application Thread once it is in a Scene.
+ *
+ * @author scott
+ */
+public final class SvgLodGroup extends Group {
+
+    /** The number of levels of detail, including the full image. */
+    public static final int LEVELS = 5;
+
+    // the most an outline moves, in pixels
+    private static final double PIXEL_TOLERANCE = 0.5;
+    // elements with bounds smaller than this, in square pixels, are left out
+    private static final double PIXEL_AREA = 0.25;
+
+    private final IntFunction<Node[]> levels;
+    private int level = -1;
+
+    /**
+     * Creates a Group that gets its children for the level of detail that
+     * suits its scale.
+     * @param levels creates the children for a level, from 0 for the full
+     * image to {@code LEVELS - 1}
+     */
+    public SvgLodGroup(IntFunction<Node[]> levels) {
+        this.levels = Objects.requireNonNull(levels);
+        localToSceneTransformProperty().addListener(o -> update());
+        sceneProperty().addListener(o -> update());
+        update();
+    }
+
+    /**
+     * The level of detail of the children.
+     * @return 0 for the full image, up to {@code LEVELS - 1}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * The level of detail for drawing at a scale.  Level {@code n} is used
+     * at scales of {@code 1/2^n} and less.
+     * @param scale the size of a unit of the image in pixels
+     * @return the level, from 0 to {@code LEVELS - 1}
+     */
+    public static int level(double scale) {
+        if (!(scale <= 0.5)) {
+            return 0;
+        }
+        double n = Math.floor(-Math.log(scale) / Math.log(2));
+        return (int) Math.min(n, LEVELS - 1);
+    }
+
+    /**
+     * How far the outlines may move at a level, so they move by less than
+     * half a pixel at every scale the level is used for.
+     * @param level the level of detail
+     * @return the tolerance in units of the image
+     */
+    public static double tolerance(int level) {
+        return Math.scalb(PIXEL_TOLERANCE, level);
+    }
+
+    /**
+     * The area of the smallest element drawn at a level.
+     * @param level the level of detail
+     * @return the area in square units of the image
+     */
+    public static double minArea(int level) {
+        return Math.scalb(PIXEL_AREA, 2 * level);
+    }
+
+    private void update() {
+        int l = level(scale());
+        if (l != level) {
+            level = l;
+            getChildren().setAll(levels.apply(l));
+        }
+    }
+
+    // pixels per unit, a skew is ignored
+    private double scale() {
+        Transform t = getLocalToSceneTransform();
+        double scale = Math.sqrt(Math.abs(t.getMxx() * t.getMyy() - t.getMxy() * t.getMyx()));
+        Scene scene = getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (window != null) {
+            scale *= Math.max(window.getOutputScaleX(), window.getOutputScaleY());
+        }
+        return scale;
+    }
+}
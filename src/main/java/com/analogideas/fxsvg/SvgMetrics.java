@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+/**
+ * Receives measurements of reading SVG images and building Nodes, to be
+ * passed on to a monitoring system.  The counts are suited to counters and
+ * the durations to histograms.  Set it with
+ * {@link SVGReader#setMetrics(SvgMetrics)}, the documents read use it when
+ * Nodes are built.
+ * <p>
+ * The methods may be called from any thread and should return quickly.
+ * The default methods do nothing, so only the ones of interest need to be
+ * implemented.
+ *
+ * @author scott
+ */
+public interface SvgMetrics {
+
+    /**
+     * Does nothing.  The measurements aren't even taken when this is used.
+     */
+    SvgMetrics NONE = new SvgMetrics() {};
+
+    /**
+     * Called when the XML of an image has been read.
+     * @param sourceId the id of the root Node of the image
+     * @param bytes the size of the SVG data
+     * @param elements the number of XML elements
+     * @param unsupportedAttributes the number of attributes that were ignored
+     * @param nanos how long reading took
+     */
+    default void parsed(String sourceId, long bytes, int elements, int unsupportedAttributes, long nanos) {
+    }
+
+    /**
+     * Called when the paints that may use forward references have been
+     * resolved and the document is complete.
+     * @param sourceId the id of the root Node of the image
+     * @param deferredValues the number of paints resolved
+     * @param nanos how long resolving took
+     */
+    default void resolved(String sourceId, int deferredValues, long nanos) {
+    }
+
+    /**
+     * Called each time the Nodes for an instance of an image are built.
+     * @param sourceId the id of the root Node of the image
+     * @param nodes the number of Nodes created
+     * @param nanos how long building took
+     */
+    default void built(String sourceId, int nodes, long nanos) {
+    }
+}
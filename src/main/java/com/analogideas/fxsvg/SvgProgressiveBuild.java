@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Shape;
+
+/**
+ * An image that is being built by
+ * {@link SVGReader#buildNodeProgressively(java.util.concurrent.Executor, Duration)}.
+ * The Group is empty to start with, Nodes are added to it on each pulse
+ * until the budget for the pulse is used, so the image fills in while the
+ * rest of the file is read and the user interface stays responsive.
+ * <p>
+ * The time spent on a pulse includes applying CSS to the new Nodes, but not
+ * rendering them, so the budget is approximate.
+ *
+ * @author scott
+ */
+public final class SvgProgressiveBuild {
+
+    /** The time spent adding Nodes on each pulse if no budget is given. */
+    public static final Duration DEFAULT_BUDGET = Duration.ofMillis(4);
+
+    private record Pending(Node node, boolean placeholders) {
+    }
+
+    private record Finished(SvgDocument document, Map<Paint, Paint> fixes) {
+    }
+
+    private final Group group = new Group();
+    private final long budget;
+    private final CompletableFuture<SvgDocument> document = new CompletableFuture<>();
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private volatile Finished finished;
+    private volatile Throwable failure;
+    // Nodes with placeholder paints, JavaFX Application Thread only
+    private final List<Node> placeheld = new ArrayList<>();
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            pulse();
+        }
+    };
+
+    SvgProgressiveBuild(String id, Duration budget) {
+        this.budget = budget.toNanos();
+        if (id != null) {
+            group.setId(id);
+        }
+    }
+
+    /**
+     * The Group that the Nodes of the image are added to.
+     * @return the Group, it can be added to a Scene straight away
+     */
+    public Group getNode() {
+        return group;
+    }
+
+    /**
+     * Completes with the document on the JavaFX Application Thread when all of
+     * the Nodes have been added to the Group and the placeholders replaced.
+     * Cancel it to stop the build.
+     * @return the future document
+     */
+    public CompletableFuture<SvgDocument> getDocument() {
+        return document;
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    // from the reader thread, in order
+    void add(Node node, boolean placeholders) {
+        pending.add(new Pending(node, placeholders));
+    }
+
+    // from the reader thread, after the last add
+    void finish(SvgDocument document, Map<Paint, Paint> fixes) {
+        finished = new Finished(document, fixes);
+    }
+
+    // from the reader thread
+    void fail(Throwable t) {
+        failure = t;
+    }
+
+    private void pulse() {
+        if (document.isDone()) {
+            timer.stop(); // cancelled
+            return;
+        }
+        if (failure != null) {
+            timer.stop();
+            document.completeExceptionally(failure);
+            return;
+        }
+        // read before the queue, everything is queued once it is set
+        Finished done = finished;
+        long deadline = System.nanoTime() + budget;
+        // at least one Node per pulse, so the build always makes progress
+        Pending p;
+        while ((p = pending.poll()) != null) {
+            group.getChildren().add(p.node());
+            p.node().applyCss();
+            if (p.placeholders()) {
+                placeheld.add(p.node());
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        if (done != null && pending.isEmpty()) {
+            timer.stop();
+            if (!done.fixes().isEmpty()) {
+                for (Node node : placeheld) {
+                    replacePlaceholders(node, done.fixes());
+                }
+            }
+            placeheld.clear();
+            document.complete(done.document());
+        }
+    }
+
+    private static void replacePlaceholders(Node node, Map<Paint, Paint> fixes) {
+        if (node instanceof Shape shape) {
+            Paint fill = fixes.get(shape.getFill());
+            if (fill != null) {
+                shape.setFill(fill);
+            }
+            Paint stroke = fixes.get(shape.getStroke());
+            if (stroke != null) {
+                shape.setStroke(stroke);
+            }
+        } else if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                replacePlaceholders(child, fixes);
+            }
+        }
+        if (node.getClip() != null) {
+            replacePlaceholders(node.getClip(), fixes);
+        }
+    }
+}
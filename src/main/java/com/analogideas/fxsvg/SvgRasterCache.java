@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+/**
+ * Renders SVG images to bitmaps for use as small icons.  An
+ * {@link ImageView} is much cheaper for JavaFX to lay out and render than a
+ * tree of Shapes, and all of the ImageViews for the same image, size and
+ * screen scale share one {@link WritableImage}.
+ * <p>
+ * The ImageViews follow the output scale of the Window they are shown in,
+ * the image is rendered again at the new scale when the Window moves to a
+ * screen with a different scale.  Until the ImageView is in a Window a scale
+ * of 1.0 is used, the Screen is never queried, so this works headless (e.g.
+ * with {@code -Dglass.platform=Monocle -Dmonocle.platform=Headless
+ * -Dprism.order=sw}).
+ * <p>
+ * This class must only be used on the JavaFX Application Thread, as
+ * required by {@link javafx.scene.Node#snapshot}.
+ *
+ * @author scott
+ */
+public final class SvgRasterCache {
+
+    private record Key(SvgDocument document, double size, double scale) {}
+
+    private final long maxBytes;
+    // access ordered so the eldest entry is the least recently used
+    private final LinkedHashMap<Key, WritableImage> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Creates a cache that holds images up to the given size.
+     * @param maxBytes the maximum number of bytes of pixel data to keep,
+     * images still shown in an ImageView are not affected by this limit
+     */
+    public SvgRasterCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates an ImageView showing the SVG image.  The image is scaled so
+     * that its larger dimension is {@code size}, keeping its aspect ratio.
+     * @param document the SVG image
+     * @param size the width or height of the ImageView, whichever is larger
+     * @return a new ImageView that shares its image with other ImageViews of
+     * the same document and size
+     */
+    public ImageView imageView(SvgDocument document, double size) {
+        ImageView view = new ImageView();
+        // kept alive by the listeners it adds to the view
+        new ScaleTracker(view, document, size);
+        return view;
+    }
+
+    /**
+     * Gets the SVG image rendered to a bitmap.  The image is scaled so that
+     * its larger dimension is {@code size * scale} pixels.  An image with
+     * nothing to draw gives a transparent square of that size.
+     * @param document the SVG image
+     * @param size the width or height of the image in logical pixels,
+     * whichever is larger
+     * @param scale the output scale of the screen
+     * @return the shared image, it must not be modified
+     */
+    public WritableImage image(SvgDocument document, double size, double scale) {
+        Key key = new Key(document, size, scale);
+        WritableImage image = images.get(key);
+        if (image == null) {
+            image = rasterize(document, size, scale);
+            images.put(key, image);
+            bytes += imageBytes(image);
+            evict();
+        }
+        return image;
+    }
+
+    /**
+     * Removes all of the images from the cache.
+     */
+    public void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    private void evict() {
+        Iterator<WritableImage> it = images.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= imageBytes(it.next());
+            it.remove();
+        }
+    }
+
+    private static long imageBytes(WritableImage image) {
+        return 4L * (long) image.getWidth() * (long) image.getHeight();
+    }
+
+    private static WritableImage rasterize(SvgDocument document, double size, double scale) {
+        Group g = document.newInstance();
+        Bounds b = g.getBoundsInLocal();
+        if (!(b.getWidth() > 0) || !(b.getHeight() > 0)) {
+            // nothing to draw, a transparent square of the size asked for
+            int side = Math.max(1, (int) Math.ceil(size * scale));
+            return new WritableImage(side, side);
+        }
+        double s = size / Math.max(b.getWidth(), b.getHeight()) * scale;
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        params.setTransform(Transform.scale(s, s));
+        WritableImage image = new WritableImage(
+                Math.max(1, (int) Math.ceil(b.getWidth() * s)),
+                Math.max(1, (int) Math.ceil(b.getHeight() * s)));
+        return g.snapshot(params, image);
+    }
+
+    // Keeps the image of an ImageView matched to the output scale of its Window
+    private final class ScaleTracker {
+        private final ImageView view;
+        private final SvgDocument document;
+        private final double size;
+        private final InvalidationListener scaleListener = o -> update();
+        private final ChangeListener<Window> windowListener = (o, oldWindow, newWindow) -> {
+            if (oldWindow != null) {
+                oldWindow.outputScaleXProperty().removeListener(scaleListener);
+                oldWindow.outputScaleYProperty().removeListener(scaleListener);
+            }
+            if (newWindow != null) {
+                newWindow.outputScaleXProperty().addListener(scaleListener);
+                newWindow.outputScaleYProperty().addListener(scaleListener);
+            }
+            update();
+        };
+        private double scale;
+
+        ScaleTracker(ImageView view, SvgDocument document, double size) {
+            this.view = view;
+            this.document = document;
+            this.size = size;
+            view.sceneProperty().addListener((o, oldScene, newScene) -> {
+                if (oldScene != null) {
+                    oldScene.windowProperty().removeListener(windowListener);
+                    windowListener.changed(null, oldScene.getWindow(), null);
+                }
+                if (newScene != null) {
+                    newScene.windowProperty().addListener(windowListener);
+                    windowListener.changed(null, null, newScene.getWindow());
+                }
+            });
+            update();
+        }
+
+        private void update() {
+            Scene scene = view.getScene();
+            Window window = scene != null ? scene.getWindow() : null;
+            double newScale = window != null
+                    ? Math.max(window.getOutputScaleX(), window.getOutputScaleY())
+                    : 1.0;
+            if (newScale != scale || view.getImage() == null) {
+                scale = newScale;
+                WritableImage image = image(document, size, scale);
+                view.setImage(image);
+                view.setFitWidth(image.getWidth() / scale);
+                view.setFitHeight(image.getHeight() / scale);
+            }
+        }
+    }
+
+}
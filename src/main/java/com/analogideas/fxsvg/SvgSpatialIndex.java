@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * An R-tree of items with rectangular bounds, for finding the items that
+ * intersect an area or contain a point without looking at all of them.
+ * The tree is built once with all of the items, packed with the
+ * Sort-Tile-Recursive method: the items are sorted into tiles by the
+ * centres of their bounds and each node of the tree holds up to 16 items or
+ * nodes.
+ * <p>
+ * An index is immutable and may be searched from any thread.
+ *
+ * @param <T> the type of the items
+ * @author scott
+ */
+public final class SvgSpatialIndex<T> {
+
+    private static final int CAPACITY = 16;
+
+    // in the order of the leaves
+    private final Object[] items;
+    // minX, minY, maxX, maxY for each entry of each level, level 0 has the
+    // bounds of the items and entry i of level n covers the entries from
+    // i * CAPACITY of level n - 1
+    private final double[][] levels;
+
+    private SvgSpatialIndex(Object[] items, double[][] levels) {
+        this.items = items;
+        this.levels = levels;
+    }
+
+    /**
+     * Builds an index.
+     * @param <T> the type of the items
+     * @param items the items
+     * @param bounds minX, minY, maxX, maxY of each item, in the same order
+     * @return the index
+     * @throws IllegalArgumentException if there isn't one bounds for each item
+     */
+    public static <T> SvgSpatialIndex<T> build(List<? extends T> items, List<double[]> bounds) {
+        int n = items.size();
+        if (bounds.size() != n) {
+            throw new IllegalArgumentException(n + " items but " + bounds.size() + " bounds");
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // sort by x into vertical slices, then each slice by y
+        Arrays.sort(order, Comparator.comparingDouble(i -> centre(bounds.get(i), 0)));
+        int leaves = (n + CAPACITY - 1) / CAPACITY;
+        int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * CAPACITY;
+        for (int start = 0; start < n; start += sliceSize) {
+            Arrays.sort(order, start, Math.min(n, start + sliceSize), Comparator.comparingDouble(i -> centre(bounds.get(i), 1)));
+        }
+
+        Object[] sorted = new Object[n];
+        double[] level = new double[n * 4];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = items.get(order[i]);
+            System.arraycopy(bounds.get(order[i]), 0, level, i * 4, 4);
+        }
+        List<double[]> levels = new ArrayList<>();
+        levels.add(level);
+        while (level.length > 4 * CAPACITY) {
+            level = parents(level);
+            levels.add(level);
+        }
+        return new SvgSpatialIndex<>(sorted, levels.toArray(double[][]::new));
+    }
+
+    private static double centre(double[] b, int axis) {
+        return (b[axis] + b[axis + 2]) / 2;
+    }
+
+    private static double[] parents(double[] children) {
+        int count = children.length / 4;
+        double[] parents = new double[(count + CAPACITY - 1) / CAPACITY * 4];
+        for (int p = 0; p < parents.length / 4; p++) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (int c = p * CAPACITY; c < Math.min(count, (p + 1) * CAPACITY); c++) {
+                minX = Math.min(minX, children[c * 4]);
+                minY = Math.min(minY, children[c * 4 + 1]);
+                maxX = Math.max(maxX, children[c * 4 + 2]);
+                maxY = Math.max(maxY, children[c * 4 + 3]);
+            }
+            parents[p * 4] = minX;
+            parents[p * 4 + 1] = minY;
+            parents[p * 4 + 2] = maxX;
+            parents[p * 4 + 3] = maxY;
+        }
+        return parents;
+    }
+
+    /**
+     * The number of items in the index.
+     * @return the item count
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Finds the items whose bounds intersect an area, including items that
+     * only touch its edges.
+     * @param minX the left of the area
+     * @param minY the top of the area
+     * @param maxX the right of the area
+     * @param maxY the bottom of the area
+     * @param action called for each item found, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public void search(double minX, double minY, double maxX, double maxY, Consumer<? super T> action) {
+        if (items.length > 0) {
+            search(levels.length - 1, 0, minX, minY, maxX, maxY, i -> action.accept((T) items[i]));
+        }
+    }
+
+    /**
+     * Finds the items whose bounds intersect an area.
+     * @param minX the left of the area
+     * @param minY the top of the area
+     * @param maxX the right of the area
+     * @param maxY the bottom of the area
+     * @return the items found, in no particular order
+     */
+    public List<T> search(double minX, double minY, double maxX, double maxY) {
+        List<T> found = new ArrayList<>();
+        search(minX, minY, maxX, maxY, found::add);
+        return found;
+    }
+
+    /**
+     * Finds the items whose bounds contain a point.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the items found, in no particular order
+     */
+    public List<T> search(double x, double y) {
+        return search(x, y, x, y);
+    }
+
+    private void search(int depth, int first, double minX, double minY, double maxX, double maxY, IntConsumer found) {
+        double[] level = levels[depth];
+        int end = Math.min(level.length / 4, first + CAPACITY);
+        if (depth == levels.length - 1) {
+            // the top level isn't limited to one node
+            first = 0;
+            end = level.length / 4;
+        }
+        for (int i = first; i < end; i++) {
+            int b = i * 4;
+            if (level[b] <= maxX && level[b + 2] >= minX && level[b + 1] <= maxY && level[b + 3] >= minY) {
+                if (depth == 0) {
+                    found.accept(i);
+                } else {
+                    search(depth - 1, i * CAPACITY, minX, minY, maxX, maxY, found);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextBoundsType;
+import javafx.stage.Screen;
+
+/**
+ * What lengths in an SVG image are converted to pixels with: the resolution
+ * for absolute units such as {@code mm} and {@code pt}, the font for
+ * {@code em} and {@code ex}, and the size of the viewport for percentages.
+ * Each value is found at most once per document, and the size of the
+ * {@code x} in a font is measured once per font.
+ * <p>
+ * By default {@link SVGReader} uses {@link #screen()}, which asks the
+ * primary Screen for its resolution, 96 pixels per inch if there is none
+ * or the JavaFX toolkit isn't running, and measures the default font.  Set
+ * {@link #CSS} or a context made by {@link #fixed(double, double, double)}
+ * with {@link SVGReader#setUnitContext(SvgUnitContext)} so that images are
+ * read the same way everywhere, and without the Screen, e.g. on a server
+ * or in a batch job.
+ * <p>
+ * Instances are immutable and can be shared between readers and threads.
+ *
+ * @author scott
+ */
+public final class SvgUnitContext {
+
+    /**
+     * The CSS reference: 96 pixels per inch and a 16 pixel font with an
+     * {@code ex} of half the font size.  It never uses the Screen or fonts.
+     */
+    public static final SvgUnitContext CSS = fixed(96.0, 16.0, 8.0);
+
+    private static final Logger LOGGER = Logger.getLogger(SvgUnitContext.class.getName());
+
+    // how long to wait for the FX thread, which may be busy, to ask the Screen
+    private static final long SCREEN_TIMEOUT_MS = 1000;
+
+    // the ex of each font measured, they don't change
+    private static final Map<Font, Double> EX_SIZES = new ConcurrentHashMap<>();
+
+    // NaN for values that are found when first needed
+    private volatile double dpi;
+    private final Font font;
+    private volatile double em;
+    private volatile double ex;
+    private final double viewportWidth;
+    private final double viewportHeight;
+
+    private SvgUnitContext(double dpi, Font font, double em, double ex, double viewportWidth, double viewportHeight) {
+        this.dpi = dpi;
+        this.font = font;
+        this.em = em;
+        this.ex = ex;
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+    }
+
+    /**
+     * A context with the resolution of the primary Screen and the default
+     * font.  The Screen is only asked when an absolute unit is first used,
+     * so use a new context for each document to follow changes to it.
+     * @return a new context
+     */
+    public static SvgUnitContext screen() {
+        return new SvgUnitContext(Double.NaN, null, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * A context with fixed values, which never uses the Screen or fonts.
+     * @param dpi the pixels per inch
+     * @param em the size of {@code 1em} in pixels, the font size
+     * @param ex the size of {@code 1ex} in pixels, the height of an x
+     * @return the context
+     */
+    public static SvgUnitContext fixed(double dpi, double em, double ex) {
+        if (!(dpi > 0) || !(em > 0) || !(ex > 0)) {
+            throw new IllegalArgumentException("Sizes must be positive: dpi="+dpi+", em="+em+", ex="+ex);
+        }
+        return new SvgUnitContext(dpi, null, em, ex, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * A copy of this context that gets {@code em} and {@code ex} from a
+     * font.  The {@code ex} is measured the first time it is used.
+     * @param font the font
+     * @return the new context
+     */
+    public SvgUnitContext withFont(Font font) {
+        return new SvgUnitContext(dpi, font, Double.NaN, Double.NaN, viewportWidth, viewportHeight);
+    }
+
+    /**
+     * A copy of this context with the size of the viewport that
+     * percentages refer to, instead of the size given by the
+     * {@code <svg>} element.
+     * @param width the width in pixels
+     * @param height the height in pixels
+     * @return the new context
+     */
+    public SvgUnitContext withViewport(double width, double height) {
+        if (!(width > 0) || !(height > 0)) {
+            throw new IllegalArgumentException("Viewport must have a size: "+width+"x"+height);
+        }
+        return new SvgUnitContext(dpi, font, em, ex, width, height);
+    }
+
+    /**
+     * The resolution for absolute units.
+     * @return the pixels per inch
+     */
+    public double dpi() {
+        double d = dpi;
+        if (Double.isNaN(d)) {
+            d = screenDpi();
+            dpi = d;
+        }
+        return d;
+    }
+
+    /**
+     * The size of {@code 1em}.
+     * @return the font size in pixels
+     */
+    public double em() {
+        double e = em;
+        if (Double.isNaN(e)) {
+            e = font().getSize();
+            em = e;
+        }
+        return e;
+    }
+
+    /**
+     * The size of {@code 1ex}.
+     * @return the height of an x in the font, in pixels
+     */
+    public double ex() {
+        double e = ex;
+        if (Double.isNaN(e)) {
+            e = EX_SIZES.computeIfAbsent(font(), SvgUnitContext::measureEx);
+            ex = e;
+        }
+        return e;
+    }
+
+    /**
+     * The width of the viewport.
+     * @return the width in pixels, or NaN if it is given by the document
+     */
+    public double viewportWidth() {
+        return viewportWidth;
+    }
+
+    /**
+     * The height of the viewport.
+     * @return the height in pixels, or NaN if it is given by the document
+     */
+    public double viewportHeight() {
+        return viewportHeight;
+    }
+
+    // the CSS resolution if there is no Screen, e.g. the toolkit isn't running
+    private static double screenDpi() {
+        if (Platform.isFxApplicationThread()) {
+            return primaryScreenDpi();
+        }
+        // Screen must first be used on the FX thread, and runLater fails if
+        // the toolkit isn't running
+        FutureTask<Double> task = new FutureTask<>(SvgUnitContext::primaryScreenDpi);
+        try {
+            Platform.runLater(task);
+            return task.get(SCREEN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException | ExecutionException | TimeoutException ex) {
+            LOGGER.log(Level.FINE, "No Screen for the resolution", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return CSS.dpi;
+    }
+
+    private static double primaryScreenDpi() {
+        try {
+            Screen screen = Screen.getPrimary(); // could be wrong screen
+            if (screen != null && screen.getDpi() > 0) {
+                return screen.getDpi();
+            }
+        } catch (RuntimeException | LinkageError ex) {
+            LOGGER.log(Level.FINE, "No Screen for the resolution", ex);
+        }
+        return CSS.dpi;
+    }
+
+    private Font font() {
+        return font != null ? font : Font.getDefault();
+    }
+
+    private static double measureEx(Font font) {
+        Text t = new Text("x");
+        t.setFont(font);
+        t.setBoundsType(TextBoundsType.VISUAL);
+        return t.getBoundsInLocal().getHeight();
+    }
+
+    @Override
+    public String toString() {
+        return "SvgUnitContext[dpi="+dpi+", font="+font+", em="+em+", ex="+ex
+                +", viewport="+viewportWidth+"x"+viewportHeight+']';
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import com.analogideas.fxsvg.SvgLazyGroup;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.text.Font;
+
+/**
+ * Writes and reads parsed templates in a compact binary form, so an image
+ * can be loaded without parsing XML, colors or path data.
+ * <p>
+ * The format is a 16 byte header followed by the payload, all big-endian:
+ * <pre>
+ * int   magic 'FXSV'
+ * short version
+ * short flags (0)
+ * int   payload length
+ * int   CRC32 of the payload
+ * </pre>
+ * The payload has a table of the distinct Strings, a table of the distinct
+ * Paints, a table of the compiled paths, the id of the image and then the
+ * element tree, which refers to the tables by index.
+ *
+ * @author scott
+ */
+public final class SvgBinaryCodec {
+
+    public static final int MAGIC = 0x46585356; // FXSV
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+
+    private static final byte GROUP = 0;
+    private static final byte CLIP = 1;
+    private static final byte NODE = 2;
+    // a GROUP with a lazy policy, followed by the ordinal of the policy
+    private static final byte LAZY_GROUP = 3;
+    // a use, followed by its element the first time the element is used and
+    // by the index of the element after that
+    private static final byte USE = 4;
+
+    private static final byte COLOR = 0;
+    private static final byte LINEAR = 1;
+    private static final byte RADIAL = 2;
+
+    private static final int NONE = -1;
+
+    /**
+     * A decoded image.
+     * @param id the id of the root Node
+     * @param root the template of the image
+     */
+    public record Image(String id, SvgGroup root) {}
+
+    private SvgBinaryCodec() {
+    }
+
+    /**
+     * Encodes an image, including the header.
+     * @param id the id of the root Node
+     * @param root the template of the image
+     * @return the encoded image
+     * @throws IllegalArgumentException if the image has elements that can't
+     * be encoded, such as those created by extensions
+     */
+    public static byte[] encode(String id, SvgGroup root) {
+        try {
+            Encoder encoder = new Encoder();
+            byte[] tree = encoder.tree(id, root);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(tree.length + 1024);
+            encoder.tables(new DataOutputStream(payload));
+            payload.write(tree);
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+            out.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                    .putInt(bytes.length).putInt((int) crc.getValue())
+                    .put(bytes);
+            return out.array();
+        } catch (IOException ex) {
+            // not possible when writing to memory
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Decodes an image starting at the position of the buffer.  The position
+     * is moved past the image.
+     * @param buffer the encoded image, e.g. a memory mapped file
+     * @return the image
+     * @throws StreamCorruptedException if the buffer doesn't hold an image
+     * of a supported version, or the checksum doesn't match
+     */
+    public static Image decode(ByteBuffer buffer) throws StreamCorruptedException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(buffer.position()) != MAGIC) {
+            throw new StreamCorruptedException("Not a binary SVG image");
+        }
+        ByteBuffer header = buffer.slice(buffer.position(), HEADER_SIZE);
+        header.getInt();
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported binary SVG version: " + version);
+        }
+        header.getShort();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > buffer.remaining() - HEADER_SIZE) {
+            throw new StreamCorruptedException("Truncated binary SVG image");
+        }
+        ByteBuffer payload = buffer.slice(buffer.position() + HEADER_SIZE, length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new StreamCorruptedException("Checksum error in binary SVG image");
+        }
+        try {
+            Image image = new Decoder(payload).image();
+            buffer.position(buffer.position() + HEADER_SIZE + length);
+            return image;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            StreamCorruptedException e = new StreamCorruptedException("Bad binary SVG image");
+            e.initCause(ex);
+            throw e;
+        }
+    }
+
+    private static final class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<Paint, Integer> paints = new LinkedHashMap<>();
+        private final Map<SvgPathData, Integer> paths = new IdentityHashMap<>();
+        private final List<SvgPathData> pathList = new ArrayList<>();
+        private final Map<SvgElement, Integer> used = new IdentityHashMap<>();
+
+        // the tree is written first so the tables are complete
+        byte[] tree(String id, SvgGroup root) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(string(id));
+            element(out, root);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        void tables(DataOutputStream out) throws IOException {
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+            out.writeInt(paints.size());
+            for (Paint p : paints.keySet()) {
+                paint(out, p);
+            }
+            out.writeInt(pathList.size());
+            for (SvgPathData p : pathList) {
+                byte[] commands = p.commandsArray();
+                float[] coords = p.coordsArray();
+                out.writeInt(commands.length);
+                out.write(commands);
+                out.writeInt(coords.length);
+                for (float f : coords) {
+                    out.writeFloat(f);
+                }
+            }
+            out.flush();
+        }
+
+        private int string(String s) {
+            return s == null ? NONE : strings.computeIfAbsent(s, k -> strings.size());
+        }
+
+        private int paint(Paint p) {
+            return p == null ? NONE : paints.computeIfAbsent(p, k -> paints.size());
+        }
+
+        private int path(SvgPathData p) {
+            Integer index = paths.get(p);
+            if (index == null) {
+                index = pathList.size();
+                paths.put(p, index);
+                pathList.add(p);
+            }
+            return index;
+        }
+
+        private void element(DataOutputStream out, SvgElement e) throws IOException {
+            if (e.customizers != null) {
+                throw new IllegalArgumentException("Elements changed by extensions can't be encoded");
+            }
+            if (e instanceof SvgClip) {
+                out.writeByte(CLIP);
+            } else if (e instanceof SvgGroup g && g.lazy != SvgLazyGroup.Policy.EAGER) {
+                out.writeByte(LAZY_GROUP);
+                out.writeByte(g.lazy.ordinal());
+            } else if (e instanceof SvgGroup) {
+                out.writeByte(GROUP);
+            } else if (e instanceof SvgNode n) {
+                out.writeByte(NODE);
+                out.writeByte(n.kind.ordinal());
+            } else if (e instanceof SvgUse) {
+                out.writeByte(USE);
+            } else {
+                throw new IllegalArgumentException("Can't encode a " + e.getClass().getName());
+            }
+            out.writeInt(string(e.id));
+            out.writeDouble(e.opacity);
+            doubles(out, e.transform);
+            out.writeBoolean(e.clip != null);
+            if (e.clip != null) {
+                element(out, e.clip);
+            }
+            if (e instanceof SvgGroup g) {
+                out.writeInt(g.children.size());
+                for (SvgElement child : g.children) {
+                    element(out, child);
+                }
+            } else if (e instanceof SvgUse u) {
+                use(out, u.target);
+            } else {
+                node(out, (SvgNode) e);
+            }
+        }
+
+        // the element is written once, so it is shared again when read
+        private void use(DataOutputStream out, SvgElement target) throws IOException {
+            out.writeBoolean(target != null);
+            if (target != null) {
+                Integer index = used.get(target);
+                if (index != null) {
+                    out.writeInt(index);
+                } else {
+                    out.writeInt(NONE);
+                    element(out, target);
+                    used.put(target, used.size());
+                }
+            }
+        }
+
+        private void node(DataOutputStream out, SvgNode n) throws IOException {
+            out.writeBoolean(n.fillSet);
+            out.writeBoolean(n.pathElements);
+            out.writeInt(paint(n.fill));
+            out.writeInt(paint(n.stroke));
+            out.writeDouble(n.strokeWidth);
+            out.writeDouble(n.strokeMiterLimit);
+            out.writeByte(n.strokeLineCap == null ? NONE : n.strokeLineCap.ordinal());
+            out.writeByte(n.strokeLineJoin == null ? NONE : n.strokeLineJoin.ordinal());
+            out.writeByte(n.fillRule == null ? NONE : n.fillRule.ordinal());
+            doubles(out, n.strokeDashArray);
+            switch (n.kind) {
+                case PATH -> out.writeInt(path(n.path));
+                case POLYGON, POLYLINE -> doubles(out, n.points);
+                case LINE -> write(out, n.x1, n.y1, n.x2, n.y2);
+                case RECT -> write(out, n.x, n.y, n.width, n.height, n.rx, n.ry);
+                case CIRCLE -> write(out, n.cx, n.cy, n.r);
+                case ELLIPSE -> write(out, n.cx, n.cy, n.rx, n.ry);
+                case TEXT -> {
+                    write(out, n.x, n.y);
+                    out.writeInt(string(n.text));
+                    out.writeInt(string(n.font != null ? n.font.getFamily() : null));
+                    out.writeDouble(n.font != null ? n.font.getSize() : 0.0);
+                }
+            }
+        }
+
+        private static void write(DataOutputStream out, double... values) throws IOException {
+            for (double v : values) {
+                out.writeDouble(v);
+            }
+        }
+
+        // null is written as a length of -1
+        private static void doubles(DataOutputStream out, double[] values) throws IOException {
+            if (values == null) {
+                out.writeInt(NONE);
+            } else {
+                out.writeInt(values.length);
+                write(out, values);
+            }
+        }
+
+        private static void paint(DataOutputStream out, Paint p) throws IOException {
+            if (p instanceof Color c) {
+                out.writeByte(COLOR);
+                color(out, c);
+            } else if (p instanceof LinearGradient g) {
+                out.writeByte(LINEAR);
+                write(out, g.getStartX(), g.getStartY(), g.getEndX(), g.getEndY());
+                out.writeBoolean(g.isProportional());
+                out.writeByte(g.getCycleMethod().ordinal());
+                stops(out, g.getStops());
+            } else if (p instanceof RadialGradient g) {
+                out.writeByte(RADIAL);
+                write(out, g.getFocusAngle(), g.getFocusDistance(), g.getCenterX(), g.getCenterY(), g.getRadius());
+                out.writeBoolean(g.isProportional());
+                out.writeByte(g.getCycleMethod().ordinal());
+                stops(out, g.getStops());
+            } else {
+                throw new IllegalArgumentException("Can't encode a " + p.getClass().getName());
+            }
+        }
+
+        private static void stops(DataOutputStream out, List<Stop> stops) throws IOException {
+            out.writeInt(stops.size());
+            for (Stop s : stops) {
+                out.writeDouble(s.getOffset());
+                color(out, s.getColor());
+            }
+        }
+
+        private static void color(DataOutputStream out, Color c) throws IOException {
+            out.writeFloat((float) c.getRed());
+            out.writeFloat((float) c.getGreen());
+            out.writeFloat((float) c.getBlue());
+            out.writeFloat((float) c.getOpacity());
+        }
+    }
+
+    private static final class Decoder {
+        private static final SvgNode.Kind[] KINDS = SvgNode.Kind.values();
+        private static final SvgLazyGroup.Policy[] POLICIES = SvgLazyGroup.Policy.values();
+        private static final CycleMethod[] CYCLES = CycleMethod.values();
+        private static final StrokeLineCap[] CAPS = StrokeLineCap.values();
+        private static final StrokeLineJoin[] JOINS = StrokeLineJoin.values();
+        private static final FillRule[] RULES = FillRule.values();
+
+        private final ByteBuffer in;
+        private String[] strings;
+        private Paint[] paints;
+        private SvgPathData[] paths;
+        private final List<SvgElement> used = new ArrayList<>();
+
+        Decoder(ByteBuffer in) {
+            this.in = in;
+        }
+
+        Image image() {
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] b = new byte[count()];
+                in.get(b);
+                strings[i] = new String(b, StandardCharsets.UTF_8);
+            }
+            paints = new Paint[count()];
+            for (int i = 0; i < paints.length; i++) {
+                paints[i] = paint();
+            }
+            paths = new SvgPathData[count()];
+            for (int i = 0; i < paths.length; i++) {
+                byte[] commands = new byte[count()];
+                in.get(commands);
+                float[] coords = new float[count()];
+                in.asFloatBuffer().get(coords);
+                in.position(in.position() + coords.length * Float.BYTES);
+                paths[i] = new SvgPathData(commands, coords);
+            }
+            String id = string();
+            if (!(element() instanceof SvgGroup root) || root instanceof SvgClip) {
+                throw new IllegalArgumentException("The root must be a group");
+            }
+            return new Image(id, root);
+        }
+
+        private int count() {
+            int n = in.getInt();
+            if (n < 0 || n > in.remaining()) {
+                throw new IllegalArgumentException("Bad count: " + n);
+            }
+            return n;
+        }
+
+        private String string() {
+            int i = in.getInt();
+            return i == NONE ? null : strings[i];
+        }
+
+        private Paint paintRef() {
+            int i = in.getInt();
+            return i == NONE ? null : paints[i];
+        }
+
+        private double[] doubles() {
+            int n = in.getInt();
+            if (n == NONE) {
+                return null;
+            }
+            if (n < 0 || n > in.remaining() / Double.BYTES) {
+                throw new IllegalArgumentException("Bad count: " + n);
+            }
+            double[] values = new double[n];
+            in.asDoubleBuffer().get(values);
+            in.position(in.position() + n * Double.BYTES);
+            return values;
+        }
+
+        private SvgElement element() {
+            byte tag = in.get();
+            SvgElement e = switch (tag) {
+                case GROUP -> new SvgGroup();
+                case CLIP -> new SvgClip();
+                case NODE -> new SvgNode(KINDS[in.get()]);
+                case LAZY_GROUP -> {
+                    SvgGroup g = new SvgGroup();
+                    g.setLazy(POLICIES[in.get()]);
+                    yield g;
+                }
+                case USE -> new SvgUse();
+                default -> throw new IllegalArgumentException("Bad element: " + tag);
+            };
+            e.id = string();
+            e.opacity = in.getDouble();
+            e.transform = doubles();
+            if (in.get() != 0) {
+                e.clip = element();
+            }
+            if (e instanceof SvgGroup g) {
+                int n = count();
+                for (int i = 0; i < n; i++) {
+                    g.children.add(element());
+                }
+            } else if (e instanceof SvgUse u) {
+                if (in.get() != 0) {
+                    int i = in.getInt();
+                    SvgElement target;
+                    if (i == NONE) {
+                        target = element();
+                        used.add(target);
+                    } else {
+                        target = used.get(i);
+                    }
+                    u.setTarget(target);
+                }
+            } else {
+                node((SvgNode) e);
+            }
+            return e;
+        }
+
+        private void node(SvgNode n) {
+            n.fillSet = in.get() != 0;
+            n.pathElements = in.get() != 0;
+            n.fill = paintRef();
+            n.stroke = paintRef();
+            n.strokeWidth = in.getDouble();
+            n.strokeMiterLimit = in.getDouble();
+            byte cap = in.get();
+            n.strokeLineCap = cap == NONE ? null : CAPS[cap];
+            byte join = in.get();
+            n.strokeLineJoin = join == NONE ? null : JOINS[join];
+            byte rule = in.get();
+            n.fillRule = rule == NONE ? null : RULES[rule];
+            n.strokeDashArray = doubles();
+            switch (n.kind) {
+                case PATH -> n.path = paths[in.getInt()];
+                case POLYGON, POLYLINE -> n.points = doubles();
+                case LINE -> {
+                    n.x1 = in.getDouble();
+                    n.y1 = in.getDouble();
+                    n.x2 = in.getDouble();
+                    n.y2 = in.getDouble();
+                }
+                case RECT -> {
+                    n.x = in.getDouble();
+                    n.y = in.getDouble();
+                    n.width = in.getDouble();
+                    n.height = in.getDouble();
+                    n.rx = in.getDouble();
+                    n.ry = in.getDouble();
+                }
+                case CIRCLE -> {
+                    n.cx = in.getDouble();
+                    n.cy = in.getDouble();
+                    n.r = in.getDouble();
+                }
+                case ELLIPSE -> {
+                    n.cx = in.getDouble();
+                    n.cy = in.getDouble();
+                    n.rx = in.getDouble();
+                    n.ry = in.getDouble();
+                }
+                case TEXT -> {
+                    n.x = in.getDouble();
+                    n.y = in.getDouble();
+                    n.text = string();
+                    String family = string();
+                    double size = in.getDouble();
+                    if (family != null) {
+                        n.font = Font.font(family, size);
+                    }
+                }
+            }
+        }
+
+        private Paint paint() {
+            byte type = in.get();
+            return switch (type) {
+                case COLOR -> color();
+                case LINEAR -> {
+                    double sx = in.getDouble(), sy = in.getDouble(), ex = in.getDouble(), ey = in.getDouble();
+                    boolean proportional = in.get() != 0;
+                    CycleMethod cycle = CYCLES[in.get()];
+                    yield SvgPaints.intern(new LinearGradient(sx, sy, ex, ey, proportional, cycle, stops()));
+                }
+                case RADIAL -> {
+                    double angle = in.getDouble(), distance = in.getDouble();
+                    double cx = in.getDouble(), cy = in.getDouble(), r = in.getDouble();
+                    boolean proportional = in.get() != 0;
+                    CycleMethod cycle = CYCLES[in.get()];
+                    yield SvgPaints.intern(new RadialGradient(angle, distance, cx, cy, r, proportional, cycle, stops()));
+                }
+                default -> throw new IllegalArgumentException("Bad paint: " + type);
+            };
+        }
+
+        private List<Stop> stops() {
+            int n = count();
+            List<Stop> stops = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                double offset = in.getDouble();
+                stops.add(new Stop(offset, color()));
+            }
+            return stops;
+        }
+
+        private Color color() {
+            return SvgPaints.intern(Color.color(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat()));
+        }
+    }
+}
@@ -15,48 +15,21 @@
  */
 package com.analogideas.fxsvg.impl;
 
-import javafx.scene.Group;
-
 /**
+ * Template for a clipPath.  A new clip Node is created for every Node that
+ * references it, since JavaFX doesn't allow a clip to be shared.
  *
  * @author scott
  */
-public class SvgClip implements SvgContainer, SvgObjWithId {
-    
-    Group clip;
-
-    public SvgClip(Group clip) {
-        this.clip = clip;
-    }
-
-    public Group clip() {
-        return clip;
-    }
-
-    @Override
-    public void id(String id) {
-        clip().setId(id);
-    }
-
-    @Override
-    public String id() {
-        return clip.getId();
-    }
-
-    @Override
-    public Object obj() {
-        return clip();
-    }
+public class SvgClip extends SvgGroup {
 
     @Override
     public void add(SvgData svgObj) {
-        if (svgObj instanceof SvgNode n) {
-            clip().getChildren().add(n.node());
-        } else if (svgObj instanceof SvgGroup g) {
-            clip().getChildren().add(g.group());
+        if (svgObj instanceof SvgElement) {
+            super.add(svgObj);
         } else {
             throw new RuntimeException("Can't add a " + svgObj.getClass().getName() + " to a clipPath.");
         }
     }
-    
+
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.function.Supplier;
+import javafx.scene.Node;
+
+/**
+ * Template for an element that is handled by an application supplied
+ * extension.
+ *
+ * @author scott
+ */
+public class SvgCustom extends SvgElement {
+
+    private final Supplier<? extends Node> factory;
+
+    public SvgCustom(Supplier<? extends Node> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    double[] localBounds() {
+        return INFINITE_BOUNDS;
+    }
+
+    @Override
+    Node newNode(boolean withId) {
+        Node node = factory.get();
+        applyTo(node, withId);
+        return node;
+    }
+
+}
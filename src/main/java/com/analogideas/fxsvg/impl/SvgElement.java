@@ -0,0 +1,322 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import javafx.scene.Node;
+import javafx.scene.transform.Affine;
+
+/**
+ * Template for a renderable SVG element. The properties are filled in while
+ * the SVG is parsed and are not changed after that, so a single template can
+ * be shared between threads and used to create any number of Nodes.
+ *
+ * @author scott
+ */
+public abstract class SvgElement implements SvgObjWithId {
+
+    String id;
+    double opacity = 1.0;
+    // JavaFX row order: mxx, mxy, tx, myx, myy, ty
+    double[] transform;
+    SvgElement clip;
+    // from attribute extensions, applied to every new Node
+    Consumer<? super Node>[] customizers;
+    // drawn by a use as well, so it must not be changed by baking
+    boolean shared;
+
+    /**
+     * Creates a new Node hierarchy from this template.
+     * @return a new Node that is not shared with any other caller
+     */
+    public Node newNode() {
+        return newNode(true);
+    }
+
+    /**
+     * Creates a new Node hierarchy from this template.  A use creates the
+     * Node of the element it draws without the id of that element, since
+     * the id belongs to the element.  The use only has its own id.
+     * @param withId false to leave the id of the Node unset
+     * @return a new Node that is not shared with any other caller
+     */
+    abstract Node newNode(boolean withId);
+
+    /**
+     * Estimates the number of bytes retained by this template, including any
+     * child elements.
+     * @return the estimated size in bytes
+     */
+    public long weight() {
+        long w = 48;
+        if (transform != null) {
+            w += 64;
+        }
+        if (clip != null) {
+            w += clip.weight();
+        }
+        if (customizers != null) {
+            w += 16 + customizers.length * 4L;
+        }
+        return w;
+    }
+
+    /**
+     * Counts the Nodes created by {@link #newNode()}, including the clip and
+     * child elements.
+     * @return the number of Nodes
+     */
+    public int nodeCount() {
+        return clip != null ? 1 + clip.nodeCount() : 1;
+    }
+
+    /**
+     * The bounds of the Node created by {@link #newNode()} in the coordinates
+     * of its parent, including the transform, clip and the stroke.  The
+     * bounds of text are estimated from the font size.  Elements from
+     * extensions have infinite bounds since they aren't known.
+     * @return minX, minY, maxX, maxY, or null if nothing is drawn
+     */
+    public double[] bounds() {
+        double[] b = localBounds();
+        if (b != null && clip != null) {
+            b = intersect(b, clip.bounds());
+        }
+        return b == null || transform == null ? b : transformBounds(transform, b);
+    }
+
+    /**
+     * The bounds of the Node without the transform and clip.
+     * @return minX, minY, maxX, maxY, or null if nothing is drawn
+     */
+    abstract double[] localBounds();
+
+    static final double[] INFINITE_BOUNDS = {
+        Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY
+    };
+
+    static boolean isFinite(double[] b) {
+        return Double.isFinite(b[0]) && Double.isFinite(b[1]) && Double.isFinite(b[2]) && Double.isFinite(b[3]);
+    }
+
+    static double[] union(double[] a, double[] b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return new double[] {Math.min(a[0], b[0]), Math.min(a[1], b[1]), Math.max(a[2], b[2]), Math.max(a[3], b[3])};
+    }
+
+    static double[] intersect(double[] a, double[] b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        double[] r = {Math.max(a[0], b[0]), Math.max(a[1], b[1]), Math.min(a[2], b[2]), Math.min(a[3], b[3])};
+        return r[0] <= r[2] && r[1] <= r[3] ? r : null;
+    }
+
+    // the box around the transformed corners
+    static double[] transformBounds(double[] m, double[] b) {
+        if (!isFinite(b)) {
+            return INFINITE_BOUNDS;
+        }
+        double[] r = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < 4; i++) {
+            double x = i < 2 ? b[0] : b[2];
+            double y = (i & 1) == 0 ? b[1] : b[3];
+            double tx = m[0] * x + m[1] * y + m[2];
+            double ty = m[3] * x + m[4] * y + m[5];
+            r[0] = Math.min(r[0], tx);
+            r[1] = Math.min(r[1], ty);
+            r[2] = Math.max(r[2], tx);
+            r[3] = Math.max(r[3], ty);
+        }
+        return r;
+    }
+
+    /**
+     * Creates a copy of this element with less detail, for drawing at a small
+     * scale.  The element is left out if its bounds are smaller than the
+     * minimum area.
+     * @param tolerance how far outlines may move, in the coordinates of the parent
+     * @param minArea the smallest area to keep, in the coordinates of the parent
+     * @return the simplified element, this element if nothing changed, or
+     * null to leave it out
+     */
+    SvgElement simplify(double tolerance, double minArea) {
+        double[] b = bounds();
+        if (b == null || (b[2] - b[0]) * (b[3] - b[1]) < minArea) {
+            return null;
+        }
+        // how much the transform scales areas, a skew is ignored
+        double det = transform != null ? Math.abs(transform[0] * transform[4] - transform[1] * transform[3]) : 1;
+        return det > 0 ? simplified(tolerance / Math.sqrt(det), minArea / det) : this;
+    }
+
+    /**
+     * Simplifies the geometry of this element, see {@link #simplify}.
+     * @param tolerance how far outlines may move, in the coordinates of this element
+     * @param minArea the smallest area to keep, in the coordinates of this element
+     * @return the simplified element, or this element if there is nothing
+     * to simplify
+     */
+    SvgElement simplified(double tolerance, double minArea) {
+        return this;
+    }
+
+    /**
+     * Moves the transforms of this element and its parent into the geometry
+     * where that can be done exactly.  Elements that can't be baked keep a
+     * single flattened transform.
+     * @param parent the combined transform of the parent Groups that have
+     * already been baked, or null for none
+     * @return the element to use in place of this one
+     */
+    SvgElement bake(double[] parent) {
+        transform = concat(parent, transform);
+        return this;
+    }
+
+    /**
+     * Applies a transform to a shared element without changing it, by
+     * wrapping it in a use.
+     * @param parent the transform, or null for none
+     * @return the element to use in place of this one
+     */
+    SvgElement reference(double[] parent) {
+        if (parent == null) {
+            return this;
+        }
+        SvgUse use = new SvgUse();
+        use.target = this;
+        use.transform = parent.clone();
+        return use;
+    }
+
+    // replaces the values with those shared by all images, see SvgInterner
+    void intern() {
+        transform = SvgInterner.doubles(transform);
+        if (clip != null) {
+            clip.intern();
+        }
+    }
+
+    /**
+     * Checks if {@link #bake} would remove all of the transforms.
+     * @param m the combined transform for this element, or null for none
+     * @return true if the transform can be applied to the geometry exactly
+     */
+    boolean bakeable(double[] m) {
+        return m == null;
+    }
+
+    /**
+     * Combines two transforms, the second is applied first.
+     * @param a the outer transform, or null for the identity transform
+     * @param b the inner transform, or null for the identity transform
+     * @return the combined transform, or null if it is the identity transform
+     */
+    static double[] concat(double[] a, double[] b) {
+        if (a == null || b == null) {
+            double[] t = a != null ? a : b;
+            return t == null || isIdentity(t) ? null : t.clone();
+        }
+        double[] r = {
+            a[0] * b[0] + a[1] * b[3],
+            a[0] * b[1] + a[1] * b[4],
+            a[0] * b[2] + a[1] * b[5] + a[2],
+            a[3] * b[0] + a[4] * b[3],
+            a[3] * b[1] + a[4] * b[4],
+            a[3] * b[2] + a[4] * b[5] + a[5]
+        };
+        return isIdentity(r) ? null : r;
+    }
+
+    static boolean isIdentity(double[] t) {
+        return t[0] == 1 && t[1] == 0 && t[2] == 0 && t[3] == 0 && t[4] == 1 && t[5] == 0;
+    }
+
+    // apply the properties common to all Nodes
+    void applyTo(Node node, boolean withId) {
+        if (withId && id != null) {
+            node.setId(id);
+        }
+        if (opacity != 1.0) {
+            node.setOpacity(opacity);
+        }
+        if (transform != null) {
+            double[] t = transform;
+            node.getTransforms().add(new Affine(t[0], t[1], t[2], t[3], t[4], t[5]));
+        }
+        if (clip != null) {
+            node.setClip(clip.newNode(false));
+        }
+        if (customizers != null) {
+            for (Consumer<? super Node> c : customizers) {
+                c.accept(node);
+            }
+        }
+    }
+
+    @Override
+    public void id(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public Object obj() {
+        return this;
+    }
+
+    public void setOpacity(double opacity) {
+        this.opacity = opacity;
+    }
+
+    /**
+     * Sets the transform, or applies it after the existing transform if
+     * there is one.
+     * @param t the transform in JavaFX row order: mxx, mxy, tx, myx, myy, ty
+     */
+    public void setTransform(double[] t) {
+        transform = concat(transform, t);
+    }
+
+    public void setClip(SvgElement clip) {
+        this.clip = clip;
+    }
+
+    /**
+     * Adds a function that is called with every Node created for this
+     * element, after the other properties have been set.
+     * @param customizer changes the Node
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void addCustomizer(Consumer<? super Node> customizer) {
+        if (customizers == null) {
+            customizers = new Consumer[] {customizer};
+        } else {
+            customizers = Arrays.copyOf(customizers, customizers.length + 1);
+            customizers[customizers.length - 1] = customizer;
+        }
+    }
+
+}
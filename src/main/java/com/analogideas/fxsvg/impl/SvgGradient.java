@@ -0,0 +1,232 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.Stop;
+
+/**
+ * Template for a gradient.  The attributes are kept as they were read, and
+ * the Paint is made the first time it is needed, once the whole document
+ * has been read.  Attributes that aren't set are inherited through the
+ * chain of hrefs: the stops, units, spread method and transform from any
+ * gradient, and the geometry only from gradients of the same kind.  A chain
+ * that refers back to itself ends where it would repeat.
+ * <p>
+ * The Paint is shared by every shape that uses the gradient, and with the
+ * other documents through {@link SvgPaints}.
+ *
+ * @author scott
+ */
+public abstract class SvgGradient implements SvgContainer, SvgObjWithId {
+
+    private static final Logger LOGGER = Logger.getLogger(SvgGradient.class.getName());
+
+    private final Map<String, Object> defs;
+    final List<Stop> stops = new ArrayList<>();
+    String id;
+    // null when not set, so it can be inherited
+    CycleMethod cycle;
+    Boolean userSpace;
+    boolean hasTransform;
+    double[] transform;
+    String href;
+    private Paint paint;
+    private boolean resolved;
+
+    protected SvgGradient(Map<String, Object> defs) {
+        this.defs = defs; // to resolve hrefs
+    }
+
+    @Override
+    public void add(SvgData svgObj) {
+        if (svgObj instanceof SvgStop svgStop) {
+            stops.add((Stop) svgStop.obj());
+        }
+    }
+
+    @Override
+    public void id(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String id() {
+        return id;
+    }
+
+    // the template, the Paint is made by paint()
+    @Override
+    public Object obj() {
+        return this;
+    }
+
+    /**
+     * The Paint for this gradient.  It is made on the first call, so the
+     * gradients it refers to must have been read by then.
+     * @return the Paint
+     */
+    public Paint paint() {
+        if (!resolved) {
+            paint = resolve();
+            resolved = true;
+        }
+        return paint;
+    }
+
+    /**
+     * Checks if the gradients this one refers to have been read, so the
+     * Paint can be made.
+     * @return false if a gradient in the chain of hrefs isn't in the defs yet
+     */
+    public boolean ready() {
+        Set<SvgGradient> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SvgGradient g = this; g.href != null && visited.add(g);) {
+            if (!(defs.get(g.href) instanceof SvgGradient next)) {
+                return false;
+            }
+            g = next;
+        }
+        return true;
+    }
+
+    private Paint resolve() {
+        List<SvgGradient> chain = chain();
+        List<Stop> s = null;
+        CycleMethod c = null;
+        Boolean u = null;
+        boolean found = false;
+        double[] t = null;
+        for (SvgGradient g : chain) {
+            if (s == null && !g.stops.isEmpty()) {
+                s = g.stops;
+            }
+            if (c == null) {
+                c = g.cycle;
+            }
+            if (u == null) {
+                u = g.userSpace;
+            }
+            if (!found && g.hasTransform) {
+                found = true;
+                t = g.transform;
+            }
+        }
+        return SvgPaints.intern(build(chain, s != null ? s : List.of(),
+                u == null || !u, c != null ? c : CycleMethod.NO_CYCLE, t));
+    }
+
+    // this gradient followed by the ones it inherits from
+    private List<SvgGradient> chain() {
+        List<SvgGradient> chain = new ArrayList<>();
+        Set<SvgGradient> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SvgGradient g = this; g != null;) {
+            if (!visited.add(g)) {
+                String repeated = g.id;
+                LOGGER.log(Level.WARNING, () -> "Gradient \""+id+"\" refers back to \""+repeated+'"');
+                break;
+            }
+            chain.add(g);
+            if (g.href == null) {
+                break;
+            }
+            String ref = g.href;
+            Object next = defs.get(ref);
+            if (next instanceof SvgGradient n) {
+                g = n;
+            } else {
+                LOGGER.log(Level.WARNING, () -> "No gradient for href \""+ref+'"');
+                g = null;
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Makes the Paint from the attributes inherited through the chain.
+     * @param chain this gradient followed by the ones it inherits from
+     * @param stops the stops
+     * @param proportional false if the gradientUnits are userSpaceOnUse
+     * @param cycle the spread method
+     * @param transform the gradientTransform in JavaFX row order, or null
+     * @return the Paint
+     */
+    abstract Paint build(List<SvgGradient> chain, List<Stop> stops, boolean proportional,
+            CycleMethod cycle, double[] transform);
+
+    // the first value of the attribute set on a gradient of the given kind
+    static <T extends SvgGradient> double inherit(List<SvgGradient> chain, Class<T> kind,
+            ToDoubleFunction<T> attribute, double fallback) {
+        for (SvgGradient g : chain) {
+            if (kind.isInstance(g)) {
+                double v = attribute.applyAsDouble(kind.cast(g));
+                if (!Double.isNaN(v)) {
+                    return v;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    // a point moved by a transform in JavaFX row order, which may be null
+    static double[] transform(double[] t, double x, double y) {
+        if (t == null) {
+            return new double[] {x, y};
+        }
+        return new double[] {t[0] * x + t[1] * y + t[2], t[3] * x + t[4] * y + t[5]};
+    }
+
+    public void setCycleMethod(CycleMethod cycle) {
+        this.cycle = cycle;
+    }
+
+    /**
+     * Sets the gradientUnits.
+     * @param userSpace true for userSpaceOnUse, false for objectBoundingBox
+     */
+    public void setUserSpace(boolean userSpace) {
+        this.userSpace = userSpace;
+    }
+
+    /**
+     * Sets the gradientTransform.
+     * @param transform the transform in JavaFX row order, or null for the
+     * identity
+     */
+    public void setTransform(double[] transform) {
+        this.transform = transform;
+        this.hasTransform = true;
+    }
+
+    public void setHref(String href) {
+        this.href = href;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"[id="+id+", href="+href+", stops="+stops.size()+']';
+    }
+}
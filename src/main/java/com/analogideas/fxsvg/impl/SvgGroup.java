@@ -15,44 +15,351 @@
  */
 package com.analogideas.fxsvg.impl;
 
+import com.analogideas.fxsvg.SvgLazyGroup;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import javafx.geometry.BoundingBox;
 import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 
 /**
  *
  * @author scott
  */
-public class SvgGroup implements SvgContainer, SvgObjWithId {
-    
-    Group group = new Group();
+public class SvgGroup extends SvgElement implements SvgContainer {
 
-    public Group group() {
-        return group;
+    final List<SvgElement> children = new ArrayList<>();
+    SvgLazyGroup.Policy lazy = SvgLazyGroup.Policy.EAGER;
+    // of the children, computed when first needed
+    private volatile double[] childBounds;
+    private static final double[] NO_BOUNDS = {};
+
+    public List<SvgElement> children() {
+        return Collections.unmodifiableList(children);
     }
 
     @Override
     public void add(SvgData svgObj) {
-        if (svgObj instanceof SvgNode n) {
-            group().getChildren().add(n.node());
-        } else if (svgObj instanceof SvgGroup g) {
-            group().getChildren().add(g.group());
+        if (svgObj instanceof SvgElement e) {
+            children.add(e);
         } else {
             throw new RuntimeException("Can't add a " + svgObj.getClass().getName() + " to a Group.");
         }
     }
 
     @Override
-    public void id(String id) {
-        group().setId(id);
+    Node newNode(boolean withId) {
+        return group(withId);
+    }
+
+    /**
+     * Sets whether the children are created when the Group is first visible.
+     * @param lazy {@link SvgLazyGroup.Policy#EAGER} for a plain Group
+     */
+    public void setLazy(SvgLazyGroup.Policy lazy) {
+        this.lazy = lazy;
+    }
+
+    @Override
+    double[] localBounds() {
+        double[] b = childBounds;
+        if (b == null) {
+            double[] u = null;
+            for (SvgElement child : children) {
+                u = union(u, child.bounds());
+            }
+            childBounds = b = u != null ? u : NO_BOUNDS;
+        }
+        return b == NO_BOUNDS ? null : b;
+    }
+
+    @Override
+    public long weight() {
+        long w = super.weight() + 24 + children.size() * 4L;
+        for (SvgElement child : children) {
+            w += child.weight();
+        }
+        return w;
     }
 
     @Override
-    public String id() {
-        return group().getId();
+    public int nodeCount() {
+        int n = super.nodeCount();
+        for (SvgElement child : children) {
+            n += child.nodeCount();
+        }
+        return n;
+    }
+
+    /**
+     * Moves the transforms of this Group and all of its descendants into the
+     * geometry of the Shapes where that can be done exactly.  Shapes that
+     * can't be changed exactly, such as a circle under a skew, text or a
+     * Shape with a gradient, get a single Affine transform instead of a
+     * chain of transforms.  A Group keeps a single Affine if any of its
+     * descendants can't be baked, or if it has a clip since the clip is in
+     * the same coordinates as the children.  Elements that are drawn by a
+     * use keep their transforms, since they are shared.
+     * <p>
+     * This changes the template, it must be done before it is shared.
+     */
+    public void bakeTransforms() {
+        bake(null);
+    }
+
+    @Override
+    SvgElement bake(double[] parent) {
+        double[] m = concat(parent, transform);
+        if (m != null && !bakeable(m)) {
+            // one transform here rather than one for each child
+            transform = m;
+            m = null;
+        } else {
+            transform = null;
+        }
+        for (int i = 0; i < children.size(); i++) {
+            SvgElement child = children.get(i);
+            children.set(i, child.shared ? child.reference(m) : child.bake(m));
+        }
+        return this;
+    }
+
+    @Override
+    void intern() {
+        super.intern();
+        for (SvgElement child : children) {
+            child.intern();
+        }
+    }
+
+    @Override
+    boolean bakeable(double[] m) {
+        if (m == null) {
+            return true;
+        }
+        if (clip != null || customizers != null) {
+            // the clip is in the same coordinates as the children
+            return false;
+        }
+        for (SvgElement child : children) {
+            if (child.shared || !child.bakeable(concat(m, child.transform))) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Creates a copy of this Group with simplified paths, polygons and
+     * polylines, and without the elements that are too small to see.
+     * The template isn't changed, elements that are the same are shared.
+     * @param tolerance how far outlines may move, in the coordinates of this Group
+     * @param minArea elements with smaller bounds are left out, in the
+     * coordinates of this Group
+     * @return the simplified Group, or this Group if nothing changed
+     * @see SvgPathData#simplify(double)
+     */
     @Override
-    public Object obj() {
-        return group();
+    public SvgGroup simplified(double tolerance, double minArea) {
+        List<SvgElement> simplified = new ArrayList<>(children.size());
+        boolean changed = false;
+        for (SvgElement child : children) {
+            SvgElement s = child.simplify(tolerance, minArea);
+            changed |= s != child;
+            if (s != null) {
+                simplified.add(s);
+            }
+        }
+        if (!changed) {
+            return this;
+        }
+        SvgGroup copy = new SvgGroup();
+        copy.id = id;
+        copy.opacity = opacity;
+        copy.transform = transform;
+        copy.clip = clip;
+        copy.customizers = customizers;
+        copy.lazy = lazy;
+        copy.children.addAll(simplified);
+        return copy;
+    }
+
+    /**
+     * Creates a new Group from this template.
+     * @return a new Group
+     */
+    public Group group() {
+        return group(true);
+    }
+
+    private Group group(boolean withId) {
+        Group group = null;
+        if (lazy != SvgLazyGroup.Policy.EAGER) {
+            // the children are only known to be off screen if they have bounds
+            double[] b = localBounds();
+            if (b != null && isFinite(b)) {
+                group = new SvgLazyGroup(new BoundingBox(b[0], b[1], b[2] - b[0], b[3] - b[1]),
+                        this::childNodes, lazy == SvgLazyGroup.Policy.RELEASABLE);
+            }
+        }
+        if (group == null) {
+            group = new Group(childNodes());
+        }
+        applyTo(group, withId);
+        return group;
+    }
+
+    /**
+     * Finds the bounds of the Nodes in a Group created by {@link #group()}
+     * from this template, computed from the template so no Node has to
+     * compute its bounds.  The Shapes are reported, and lazy Groups and uses
+     * as a whole.  The bounds include the transforms and clips of the Groups
+     * between them and the given Group.  Nodes created by extensions aren't
+     * reported since their bounds aren't known.
+     * @param group a Group created from this template
+     * @param action called with each Node and its minX, minY, maxX, maxY in
+     * the local coordinates of the given Group
+     */
+    public void nodeBounds(Group group, BiConsumer<Node, double[]> action) {
+        nodeBounds(group, null, null, action);
     }
-    
+
+    private void nodeBounds(Parent parent, double[] m, double[] clip, BiConsumer<Node, double[]> action) {
+        List<Node> nodes = parent.getChildrenUnmodifiable();
+        if (nodes.size() != children.size()) {
+            // not from this template
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            SvgElement e = children.get(i);
+            Node node = nodes.get(i);
+            double[] t = concat(m, e.transform);
+            double[] c = clip;
+            if (e.clip != null) {
+                double[] b = e.clip.bounds();
+                b = b == null || t == null ? b : transformBounds(t, b);
+                c = c == null ? b : intersect(c, b);
+                if (b == null || c == null) {
+                    continue; // clipped away
+                }
+            }
+            double[] b;
+            if (e instanceof SvgGroup g && !(node instanceof SvgLazyGroup) && node instanceof Parent p) {
+                g.nodeBounds(p, t, c, action);
+                continue;
+            } else if (e instanceof SvgGroup || e instanceof SvgNode || e instanceof SvgUse) {
+                b = e.localBounds();
+            } else {
+                continue;
+            }
+            if (b != null && t != null) {
+                b = transformBounds(t, b);
+            }
+            if (b != null && c != null) {
+                b = intersect(b, c);
+            }
+            if (b != null) {
+                action.accept(node, b);
+            }
+        }
+    }
+
+    /**
+     * Finds the elements with an id, with the position of their Node in a
+     * Group created by {@link #group()}.  The position is the index of each
+     * child on the way from the Group to the Node.  The elements drawn by a
+     * use are reported for each use.  Elements in clips aren't reported
+     * since they aren't children.
+     * @param action called with each id and position, in document order
+     */
+    public void idPaths(BiConsumer<String, int[]> action) {
+        idPaths(new int[0], action);
+    }
+
+    private void idPaths(int[] path, BiConsumer<String, int[]> action) {
+        for (int i = 0; i < children.size(); i++) {
+            SvgElement e = children.get(i);
+            int[] p = Arrays.copyOf(path, path.length + 1);
+            p[path.length] = i;
+            if (e.id != null) {
+                action.accept(e.id, p);
+            }
+            if (e instanceof SvgUse u && u.target != null) {
+                // the Node of the element, or a Group with it
+                e = u.target;
+                p = u.wraps() ? Arrays.copyOf(p, p.length + 1) : p;
+                if (e.id != null) {
+                    action.accept(e.id, p);
+                }
+            }
+            if (e instanceof SvgGroup g) {
+                g.idPaths(p, action);
+            }
+        }
+    }
+
+    /**
+     * Finds the bounds of the Shapes and uses of this template, with the id
+     * of the element or of the closest Group with an id.  A use without an
+     * id has the id of the element it uses.  The bounds are the same as
+     * those of {@link #nodeBounds}, but the Shapes in lazy Groups are
+     * reported one by one.  Shapes without an id of their own or from a
+     * Group aren't reported.
+     * @param action called with each id and the minX, minY, maxX, maxY of
+     * the Shape in the local coordinates of a Group created from this
+     * template, in document order
+     */
+    public void idBounds(BiConsumer<String, double[]> action) {
+        idBounds(null, null, null, action);
+    }
+
+    private void idBounds(String id, double[] m, double[] clip, BiConsumer<String, double[]> action) {
+        for (SvgElement e : children) {
+            String owner = e.id != null ? e.id : id;
+            if (e.id == null && e instanceof SvgUse u && u.target != null && u.target.id != null) {
+                owner = u.target.id;
+            }
+            double[] t = concat(m, e.transform);
+            double[] c = clip;
+            if (e.clip != null) {
+                double[] b = e.clip.bounds();
+                b = b == null || t == null ? b : transformBounds(t, b);
+                c = c == null ? b : intersect(c, b);
+                if (b == null || c == null) {
+                    continue; // clipped away
+                }
+            }
+            if (e instanceof SvgGroup g) {
+                g.idBounds(owner, t, c, action);
+                continue;
+            }
+            double[] b = owner != null && (e instanceof SvgNode || e instanceof SvgUse) ? e.localBounds() : null;
+            if (b != null && t != null) {
+                b = transformBounds(t, b);
+            }
+            if (b != null && c != null) {
+                b = intersect(b, c);
+            }
+            if (b != null) {
+                action.accept(owner, b);
+            }
+        }
+    }
+
+    /**
+     * Creates new Nodes for the children of this Group.
+     * @return the Nodes, in order
+     */
+    public Node[] childNodes() {
+        Node[] nodes = new Node[children.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = children.get(i).newNode();
+        }
+        return nodes;
+    }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+import javafx.scene.text.Font;
+
+/**
+ * Shares the values in templates between all of the SVG images read by the
+ * process.  Path data, points, transforms, dash arrays, text and fonts
+ * that are equal to a value in another image are replaced with the
+ * instance from that image, so an icon set where many icons have the same
+ * parts only keeps one copy of each.  The values are never changed once
+ * they are in a template, so sharing them is safe.
+ * <p>
+ * The values are held weakly, a value is dropped when no template uses it.
+ * Paints are shared by {@link SvgPaints}.
+ * <p>
+ * This is off unless the system property
+ * {@code com.analogideas.fxsvg.internValues} is true, since looking up the
+ * values costs time when each image is loaded.
+ *
+ * @author scott
+ */
+public final class SvgInterner {
+
+    private static final boolean ENABLED = Boolean.getBoolean("com.analogideas.fxsvg.internValues");
+
+    private static final Table<SvgPathData> PATHS = new Table<>(Object::hashCode, Object::equals);
+    private static final Table<double[]> DOUBLES = new Table<>(Arrays::hashCode, Arrays::equals);
+    private static final Table<String> STRINGS = new Table<>(Object::hashCode, Object::equals);
+    private static final Table<Font> FONTS = new Table<>(Object::hashCode, Object::equals);
+
+    private SvgInterner() {
+    }
+
+    /**
+     * Checks if values are shared between images.
+     * @return true if the {@code com.analogideas.fxsvg.internValues} system
+     * property is true
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Replaces the values in a template with the shared instances, if that
+     * is enabled.  This must be done before the template is shared.
+     * @param root the template
+     */
+    public static void intern(SvgGroup root) {
+        if (ENABLED) {
+            root.intern();
+        }
+    }
+
+    /**
+     * The number of shared values that are still used.
+     * @return the number of values
+     */
+    public static int size() {
+        return PATHS.size() + DOUBLES.size() + STRINGS.size() + FONTS.size();
+    }
+
+    static SvgPathData path(SvgPathData path) {
+        return PATHS.intern(path);
+    }
+
+    static double[] doubles(double[] values) {
+        return values == null || values.length == 0 ? values : DOUBLES.intern(values);
+    }
+
+    static String string(String s) {
+        return s == null || s.isEmpty() ? s : STRINGS.intern(s);
+    }
+
+    static Font font(Font font) {
+        return FONTS.intern(font);
+    }
+
+    // a set of weakly held values, found by the equality of the values
+    private static final class Table<T> {
+        private final ToIntFunction<T> hash;
+        private final BiPredicate<T, T> equal;
+        private final Map<Ref<T>, Ref<T>> refs = new HashMap<>();
+        private final ReferenceQueue<T> cleared = new ReferenceQueue<>();
+
+        Table(ToIntFunction<T> hash, BiPredicate<T, T> equal) {
+            this.hash = hash;
+            this.equal = equal;
+        }
+
+        synchronized T intern(T value) {
+            if (value == null) {
+                return null;
+            }
+            expunge();
+            Ref<T> key = new Ref<>(value, hash.applyAsInt(value), this, null);
+            Ref<T> ref = refs.get(key);
+            T shared = ref != null ? ref.get() : null;
+            if (shared != null) {
+                return shared;
+            }
+            if (ref != null) {
+                refs.remove(ref);
+            }
+            ref = new Ref<>(value, key.hash, this, cleared);
+            refs.put(ref, ref);
+            return value;
+        }
+
+        synchronized int size() {
+            expunge();
+            return refs.size();
+        }
+
+        private void expunge() {
+            for (Object r; (r = cleared.poll()) != null;) {
+                refs.remove(r);
+            }
+        }
+    }
+
+    private static final class Ref<T> extends WeakReference<T> {
+        final int hash;
+        final Table<T> table;
+
+        Ref(T value, int hash, Table<T> table, ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.hash = hash;
+            this.table = table;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        // a cleared reference is only equal to itself, so it can be removed
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Ref<?> other) || other.hash != hash) {
+                return false;
+            }
+            T a = get();
+            Object b = other.get();
+            return a != null && b != null && table.equal.test(a, (T) b);
+        }
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+
+/**
+ * Writes the Java source of a class that builds the same Nodes as a
+ * template, with the coordinates and Paints as literals.
+ * <p>
+ * Each element gets its own method and each Paint a constant, so an element
+ * or Paint used more than once, such as a clip or a gradient, is written
+ * once.  Long Strings, paths, point lists and lists of children are split
+ * over several methods to stay within the 64KB limit on the bytecode of a
+ * method.  When the constant pool or the static initializer of the class
+ * would get too big, the methods and constants are spread over nested
+ * classes instead.
+ *
+ * @author scott
+ */
+public final class SvgJavaWriter {
+
+    // characters per String literal, the class file limit is 65535 bytes
+    private static final int MAX_LITERAL = 8192;
+    // path elements or coordinates per method, the limit is 64KB of bytecode
+    private static final int MAX_VALUES = 1000;
+    // estimated constant pool entries per class, the limit is 65535
+    private static final int MAX_CONSTANTS = 30000;
+    // estimated bytes of static initializer per class, the limit is 64KB
+    private static final int MAX_INIT = 40000;
+    // marks both ends of the name of a method or constant, see resolve()
+    private static final char REF = '\u0001';
+
+    private static final String[] IMPORTS = {
+        "javafx.scene.Group",
+        "javafx.scene.Node",
+        "javafx.scene.paint.Color",
+        "javafx.scene.paint.CycleMethod",
+        "javafx.scene.paint.LinearGradient",
+        "javafx.scene.paint.Paint",
+        "javafx.scene.paint.RadialGradient",
+        "javafx.scene.paint.Stop",
+        "javafx.scene.shape.Circle",
+        "javafx.scene.shape.ClosePath",
+        "javafx.scene.shape.CubicCurveTo",
+        "javafx.scene.shape.Ellipse",
+        "javafx.scene.shape.FillRule",
+        "javafx.scene.shape.Line",
+        "javafx.scene.shape.LineTo",
+        "javafx.scene.shape.MoveTo",
+        "javafx.scene.shape.Path",
+        "javafx.scene.shape.PathElement",
+        "javafx.scene.shape.Polygon",
+        "javafx.scene.shape.Polyline",
+        "javafx.scene.shape.QuadCurveTo",
+        "javafx.scene.shape.Rectangle",
+        "javafx.scene.shape.SVGPath",
+        "javafx.scene.shape.StrokeLineCap",
+        "javafx.scene.shape.StrokeLineJoin",
+        "javafx.scene.text.Font",
+        "javafx.scene.text.Text",
+        "javafx.scene.transform.Affine",
+    };
+
+    private final Map<Paint, String> paints = new LinkedHashMap<>();
+    private final Map<String, String> strings = new LinkedHashMap<>();
+    private final Map<SvgElement, String> methods = new IdentityHashMap<>();
+    // for the uses and clips of elements with an id, which don't set it
+    private final Map<SvgElement, String> withoutId = new IdentityHashMap<>();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final List<Part> parts = new ArrayList<>(List.of(new Part()));
+    // the index of the part each method and constant was placed in
+    private final Map<String, Integer> placed = new HashMap<>();
+    // the element being written
+    private final StringBuilder code = new StringBuilder();
+    // methods used by the element being written, placed after it
+    private final List<Unit> helpers = new ArrayList<>();
+    // estimated constant pool entries used by the code being written
+    private int constants;
+    private boolean concatUsed;
+
+    private SvgJavaWriter() {
+    }
+
+    // a class of the output, more than one are written as nested classes
+    private static final class Part {
+        final StringBuilder fields = new StringBuilder();
+        final StringBuilder code = new StringBuilder();
+        int constants;
+        int init;
+    }
+
+    private record Pending(SvgElement element, String name, boolean withId) {
+    }
+
+    private record Unit(String name, String text, int constants) {
+    }
+
+    /**
+     * Writes a class with a {@code newInstance()} method that returns the
+     * same Nodes as {@link SvgGroup#group()}.
+     * @param id the id of the root Node
+     * @param root the template
+     * @param packageName the package of the class, or an empty String
+     * @param className the simple name of the class
+     * @param source describes where the image came from, for a comment
+     * @param out where to write the source
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the template has elements that
+     * were created or changed by extensions, or an element too large to fit
+     * in a class
+     */
+    public static void write(String id, SvgGroup root, String packageName, String className,
+            String source, Appendable out) throws IOException {
+        SvgJavaWriter w = new SvgJavaWriter();
+        String rootMethod = w.ref(w.method(root));
+        while (!w.pending.isEmpty()) {
+            Pending p = w.pending.poll();
+            w.element(p.element(), p.name(), p.withId());
+        }
+
+        out.append("// Generated by fxsvg from ").append(source.replaceAll("[\\r\\n]", " ")).append(", do not edit.\n");
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n");
+        }
+        out.append('\n');
+        for (String i : IMPORTS) {
+            out.append("import ").append(i).append(";\n");
+        }
+        out.append("\n/**\n * Builds the SVG image ").append(source.replace("*/", "*&#47;").replaceAll("[\\r\\n]", " "))
+                .append(".\n */\n");
+        out.append("@SuppressWarnings(\"unused\")\n");
+        out.append("public final class ").append(className).append(" {\n\n");
+        out.append("    /** The id of the root Node. */\n");
+        out.append("    public static final String ID = ").append(w.resolve(w.string(id))).append(";\n\n");
+        boolean nested = w.parts.size() > 1;
+        if (!nested) {
+            out.append(w.resolve(w.parts.get(0).fields));
+        }
+        out.append("\n    private ").append(className).append("() {\n    }\n\n");
+        out.append("    /**\n     * Creates a new instance of the image.\n     * @return a new Group\n     */\n");
+        out.append("    public static Group newInstance() {\n        return ").append(w.resolve(rootMethod)).append("();\n    }\n");
+        if (!nested) {
+            out.append(w.resolve(w.parts.get(0).code));
+        }
+        if (w.concatUsed) {
+            out.append("""
+
+                    private static double[] concat(double[]... parts) {
+                        int n = 0;
+                        for (double[] p : parts) {
+                            n += p.length;
+                        }
+                        double[] r = new double[n];
+                        n = 0;
+                        for (double[] p : parts) {
+                            System.arraycopy(p, 0, r, n, p.length);
+                            n += p.length;
+                        }
+                        return r;
+                    }
+                """);
+        }
+        for (int i = 0; nested && i < w.parts.size(); i++) {
+            Part p = w.parts.get(i);
+            String body = w.resolve(p.fields) + w.resolve(p.code);
+            out.append("\n    private static final class Part").append(String.valueOf(i)).append(" {\n")
+                    .append(body.replaceAll("(?m)^(?=.)", "    ")).append("    }\n");
+        }
+        out.append("}\n");
+    }
+
+    // a reference to a method or constant, which may end up in another part
+    private String ref(String name) {
+        constants += 4;
+        return REF + name + REF;
+    }
+
+    // replaces references with the name, qualified by the part when there are several
+    private String resolve(CharSequence text) {
+        String s = text.toString();
+        StringBuilder sb = new StringBuilder(s.length());
+        int end = 0;
+        for (int start = s.indexOf(REF); start >= 0; start = s.indexOf(REF, end)) {
+            int close = s.indexOf(REF, start + 1);
+            String name = s.substring(start + 1, close);
+            sb.append(s, end, start);
+            if (parts.size() > 1) {
+                sb.append("Part").append(placed.get(name)).append('.');
+            }
+            sb.append(name);
+            end = close + 1;
+        }
+        return sb.append(s, end, s.length()).toString();
+    }
+
+    // adds a method or constant to the last part, or a new one if it doesn't fit
+    private void place(String name, CharSequence text, int unitConstants, boolean field) {
+        int init = field ? 4 * unitConstants + 8 : 0;
+        if (unitConstants > MAX_CONSTANTS || init > MAX_INIT) {
+            throw new IllegalArgumentException("The image is too large to generate, " + name + " doesn't fit in a class");
+        }
+        Part p = parts.get(parts.size() - 1);
+        if (p.constants + unitConstants > MAX_CONSTANTS || p.init + init > MAX_INIT) {
+            p = new Part();
+            parts.add(p);
+        }
+        p.constants += unitConstants;
+        p.init += init;
+        (field ? p.fields : p.code).append(text);
+        placed.put(name, parts.size() - 1);
+    }
+
+    private String method(SvgElement e) {
+        return method(e, true);
+    }
+
+    private String method(SvgElement e, boolean withId) {
+        withId |= e.id == null;
+        Map<SvgElement, String> map = withId ? methods : withoutId;
+        String name = map.get(e);
+        if (name == null) {
+            name = "n" + (methods.size() + withoutId.size());
+            map.put(e, name);
+            pending.add(new Pending(e, name, withId));
+        }
+        return name;
+    }
+
+    private void element(SvgElement e, String name, boolean withId) {
+        if (e.customizers != null) {
+            throw new IllegalArgumentException("Elements changed by extensions can't be generated");
+        }
+        constants = 4;
+        if (e instanceof SvgGroup g) {
+            code.append("\n    private static Group ").append(name).append("() {\n");
+            if (g.children.size() <= MAX_VALUES) {
+                code.append("        Group n = new Group(");
+                for (int i = 0; i < g.children.size(); i++) {
+                    if (i > 0) {
+                        code.append(", ");
+                    }
+                    code.append(ref(method(g.children.get(i)))).append("()");
+                }
+                code.append(");\n");
+            } else {
+                code.append("        Group n = new Group();\n");
+                children(name, g.children);
+            }
+        } else if (e instanceof SvgNode node) {
+            code.append("\n    private static Node ").append(name).append("() {\n");
+            shape(name, node);
+        } else if (e instanceof SvgUse u) {
+            // the method for the element is shared by all of its uses
+            boolean wraps = u.wraps(withId);
+            code.append("\n    private static ").append(wraps ? "Group " : "Node ").append(name).append("() {\n");
+            if (u.target == null) {
+                code.append("        Group n = new Group();\n");
+            } else if (wraps) {
+                code.append("        Group n = new Group(").append(ref(method(u.target, false))).append("());\n");
+            } else {
+                code.append("        Node n = ").append(ref(method(u.target, false))).append("();\n");
+                if (u.transform != null) {
+                    double[] t = u.transform;
+                    code.append("        n.getTransforms().add(0, new Affine(").append(lit(t[0])).append(", ").append(lit(t[1]))
+                            .append(", ").append(lit(t[2])).append(", ").append(lit(t[3])).append(", ").append(lit(t[4]))
+                            .append(", ").append(lit(t[5])).append("));\n");
+                }
+                if (u.opacity != 1.0) {
+                    code.append("        n.setOpacity(n.getOpacity() * ").append(lit(u.opacity)).append(");\n");
+                }
+                code.append("        return n;\n    }\n");
+                finish(name);
+                return;
+            }
+        } else {
+            throw new IllegalArgumentException("Can't generate a " + e.getClass().getName());
+        }
+        if (withId && e.id != null) {
+            code.append("        n.setId(").append(string(e.id)).append(");\n");
+        }
+        if (e.opacity != 1.0) {
+            code.append("        n.setOpacity(").append(lit(e.opacity)).append(");\n");
+        }
+        if (e.transform != null) {
+            double[] t = e.transform;
+            code.append("        n.getTransforms().add(new Affine(").append(lit(t[0])).append(", ").append(lit(t[1]))
+                    .append(", ").append(lit(t[2])).append(", ").append(lit(t[3])).append(", ").append(lit(t[4]))
+                    .append(", ").append(lit(t[5])).append("));\n");
+        }
+        if (e.clip != null) {
+            code.append("        n.setClip(").append(ref(method(e.clip, false))).append("());\n");
+        }
+        code.append("        return n;\n    }\n");
+        finish(name);
+    }
+
+    // places the element and then the methods it uses
+    private void finish(String name) {
+        place(name, code, constants, false);
+        code.setLength(0);
+        for (Unit u : helpers) {
+            place(u.name(), u.text(), u.constants(), false);
+        }
+        helpers.clear();
+    }
+
+    // the children are created in separate methods of up to MAX_VALUES each
+    private void children(String name, List<SvgElement> children) {
+        for (int start = 0, part = 0; start < children.size(); start += MAX_VALUES, part++) {
+            String chunk = name + "c" + part;
+            code.append("        n.getChildren().addAll(").append(ref(chunk)).append("());\n");
+            int saved = constants;
+            constants = 4;
+            StringBuilder sb = new StringBuilder("\n    private static Node[] ").append(chunk).append("() {\n");
+            sb.append("        return new Node[] {\n");
+            for (int i = start; i < Math.min(children.size(), start + MAX_VALUES); i++) {
+                sb.append("            ").append(ref(method(children.get(i)))).append("(),\n");
+            }
+            sb.append("        };\n    }\n");
+            helpers.add(new Unit(chunk, sb.toString(), constants));
+            constants = saved;
+        }
+    }
+
+    private void shape(String name, SvgNode s) {
+        switch (s.kind) {
+            case PATH -> {
+                if (s.pathElements) {
+                    code.append("        Path n = new Path();\n");
+                    pathElements(name, s.path);
+                } else {
+                    code.append("        SVGPath n = new SVGPath();\n");
+                    code.append("        n.setContent(").append(string(s.path.toSvgContent())).append(");\n");
+                }
+                if (s.fillRule != null) {
+                    code.append("        n.setFillRule(FillRule.").append(s.fillRule.name()).append(");\n");
+                }
+            }
+            case POLYGON -> code.append("        Polygon n = new Polygon(").append(doubles(name, s.points)).append(");\n");
+            case POLYLINE -> code.append("        Polyline n = new Polyline(").append(doubles(name, s.points)).append(");\n");
+            case LINE -> code.append("        Line n = new Line(").append(lit(s.x1)).append(", ").append(lit(s.y1))
+                    .append(", ").append(lit(s.x2)).append(", ").append(lit(s.y2)).append(");\n");
+            case RECT -> {
+                code.append("        Rectangle n = new Rectangle(").append(lit(s.x)).append(", ").append(lit(s.y))
+                        .append(", ").append(lit(s.width)).append(", ").append(lit(s.height)).append(");\n");
+                code.append("        n.setArcWidth(").append(lit(s.rx)).append(");\n");
+                code.append("        n.setArcHeight(").append(lit(s.ry)).append(");\n");
+            }
+            case CIRCLE -> code.append("        Circle n = new Circle(").append(lit(s.cx)).append(", ").append(lit(s.cy))
+                    .append(", ").append(lit(s.r)).append(");\n");
+            case ELLIPSE -> code.append("        Ellipse n = new Ellipse(").append(lit(s.cx)).append(", ").append(lit(s.cy))
+                    .append(", ").append(lit(s.rx)).append(", ").append(lit(s.ry)).append(");\n");
+            case TEXT -> {
+                code.append("        Text n = new Text(").append(lit(s.x)).append(", ").append(lit(s.y))
+                        .append(", ").append(string(s.text)).append(");\n");
+                if (s.font != null) {
+                    code.append("        n.setFont(Font.font(").append(string(s.font.getFamily())).append(", ")
+                            .append(lit(s.font.getSize())).append("));\n");
+                }
+            }
+        }
+        if (s.fillSet) {
+            code.append("        n.setFill(").append(paint(s.fill)).append(");\n");
+        }
+        if (s.stroke != null) {
+            code.append("        n.setStroke(").append(paint(s.stroke)).append(");\n");
+        }
+        if (!Double.isNaN(s.strokeWidth)) {
+            code.append("        n.setStrokeWidth(").append(lit(s.strokeWidth)).append(");\n");
+        }
+        if (!Double.isNaN(s.strokeMiterLimit)) {
+            code.append("        n.setStrokeMiterLimit(").append(lit(s.strokeMiterLimit)).append(");\n");
+        }
+        if (s.strokeLineCap != null) {
+            code.append("        n.setStrokeLineCap(StrokeLineCap.").append(s.strokeLineCap.name()).append(");\n");
+        }
+        if (s.strokeLineJoin != null) {
+            code.append("        n.setStrokeLineJoin(StrokeLineJoin.").append(s.strokeLineJoin.name()).append(");\n");
+        }
+        if (s.strokeDashArray != null && s.strokeDashArray.length > 0) {
+            code.append("        n.getStrokeDashArray().addAll(");
+            for (int i = 0; i < s.strokeDashArray.length; i++) {
+                if (i > 0) {
+                    code.append(", ");
+                }
+                code.append(lit(s.strokeDashArray[i]));
+            }
+            code.append(");\n");
+        }
+    }
+
+    // the elements are created in separate methods of up to MAX_VALUES each
+    private void pathElements(String name, SvgPathData path) {
+        byte[] commands = path.commandsArray();
+        float[] c = path.coordsArray();
+        int ci = 0;
+        for (int start = 0, part = 0; start < commands.length; start += MAX_VALUES, part++) {
+            String chunk = name + "e" + part;
+            code.append("        n.getElements().addAll(").append(ref(chunk)).append("());\n");
+            int saved = constants;
+            constants = 4;
+            StringBuilder helper = new StringBuilder();
+            helper.append("\n    private static PathElement[] ").append(chunk).append("() {\n");
+            helper.append("        return new PathElement[] {\n");
+            for (int i = start; i < Math.min(commands.length, start + MAX_VALUES); i++) {
+                helper.append("            ");
+                switch (commands[i]) {
+                    case SvgPathData.MOVE_TO -> helper.append("new MoveTo(").append(lit(c[ci])).append(", ")
+                            .append(lit(c[ci + 1])).append(')');
+                    case SvgPathData.LINE_TO -> helper.append("new LineTo(").append(lit(c[ci])).append(", ")
+                            .append(lit(c[ci + 1])).append(')');
+                    case SvgPathData.QUAD_TO -> helper.append("new QuadCurveTo(").append(lit(c[ci])).append(", ")
+                            .append(lit(c[ci + 1])).append(", ").append(lit(c[ci + 2])).append(", ")
+                            .append(lit(c[ci + 3])).append(')');
+                    case SvgPathData.CUBIC_TO -> helper.append("new CubicCurveTo(").append(lit(c[ci])).append(", ")
+                            .append(lit(c[ci + 1])).append(", ").append(lit(c[ci + 2])).append(", ")
+                            .append(lit(c[ci + 3])).append(", ").append(lit(c[ci + 4])).append(", ")
+                            .append(lit(c[ci + 5])).append(')');
+                    default -> helper.append("new ClosePath()");
+                }
+                helper.append(",\n");
+                ci += SvgPathData.coordCount(commands[i]);
+            }
+            helper.append("        };\n    }\n");
+            helpers.add(new Unit(chunk, helper.toString(), constants));
+            constants = saved;
+        }
+    }
+
+    // an expression for the array, long arrays are built by other methods
+    private String doubles(String name, double[] values) {
+        if (values.length <= MAX_VALUES) {
+            return array(values, 0, values.length);
+        }
+        StringBuilder expr = new StringBuilder("concat(");
+        for (int start = 0, part = 0; start < values.length; start += MAX_VALUES, part++) {
+            String chunk = name + "d" + part;
+            if (part > 0) {
+                expr.append(", ");
+            }
+            expr.append(ref(chunk)).append("()");
+            int saved = constants;
+            constants = 4;
+            String helper = "\n    private static double[] " + chunk + "() {\n        return "
+                    + array(values, start, Math.min(values.length, start + MAX_VALUES)) + ";\n    }\n";
+            helpers.add(new Unit(chunk, helper, constants));
+            constants = saved;
+        }
+        concatUsed = true;
+        return expr.append(')').toString();
+    }
+
+    private String array(double[] values, int start, int end) {
+        StringBuilder sb = new StringBuilder("new double[] {");
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                sb.append(", ");
+            }
+            sb.append(lit(values[i]));
+        }
+        return sb.append('}').toString();
+    }
+
+    private String paint(Paint p) {
+        if (p == null) {
+            return "null";
+        }
+        String name = paints.get(p);
+        if (name == null) {
+            name = "P" + paints.size();
+            paints.put(p, name);
+            int saved = constants;
+            constants = 0;
+            String field = "    private static final Paint " + name + " = " + paintExpression(p) + ";\n";
+            place(name, field, constants, true);
+            constants = saved;
+        }
+        return ref(name);
+    }
+
+    private String paintExpression(Paint p) {
+        if (p instanceof Color c) {
+            return color(c);
+        }
+        StringBuilder sb = new StringBuilder();
+        List<Stop> stops;
+        if (p instanceof LinearGradient g) {
+            sb.append("new LinearGradient(").append(lit(g.getStartX())).append(", ").append(lit(g.getStartY()))
+                    .append(", ").append(lit(g.getEndX())).append(", ").append(lit(g.getEndY()))
+                    .append(", ").append(g.isProportional()).append(", CycleMethod.").append(g.getCycleMethod().name());
+            stops = g.getStops();
+        } else if (p instanceof RadialGradient g) {
+            sb.append("new RadialGradient(").append(lit(g.getFocusAngle())).append(", ").append(lit(g.getFocusDistance()))
+                    .append(", ").append(lit(g.getCenterX())).append(", ").append(lit(g.getCenterY()))
+                    .append(", ").append(lit(g.getRadius())).append(", ").append(g.isProportional())
+                    .append(", CycleMethod.").append(g.getCycleMethod().name());
+            stops = g.getStops();
+        } else {
+            throw new IllegalArgumentException("Can't generate a " + p.getClass().getName());
+        }
+        for (Stop s : stops) {
+            sb.append(",\n            new Stop(").append(lit(s.getOffset())).append(", ").append(color(s.getColor())).append(')');
+        }
+        return sb.append(')').toString();
+    }
+
+    private String color(Color c) {
+        return "Color.color(" + lit(c.getRed()) + ", " + lit(c.getGreen()) + ", " + lit(c.getBlue())
+                + ", " + lit(c.getOpacity()) + ")";
+    }
+
+    // a literal, or a constant for Strings too long for one
+    private String string(String s) {
+        if (s == null) {
+            return "null";
+        }
+        if (s.length() <= MAX_LITERAL) {
+            return quote(s);
+        }
+        String name = strings.get(s);
+        if (name == null) {
+            name = "S" + strings.size();
+            strings.put(s, name);
+            int saved = constants;
+            constants = 0;
+            StringBuilder field = new StringBuilder("    private static final String ").append(name).append(" = String.join(\"\"");
+            for (int i = 0; i < s.length(); i += MAX_LITERAL) {
+                field.append(",\n            ").append(quote(s.substring(i, Math.min(s.length(), i + MAX_LITERAL))));
+            }
+            field.append(");\n");
+            place(name, field, constants, true);
+            constants = saved;
+        }
+        return ref(name);
+    }
+
+    private String quote(String s) {
+        constants += 2;
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private String lit(double v) {
+        constants += 2;
+        if (Double.isNaN(v)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(v)) {
+            return v > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(v);
+    }
+
+    // the same double as widening the float, as SvgPathData does
+    private String lit(float v) {
+        constants++;
+        if (Float.isNaN(v)) {
+            return "Float.NaN";
+        } else if (Float.isInfinite(v)) {
+            return v > 0 ? "Float.POSITIVE_INFINITY" : "Float.NEGATIVE_INFINITY";
+        }
+        return Float.toString(v) + 'f';
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Scanner for the small languages used in SVG attribute values: lists of
+ * numbers, lengths, transform lists, style declarations and path data.
+ * <p>
+ * It works directly on the characters, numbers are converted without
+ * creating Strings, and bad input is skipped rather than reported with an
+ * exception.  Numbers may be separated by whitespace, commas or nothing at
+ * all when there is no ambiguity, e.g. {@code "1-2"} and {@code "1.5.5"} are
+ * both two numbers.
+ *
+ * @author scott
+ */
+public final class SvgLexer {
+
+    // powers of ten that are exactly representable as a double
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final CharSequence s;
+    private final int end;
+    private int pos;
+
+    public SvgLexer(CharSequence s) {
+        this.s = s;
+        this.end = s.length();
+    }
+
+    public int position() {
+        return pos;
+    }
+
+    public boolean atEnd() {
+        return pos >= end;
+    }
+
+    /**
+     * The next character, without consuming it.
+     * @return the next character or 0 at the end
+     */
+    public char peek() {
+        return pos < end ? s.charAt(pos) : 0;
+    }
+
+    public void skipWhitespace() {
+        while (pos < end && isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * Skips whitespace with at most one comma, the separator between
+     * numbers.
+     */
+    public void skipSeparator() {
+        skipWhitespace();
+        if (pos < end && s.charAt(pos) == ',') {
+            pos++;
+            skipWhitespace();
+        }
+    }
+
+    /**
+     * Consumes the character if it is next.
+     * @param c the expected character
+     * @return true if it was consumed
+     */
+    public boolean consume(char c) {
+        if (pos < end && s.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the word if it is next.
+     * @param word the expected characters
+     * @return true if they were consumed
+     */
+    public boolean consume(String word) {
+        int n = word.length();
+        if (end - pos < n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(pos + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        pos += n;
+        return true;
+    }
+
+    /**
+     * Consumes a name made of letters, digits, '-' and '_'.
+     * @return the name, empty if there isn't one
+     */
+    public String name() {
+        int start = pos;
+        while (pos < end) {
+            char c = s.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return s.subSequence(start, pos).toString();
+    }
+
+    /**
+     * Consumes a number if there is one.
+     * @return the number, or NaN if the next characters are not a number
+     */
+    public double number() {
+        int start = pos;
+        int numberEnd = scanNumber(s, pos, end);
+        if (numberEnd == start) {
+            return Double.NaN;
+        }
+        pos = numberEnd;
+        return parseNumber(s, start, numberEnd);
+    }
+
+    /**
+     * Consumes an arc flag, which is a single '0' or '1' and need not be
+     * followed by a separator.
+     * @return 0 or 1, or -1 if there is no flag
+     */
+    public int flag() {
+        if (pos < end) {
+            char c = s.charAt(pos);
+            if (c == '0' || c == '1') {
+                pos++;
+                return c - '0';
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips to the next whitespace or comma, used to get past bad input.
+     */
+    public void skipToken() {
+        while (pos < end && !isWhitespace(s.charAt(pos)) && s.charAt(pos) != ',') {
+            pos++;
+        }
+    }
+
+    /**
+     * Parses a list of numbers such as the points of a polygon or a dash
+     * array.  Anything that isn't a number is skipped.
+     * @param s the list
+     * @return the numbers
+     */
+    public static double[] numbers(CharSequence s) {
+        SvgLexer lexer = new SvgLexer(s);
+        double[] values = new double[Math.max(4, s.length() / 4)];
+        int count = 0;
+        lexer.skipSeparator();
+        while (!lexer.atEnd()) {
+            double v = lexer.number();
+            if (Double.isNaN(v)) {
+                // an empty item between commas, or something to skip
+                if (lexer.s.charAt(lexer.pos++) != ',') {
+                    lexer.skipToken();
+                }
+            } else {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = v;
+            }
+            lexer.skipSeparator();
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Parses a single number, ignoring surrounding whitespace and anything
+     * after the number such as units.
+     * @param s the text of the number
+     * @param fallback the value to use if there is no number
+     * @return the number
+     */
+    public static double number(CharSequence s, double fallback) {
+        SvgLexer lexer = new SvgLexer(s);
+        lexer.skipWhitespace();
+        double v = lexer.number();
+        return Double.isNaN(v) ? fallback : v;
+    }
+
+    /**
+     * Parses a number or a percentage, which is returned as a fraction.
+     * @param s the text of the number, e.g. "0.5" or "50%"
+     * @param fallback the value to use if there is no number
+     * @return the number
+     */
+    public static double fraction(CharSequence s, double fallback) {
+        SvgLexer lexer = new SvgLexer(s);
+        lexer.skipWhitespace();
+        double v = lexer.number();
+        if (Double.isNaN(v)) {
+            return fallback;
+        }
+        lexer.skipWhitespace();
+        return lexer.consume('%') ? v / 100.0 : v;
+    }
+
+    /**
+     * Parses a transform list such as {@code "translate(10,20) scale(2)"}
+     * into a single matrix.  Unknown transforms and transforms with the
+     * wrong number of parameters are skipped.
+     * @param s the transform list
+     * @return the combined matrix in JavaFX row order: mxx, mxy, tx, myx,
+     * myy, ty, or null if there are no transforms or they cancel out
+     */
+    public static double[] transform(CharSequence s) {
+        SvgLexer lexer = new SvgLexer(s);
+        double[] params = new double[6];
+        double[] m = null;
+        lexer.skipSeparator();
+        while (!lexer.atEnd()) {
+            int start = lexer.pos;
+            String name = lexer.name();
+            lexer.skipWhitespace();
+            if (!lexer.consume('(')) {
+                // not a transform, skip past the next ')'
+                lexer.pos = Math.max(lexer.pos, start + 1);
+                while (!lexer.atEnd() && lexer.s.charAt(lexer.pos++) != ')') {
+                }
+                lexer.skipSeparator();
+                continue;
+            }
+            int count = 0;
+            lexer.skipWhitespace();
+            while (!lexer.atEnd() && lexer.peek() != ')') {
+                double v = lexer.number();
+                if (Double.isNaN(v)) {
+                    lexer.pos++;
+                } else if (count < params.length) {
+                    params[count++] = v;
+                } else {
+                    count++;
+                }
+                lexer.skipSeparator();
+            }
+            lexer.consume(')');
+            double[] t = matrix(name, params, count);
+            if (t != null) {
+                m = SvgElement.concat(m, t);
+            }
+            lexer.skipSeparator();
+        }
+        return m;
+    }
+
+    /**
+     * The matrix for a single transform function.
+     * @param name the name of the transform, e.g. "rotate"
+     * @param p the parameters
+     * @param count the number of parameters
+     * @return the matrix in JavaFX row order, or null if the name or the
+     * number of parameters is not valid
+     */
+    public static double[] matrix(String name, double[] p, int count) {
+        switch (name) {
+            case "matrix":
+                if (count == 6) {
+                    // SVG parameters are column-wise, JavaFX is row-wise
+                    return new double[] {p[0], p[2], p[4], p[1], p[3], p[5]};
+                }
+                break;
+            case "translate":
+                if (count == 1 || count == 2) {
+                    return new double[] {1, 0, p[0], 0, 1, count == 2 ? p[1] : 0};
+                }
+                break;
+            case "scale":
+                if (count == 1 || count == 2) {
+                    return new double[] {p[0], 0, 0, 0, count == 2 ? p[1] : p[0], 0};
+                }
+                break;
+            case "rotate":
+                if (count == 1 || count == 3) {
+                    double a = Math.toRadians(p[0]);
+                    double cos = Math.cos(a);
+                    double sin = Math.sin(a);
+                    double x = count == 3 ? p[1] : 0;
+                    double y = count == 3 ? p[2] : 0;
+                    return new double[] {cos, -sin, x - cos * x + sin * y, sin, cos, y - sin * x - cos * y};
+                }
+                break;
+            case "skewX":
+                if (count == 1) {
+                    return new double[] {1, Math.tan(Math.toRadians(p[0])), 0, 0, 1, 0};
+                }
+                break;
+            case "skewY":
+                if (count == 1) {
+                    return new double[] {1, 0, 0, Math.tan(Math.toRadians(p[0])), 1, 0};
+                }
+                break;
+            default:
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * Parses CSS style declarations such as
+     * {@code "fill:#fff;stroke-width:2"}.  The names and values are trimmed,
+     * empty declarations and declarations without a ':' are skipped.
+     * @param s the declarations
+     * @param action called with the name and value of each declaration
+     */
+    public static void declarations(CharSequence s, BiConsumer<String, String> action) {
+        int len = s.length();
+        int start = 0;
+        while (start < len) {
+            int semi = start;
+            int colon = -1;
+            while (semi < len && s.charAt(semi) != ';') {
+                if (colon < 0 && s.charAt(semi) == ':') {
+                    colon = semi;
+                }
+                semi++;
+            }
+            if (colon >= 0) {
+                String name = trimmed(s, start, colon);
+                if (!name.isEmpty()) {
+                    action.accept(name, trimmed(s, colon + 1, semi));
+                }
+            }
+            start = semi + 1;
+        }
+    }
+
+    private static String trimmed(CharSequence s, int start, int end) {
+        while (start < end && isWhitespace(s.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+        return s.subSequence(start, end).toString();
+    }
+
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Finds the end of the number starting at {@code start}.  The syntax is
+     * that of SVG numbers: an optional sign, digits with an optional decimal
+     * point and an optional exponent.  A second decimal point or a sign ends
+     * the number.
+     * @return index after the number, or {@code start} if there isn't one
+     */
+    static int scanNumber(CharSequence s, int start, int end) {
+        int i = start;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < end && isDigit(s.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && s.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(s.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return start;
+        }
+        if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            int e = i + 1;
+            if (e < end && (s.charAt(e) == '-' || s.charAt(e) == '+')) {
+                e++;
+            }
+            if (e < end && isDigit(s.charAt(e))) {
+                // otherwise the 'e' is not part of the number, e.g. "1em"
+                i = e;
+                while (i < end && isDigit(s.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Converts a number found by {@link #scanNumber}.  Numbers with up to 15
+     * significant digits and a small exponent, which is nearly everything
+     * found in SVG files, are converted directly and exactly.  Anything else
+     * is left to {@link Double#parseDouble(java.lang.String)}.
+     */
+    static double parseNumber(CharSequence s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            c = s.charAt(i);
+            if (c == '.') {
+                fraction = true;
+            } else if (isDigit(c)) {
+                if (mantissa == 0 && c == '0') {
+                    // leading zeros are not significant
+                    if (fraction) {
+                        scale--;
+                    }
+                    continue;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale--;
+                }
+            } else {
+                break; // exponent
+            }
+        }
+        if (i < end) {
+            int exp = 0;
+            boolean negExp = false;
+            i++; // 'e' or 'E'
+            c = s.charAt(i);
+            if (c == '-' || c == '+') {
+                negExp = c == '-';
+                i++;
+            }
+            for (; i < end; i++) {
+                exp = exp * 10 + (s.charAt(i) - '0');
+                if (exp > 100000) {
+                    return Double.parseDouble(s.subSequence(start, end).toString());
+                }
+            }
+            scale += negExp ? -exp : exp;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (digits <= 15 && scale >= -22 && scale <= 22) {
+            value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+        } else {
+            return Double.parseDouble(s.subSequence(start, end).toString());
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -15,74 +15,35 @@
  */
 package com.analogideas.fxsvg.impl;
 
-import com.analogideas.fxsvg.SVGReader;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
 import javafx.scene.paint.Stop;
-import javafx.scene.transform.Transform;
 
 /**
  *
  * @author scott
  */
-public class SvgLinearGradient implements SvgContainer, SvgObjWithId {
-    private Map<String, Object> defs;
-    List<Stop> stops = new ArrayList<>();
-    String id;
-    double x1;
-    double y1;
-    double x2;
-    double y2;
-    CycleMethod cycle = CycleMethod.NO_CYCLE;
-    String transform;
-    String href;
-    boolean proportional = true;
+public class SvgLinearGradient extends SvgGradient {
+    // NaN when not set
+    double x1 = Double.NaN;
+    double y1 = Double.NaN;
+    double x2 = Double.NaN;
+    double y2 = Double.NaN;
 
     public SvgLinearGradient(Map<String, Object> defs) {
-        this.defs = defs; // to resolve hrefs
-    }
-    
-    
-    @Override
-    public void add(SvgData svgObj) {
-        if (svgObj instanceof SvgStop svgStop) {
-            stops.add((Stop) svgStop.obj());
-        }
-    }
-
-    @Override
-    public void id(String id) {
-        this.id = id;
-    }
-
-    @Override
-    public String id() {
-        return id;
+        super(defs);
     }
 
     @Override
-    public Object obj() {
-        if (transform != null) {
-            // deal with gradient transform
-            Transform t = SVGReader.transformsFromString(transform);
-            var p1 = t.transform(x1, y1);
-            x1 = p1.getX();
-            y1 = p1.getY();
-            var p2 = t.transform(x2, y2);
-            x2 = p2.getX();
-            y2 = p2.getY();
-        }
-        if (stops.isEmpty() && href != null) {
-            Object other = defs.get(href);
-            if (other instanceof LinearGradient otherGrad) {
-                stops.addAll(otherGrad.getStops());
-            }
-        }
-        LinearGradient gradient = new LinearGradient(x1, y1, x2, y2, proportional, cycle, stops);
-        return gradient;
+    Paint build(List<SvgGradient> chain, List<Stop> stops, boolean proportional,
+            CycleMethod cycle, double[] transform) {
+        Class<SvgLinearGradient> kind = SvgLinearGradient.class;
+        double[] p1 = transform(transform, inherit(chain, kind, g -> g.x1, 0.0), inherit(chain, kind, g -> g.y1, 0.0));
+        double[] p2 = transform(transform, inherit(chain, kind, g -> g.x2, 1.0), inherit(chain, kind, g -> g.y2, 0.0));
+        return new LinearGradient(p1[0], p1[1], p2[0], p2[1], proportional, cycle, stops);
     }
 
     public void setX1(double x1) {
@@ -100,21 +61,4 @@ public class SvgLinearGradient implements SvgContainer, SvgObjWithId {
     public void setY2(double y2) {
         this.y2 = y2;
     }
-    
-    public void setCycleMethod(CycleMethod cycle) {
-        this.cycle = cycle;
-    }
-    
-    public void setTransform(String transform) {
-        this.transform = transform;
-    }
-    
-    public void setProportional(boolean prop) {
-        this.proportional = prop;
-    }
-    
-    // currently only used to inherit stops
-    public void setHref(String href) {
-        this.href = href;
-    }
 }
@@ -16,36 +16,485 @@
 package com.analogideas.fxsvg.impl;
 
 import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.SVGPath;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
 
 /**
+ * Template for a single Shape.  Only the properties that make sense for the
+ * kind of shape are used when the Node is created.
  *
  * @author scott
  */
-public class SvgNode implements SvgObjWithId {
-    
-    Node node;
+public class SvgNode extends SvgElement {
 
-    public SvgNode(Node node) {
-        this.node = node;
+    public enum Kind {
+        PATH, POLYGON, POLYLINE, LINE, RECT, CIRCLE, ELLIPSE, TEXT
     }
 
-    public Node node() {
-        return node;
+    private static final double[] NO_POINTS = {};
+
+    final Kind kind;
+
+    // Paints are immutable so they are shared by every Node built from this
+    boolean fillSet;
+    Paint fill;
+    Paint stroke; // SVG default for stroke is invisible/absent
+    double strokeWidth = Double.NaN;
+    double strokeMiterLimit = Double.NaN;
+    StrokeLineCap strokeLineCap;
+    StrokeLineJoin strokeLineJoin;
+    double[] strokeDashArray;
+    FillRule fillRule;
+
+    // geometry
+    SvgPathData path = SvgPathData.EMPTY;
+    boolean pathElements; // a Path instead of an SVGPath
+    double[] points = NO_POINTS;
+    double x, y, width, height;
+    double rx, ry;
+    double cx, cy, r;
+    double x1, y1, x2, y2;
+    String text = "";
+    Font font;
+
+    public SvgNode(Kind kind) {
+        this.kind = kind;
+    }
+
+    // a different kind of shape with the same paints and common properties
+    private SvgNode(Kind kind, SvgNode other) {
+        this.kind = kind;
+        id = other.id;
+        opacity = other.opacity;
+        clip = other.clip;
+        customizers = other.customizers;
+        fillSet = other.fillSet;
+        fill = other.fill;
+        stroke = other.stroke;
+        strokeWidth = other.strokeWidth;
+        strokeMiterLimit = other.strokeMiterLimit;
+        strokeLineCap = other.strokeLineCap;
+        strokeLineJoin = other.strokeLineJoin;
+        strokeDashArray = other.strokeDashArray;
+        fillRule = other.fillRule;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public boolean is(Kind k) {
+        return kind == k;
+    }
+
+    public boolean is(Kind k1, Kind k2) {
+        return kind == k1 || kind == k2;
     }
 
     @Override
-    public void id(String id) {
-        node.setId(id);
+    Node newNode(boolean withId) {
+        Shape shape = switch (kind) {
+            case PATH -> {
+                if (pathElements) {
+                    Path p = new Path(path.toPathElements());
+                    if (fillRule != null) {
+                        p.setFillRule(fillRule);
+                    }
+                    yield p;
+                }
+                SVGPath p = new SVGPath();
+                p.setContent(path.toSvgContent());
+                if (fillRule != null) {
+                    p.setFillRule(fillRule);
+                }
+                yield p;
+            }
+            case POLYGON -> new Polygon(points);
+            case POLYLINE -> new Polyline(points);
+            case LINE -> new Line(x1, y1, x2, y2);
+            case RECT -> {
+                Rectangle rect = new Rectangle(x, y, width, height);
+                rect.setArcWidth(rx);
+                rect.setArcHeight(ry);
+                yield rect;
+            }
+            case CIRCLE -> new Circle(cx, cy, r);
+            case ELLIPSE -> new Ellipse(cx, cy, rx, ry);
+            case TEXT -> {
+                Text t = new Text(x, y, text);
+                if (font != null) {
+                    t.setFont(font);
+                }
+                yield t;
+            }
+        };
+        if (fillSet) {
+            shape.setFill(fill);
+        }
+        shape.setStroke(stroke);
+        if (!Double.isNaN(strokeWidth)) {
+            shape.setStrokeWidth(strokeWidth);
+        }
+        if (!Double.isNaN(strokeMiterLimit)) {
+            shape.setStrokeMiterLimit(strokeMiterLimit);
+        }
+        if (strokeLineCap != null) {
+            shape.setStrokeLineCap(strokeLineCap);
+        }
+        if (strokeLineJoin != null) {
+            shape.setStrokeLineJoin(strokeLineJoin);
+        }
+        if (strokeDashArray != null) {
+            for (double d : strokeDashArray) {
+                shape.getStrokeDashArray().add(d);
+            }
+        }
+        applyTo(shape, withId);
+        return shape;
     }
 
     @Override
-    public String id() {
-        return node().getId();
+    double[] localBounds() {
+        double[] b = switch (kind) {
+            case PATH -> path.isEmpty() ? null : new double[] {path.minX(), path.minY(), path.maxX(), path.maxY()};
+            case POLYGON, POLYLINE -> {
+                double[] p = null;
+                for (int i = 0; i + 1 < points.length; i += 2) {
+                    p = union(p, new double[] {points[i], points[i + 1], points[i], points[i + 1]});
+                }
+                yield p;
+            }
+            case LINE -> new double[] {Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2)};
+            case RECT -> new double[] {x, y, x + width, y + height};
+            case CIRCLE -> new double[] {cx - r, cy - r, cx + r, cy + r};
+            case ELLIPSE -> new double[] {cx - rx, cy - ry, cx + rx, cy + ry};
+            case TEXT -> {
+                // generous, from the baseline without measuring the glyphs
+                double size = font != null ? font.getSize() : 12;
+                yield new double[] {x, y - size, x + text.length() * size, y + size / 2};
+            }
+        };
+        if (b != null && stroke != null) {
+            double w = Double.isNaN(strokeWidth) ? 1 : strokeWidth;
+            // square caps and miter joins reach past half the width
+            double reach = 1;
+            if (strokeLineCap == null || strokeLineCap == StrokeLineCap.SQUARE) {
+                reach = Math.sqrt(2);
+            }
+            if (strokeLineJoin == null || strokeLineJoin == StrokeLineJoin.MITER) {
+                reach = Math.max(reach, Double.isNaN(strokeMiterLimit) ? 10 : strokeMiterLimit);
+            }
+            double pad = w / 2 * reach;
+            b = new double[] {b[0] - pad, b[1] - pad, b[2] + pad, b[3] + pad};
+        }
+        return b;
     }
 
     @Override
-    public Object obj() {
-        return node();
+    SvgElement simplified(double tolerance, double minArea) {
+        SvgNode copy = null;
+        switch (kind) {
+            case PATH -> {
+                SvgPathData p = path.simplify(tolerance);
+                if (p != path) {
+                    copy = new SvgNode(kind, this);
+                    copy.path = p;
+                }
+            }
+            case POLYGON, POLYLINE -> {
+                double[] p = SvgPathData.simplifyPoints(points, points.length, kind == Kind.POLYGON, tolerance);
+                if (p.length < points.length) {
+                    copy = new SvgNode(kind, this);
+                    copy.points = p;
+                }
+            }
+            default -> {
+            }
+        }
+        if (copy == null) {
+            return this;
+        }
+        copy.transform = transform;
+        return copy;
+    }
+
+    @Override
+    SvgElement bake(double[] parent) {
+        double[] m = concat(parent, transform);
+        if (m != null && bakeable(m)) {
+            transform = null;
+            return bakeGeometry(m);
+        }
+        transform = m;
+        return this;
+    }
+
+    @Override
+    void intern() {
+        super.intern();
+        path = SvgInterner.path(path);
+        points = SvgInterner.doubles(points);
+        strokeDashArray = SvgInterner.doubles(strokeDashArray);
+        text = SvgInterner.string(text);
+        font = SvgInterner.font(font);
+    }
+
+    @Override
+    boolean bakeable(double[] m) {
+        if (m == null) {
+            return true;
+        }
+        // a clip is in the untransformed coordinates and may be shared,
+        // gradients are positioned in those coordinates as well, and an
+        // extension may depend on them
+        if (clip != null || customizers != null || !isColorOrNull(fill) || !isColorOrNull(stroke)) {
+            return false;
+        }
+        boolean axisAligned = isZero(m, m[1]) && isZero(m, m[3]);
+        if (stroke != null && !isSimilarity(m)) {
+            return false;
+        }
+        return switch (kind) {
+            case PATH, POLYGON, POLYLINE, LINE -> true;
+            case RECT -> axisAligned || (rx == 0 && ry == 0);
+            case CIRCLE -> axisAligned || isSimilarity(m);
+            // or a quarter turn, which swaps the axes
+            case ELLIPSE -> axisAligned || (isZero(m, m[0]) && isZero(m, m[4]));
+            // the font would have to be scaled as well
+            case TEXT -> axisAligned && isZero(m, m[0] - 1) && isZero(m, m[4] - 1);
+        };
+    }
+
+    // small enough compared to the scale of the transform, e.g. cos(90)
+    private static boolean isZero(double[] m, double v) {
+        return Math.abs(v) <= 1e-12 * (Math.abs(m[0]) + Math.abs(m[1]) + Math.abs(m[3]) + Math.abs(m[4]));
     }
-    
+
+    private static boolean isColorOrNull(Paint p) {
+        return p == null || p instanceof Color;
+    }
+
+    // rotation, reflection and uniform scale keep circles and stroke widths
+    private static boolean isSimilarity(double[] m) {
+        double lenX = m[0] * m[0] + m[3] * m[3];
+        double lenY = m[1] * m[1] + m[4] * m[4];
+        double tolerance = 1e-9 * (lenX + lenY);
+        return Math.abs(m[0] * m[1] + m[3] * m[4]) <= tolerance
+                && Math.abs(lenX - lenY) <= tolerance;
+    }
+
+    // only called when bakeable(m) is true
+    private SvgNode bakeGeometry(double[] m) {
+        boolean axisAligned = isZero(m, m[1]) && isZero(m, m[3]);
+        double scale = Math.sqrt(Math.abs(m[0] * m[4] - m[1] * m[3]));
+        SvgNode baked = this;
+        switch (kind) {
+            case PATH -> path = path.transform(m);
+            case POLYGON, POLYLINE -> points = transformPoints(m, points);
+            case LINE -> {
+                double[] p = transformPoints(m, new double[] {x1, y1, x2, y2});
+                x1 = p[0];
+                y1 = p[1];
+                x2 = p[2];
+                y2 = p[3];
+            }
+            case RECT -> {
+                if (axisAligned) {
+                    double[] p = transformPoints(m, new double[] {x, y, x + width, y + height});
+                    x = Math.min(p[0], p[2]);
+                    y = Math.min(p[1], p[3]);
+                    width = Math.abs(p[2] - p[0]);
+                    height = Math.abs(p[3] - p[1]);
+                    rx *= Math.abs(m[0]);
+                    ry *= Math.abs(m[4]);
+                } else {
+                    baked = new SvgNode(Kind.POLYGON, this);
+                    baked.points = transformPoints(m, new double[] {
+                        x, y, x + width, y, x + width, y + height, x, y + height});
+                }
+            }
+            case CIRCLE -> {
+                if (isSimilarity(m)) {
+                    r *= scale;
+                } else {
+                    baked = new SvgNode(Kind.ELLIPSE, this);
+                    baked.rx = r * Math.abs(m[0]);
+                    baked.ry = r * Math.abs(m[4]);
+                }
+                double[] c = transformPoints(m, new double[] {cx, cy});
+                baked.cx = c[0];
+                baked.cy = c[1];
+            }
+            case ELLIPSE -> {
+                if (axisAligned) {
+                    rx *= Math.abs(m[0]);
+                    ry *= Math.abs(m[4]);
+                } else {
+                    double oldRx = rx;
+                    rx = ry * Math.abs(m[1]);
+                    ry = oldRx * Math.abs(m[3]);
+                }
+                double[] c = transformPoints(m, new double[] {cx, cy});
+                cx = c[0];
+                cy = c[1];
+            }
+            case TEXT -> {
+                x += m[2];
+                y += m[5];
+            }
+        }
+        if (stroke != null) {
+            baked.strokeWidth = (Double.isNaN(strokeWidth) ? 1.0 : strokeWidth) * scale;
+            if (strokeDashArray != null) {
+                double[] dashes = strokeDashArray.clone();
+                for (int i = 0; i < dashes.length; i++) {
+                    dashes[i] *= scale;
+                }
+                baked.strokeDashArray = dashes;
+            }
+        }
+        return baked;
+    }
+
+    private static double[] transformPoints(double[] m, double[] p) {
+        double[] r = new double[p.length];
+        for (int i = 0; i + 1 < p.length; i += 2) {
+            r[i] = m[0] * p[i] + m[1] * p[i + 1] + m[2];
+            r[i + 1] = m[3] * p[i] + m[4] * p[i + 1] + m[5];
+        }
+        return r;
+    }
+
+    @Override
+    public long weight() {
+        long w = super.weight() + 128 + (kind == Kind.PATH ? path.weight() : 0) + points.length * 8L + text.length();
+        if (strokeDashArray != null) {
+            w += strokeDashArray.length * 8L;
+        }
+        return w;
+    }
+
+    public void setFill(Paint fill) {
+        this.fill = fill;
+        this.fillSet = true;
+    }
+
+    public void setStroke(Paint stroke) {
+        this.stroke = stroke;
+    }
+
+    public void setStrokeWidth(double strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public void setStrokeMiterLimit(double strokeMiterLimit) {
+        this.strokeMiterLimit = strokeMiterLimit;
+    }
+
+    public void setStrokeLineCap(StrokeLineCap strokeLineCap) {
+        this.strokeLineCap = strokeLineCap;
+    }
+
+    public void setStrokeLineJoin(StrokeLineJoin strokeLineJoin) {
+        this.strokeLineJoin = strokeLineJoin;
+    }
+
+    public void setStrokeDashArray(double[] strokeDashArray) {
+        this.strokeDashArray = strokeDashArray;
+    }
+
+    public void setFillRule(FillRule fillRule) {
+        this.fillRule = fillRule;
+    }
+
+    public void setPath(SvgPathData path) {
+        this.path = path;
+    }
+
+    public SvgPathData path() {
+        return path;
+    }
+
+    public void setPathElements(boolean pathElements) {
+        this.pathElements = pathElements;
+    }
+
+    public void setPoints(double[] points) {
+        this.points = points;
+    }
+
+    public void setX(double x) {
+        this.x = x;
+    }
+
+    public void setY(double y) {
+        this.y = y;
+    }
+
+    public void setWidth(double width) {
+        this.width = width;
+    }
+
+    public void setHeight(double height) {
+        this.height = height;
+    }
+
+    public void setRx(double rx) {
+        this.rx = rx;
+    }
+
+    public void setRy(double ry) {
+        this.ry = ry;
+    }
+
+    public void setCx(double cx) {
+        this.cx = cx;
+    }
+
+    public void setCy(double cy) {
+        this.cy = cy;
+    }
+
+    public void setR(double r) {
+        this.r = r;
+    }
+
+    public void setX1(double x1) {
+        this.x1 = x1;
+    }
+
+    public void setY1(double y1) {
+        this.y1 = y1;
+    }
+
+    public void setX2(double x2) {
+        this.x2 = x2;
+    }
+
+    public void setY2(double y2) {
+        this.y2 = y2;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public void setFont(Font font) {
+        this.font = font;
+    }
+
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+
+/**
+ * Shares Paints between all of the SVG images read by the process.  Paints
+ * are immutable, so every shape with the same fill, in any image, can use the
+ * same instance instead of parsing the color again and keeping a copy.
+ * <p>
+ * The caches are bounded, when one is full some entries are dropped, which
+ * only costs parsing them again.  Setting the system property
+ * {@code com.analogideas.fxsvg.internPaints} to false turns the sharing off.
+ *
+ * @author scott
+ */
+public final class SvgPaints {
+
+    private static final boolean INTERN = !"false".equals(System.getProperty("com.analogideas.fxsvg.internPaints"));
+    private static final int MAX_ENTRIES = 4096;
+
+    private record ColorKey(String value, double opacity) {}
+
+    private static final ConcurrentHashMap<ColorKey, Color> colors = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Paint, Paint> paints = new ConcurrentHashMap<>();
+
+    private SvgPaints() {
+    }
+
+    /**
+     * Gets the Color for an SVG color value.
+     * @param value a color, e.g. "#27aae1", "red" or "rgb(39,170,225)"
+     * @param opacity multiplies the alpha of the color, from 0.0 to 1.0
+     * @return the shared Color
+     * @throws IllegalArgumentException if the value isn't a color
+     */
+    public static Color color(String value, double opacity) {
+        opacity = clamp(opacity);
+        if (!INTERN) {
+            return Color.web(value, opacity);
+        }
+        ColorKey key = new ColorKey(value, opacity);
+        Color c = colors.get(key);
+        if (c == null) {
+            c = Color.web(value, opacity);
+            Color prev = colors.putIfAbsent(key, c);
+            if (prev != null) {
+                return prev;
+            }
+            trim(colors);
+        }
+        return c;
+    }
+
+    /**
+     * Gets the shared instance of a Paint that is equal to the given one.
+     * @param <P> the type of Paint
+     * @param paint the Paint, which becomes the shared instance if there
+     * isn't one yet
+     * @return the shared Paint
+     */
+    @SuppressWarnings("unchecked")
+    public static <P extends Paint> P intern(P paint) {
+        if (!INTERN || paint == null) {
+            return paint;
+        }
+        Paint p = paints.putIfAbsent(paint, paint);
+        if (p == null) {
+            trim(paints);
+            return paint;
+        }
+        return (P) p;
+    }
+
+    /**
+     * Applies an opacity to a Paint, as for the fill-opacity and
+     * stroke-opacity attributes.
+     * @param paint a Color or gradient
+     * @param opacity multiplies the alpha of the colors, from 0.0 to 1.0
+     * @return the shared Paint with the opacity applied
+     */
+    public static Paint withOpacity(Paint paint, double opacity) {
+        opacity = clamp(opacity);
+        if (opacity == 1.0) {
+            return paint;
+        }
+        if (paint instanceof Color c) {
+            return intern(Color.color(c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity() * opacity));
+        } else if (paint instanceof LinearGradient g) {
+            return intern(new LinearGradient(g.getStartX(), g.getStartY(), g.getEndX(), g.getEndY(),
+                    g.isProportional(), g.getCycleMethod(), withOpacity(g.getStops(), opacity)));
+        } else if (paint instanceof RadialGradient g) {
+            return intern(new RadialGradient(g.getFocusAngle(), g.getFocusDistance(),
+                    g.getCenterX(), g.getCenterY(), g.getRadius(),
+                    g.isProportional(), g.getCycleMethod(), withOpacity(g.getStops(), opacity)));
+        }
+        return paint;
+    }
+
+    private static List<Stop> withOpacity(List<Stop> stops, double opacity) {
+        List<Stop> result = new ArrayList<>(stops.size());
+        for (Stop s : stops) {
+            Color c = s.getColor();
+            result.add(new Stop(s.getOffset(), Color.color(c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity() * opacity)));
+        }
+        return result;
+    }
+
+    private static double clamp(double opacity) {
+        // NaN is treated as opaque
+        return opacity >= 0.0 ? Math.min(opacity, 1.0) : (opacity < 0.0 ? 0.0 : 1.0);
+    }
+
+    // drops arbitrary entries so the map doesn't grow without limit
+    private static void trim(ConcurrentHashMap<?, ?> map) {
+        if (map.size() > MAX_ENTRIES) {
+            Iterator<?> it = map.keySet().iterator();
+            while (map.size() > MAX_ENTRIES * 3 / 4 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,968 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.QuadCurveTo;
+
+/**
+ * Compiled path data from the {@code d} attribute of a path element.
+ * <p>
+ * The path is stored as one byte per command and the coordinates as floats.
+ * All commands are converted to absolute MoveTo, LineTo, QuadTo, CubicTo or
+ * ClosePath.  H and V become LineTo, S and T become CubicTo and QuadTo with
+ * the control point reflected, and arcs are converted to cubic curves.
+ * <p>
+ * A path from a {@code d} attribute keeps the original text and is only
+ * compiled when the commands or bounds are first needed.  SVGPath Nodes are
+ * given the text as it is, so with the default
+ * {@link javafx.scene.shape.SVGPath} Nodes the path is parsed once, by
+ * JavaFX.  Transformed, simplified and loaded paths are formatted from the
+ * coordinates.
+ * <p>
+ * Instances are immutable and can be shared by any number of Nodes.
+ *
+ * @author scott
+ */
+public final class SvgPathData {
+    private static final Logger LOGGER = Logger.getLogger(SvgPathData.class.getName());
+
+    public static final byte MOVE_TO = 0;
+    public static final byte LINE_TO = 1;
+    public static final byte QUAD_TO = 2;
+    public static final byte CUBIC_TO = 3;
+    public static final byte CLOSE = 4;
+
+    private static final int[] COORD_COUNT = {2, 2, 4, 6, 0};
+    private static final char[] COMMAND_CHAR = {'M', 'L', 'Q', 'C', 'Z'};
+
+    // decimal places tried before falling back to Float.toString
+    private static final double[] DECIMAL_SCALE = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+    public static final SvgPathData EMPTY = new SvgPathData(new byte[0], new float[0]);
+
+    private final String source; // the d text, null if made from commands
+    private volatile Geometry geometry; // compiled from the source when first needed
+    private volatile String content; // formatted when first needed, if there is no source
+
+    SvgPathData(byte[] commands, float[] coords) {
+        this.source = null;
+        this.geometry = new Geometry(commands, coords);
+    }
+
+    private SvgPathData(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compiles the path data of an SVG path element.  As required by the SVG
+     * specification, if there is an error in the data the path is rendered
+     * up to the command in error.  The data is compiled, and any error
+     * logged, when the commands or bounds are first needed.
+     * @param d the value of the {@code d} attribute
+     * @return the compiled path
+     */
+    public static SvgPathData compile(CharSequence d) {
+        return new SvgPathData(d.toString());
+    }
+
+    private Geometry geometry() {
+        Geometry g = geometry;
+        if (g == null) {
+            // a race compiles twice, with the same result
+            geometry = g = new Compiler(source).compile();
+        }
+        return g;
+    }
+
+    /**
+     * The number of commands in the path.
+     * @return the command count
+     */
+    public int commandCount() {
+        return geometry().commands.length;
+    }
+
+    /**
+     * The command at the given index.
+     * @param index the command index
+     * @return one of {@link #MOVE_TO}, {@link #LINE_TO}, {@link #QUAD_TO},
+     * {@link #CUBIC_TO} or {@link #CLOSE}
+     */
+    public byte command(int index) {
+        return geometry().commands[index];
+    }
+
+    /**
+     * The number of coordinates used by a command, two per point.
+     * @param command the command
+     * @return the number of coordinates
+     */
+    public static int coordCount(byte command) {
+        return COORD_COUNT[command];
+    }
+
+    /**
+     * The absolute coordinates of all the commands, in order.
+     * @return a copy of the coordinates
+     */
+    public float[] coords() {
+        return geometry().coords.clone();
+    }
+
+    // for use within the package when the array will not be modified
+    float[] coordsArray() {
+        return geometry().coords;
+    }
+
+    byte[] commandsArray() {
+        return geometry().commands;
+    }
+
+    public boolean isEmpty() {
+        return geometry().commands.length == 0;
+    }
+
+    public double minX() {
+        return geometry().minX;
+    }
+
+    public double minY() {
+        return geometry().minY;
+    }
+
+    public double maxX() {
+        return geometry().maxX;
+    }
+
+    public double maxY() {
+        return geometry().maxY;
+    }
+
+    /**
+     * Applies an affine transform to the path.  The commands are shared with
+     * this path.
+     * @param t the transform in JavaFX row order: mxx, mxy, tx, myx, myy, ty
+     * @return the transformed path
+     */
+    public SvgPathData transform(double[] t) {
+        Geometry g = geometry();
+        byte[] commands = g.commands;
+        float[] coords = g.coords;
+        if (commands.length == 0) {
+            return this;
+        }
+        float[] c = new float[coords.length];
+        for (int i = 0; i < c.length; i += 2) {
+            double x = coords[i], y = coords[i + 1];
+            c[i] = (float) (t[0] * x + t[1] * y + t[2]);
+            c[i + 1] = (float) (t[3] * x + t[4] * y + t[5]);
+        }
+        return new SvgPathData(commands, c);
+    }
+
+    /**
+     * Estimates the bytes used by this path.  The text is counted, and the
+     * commands once they have been compiled.
+     * @return the estimated size in bytes
+     */
+    public long weight() {
+        long w = 32;
+        String c = source != null ? source : content;
+        if (c != null) {
+            w += 40 + c.length();
+        }
+        Geometry g = geometry;
+        if (g != null) {
+            w += 48 + 16 + g.commands.length + 16 + g.coords.length * 4L;
+        }
+        return w;
+    }
+
+    /**
+     * The path in SVG path syntax, suitable for
+     * {@link javafx.scene.shape.SVGPath#setContent(java.lang.String)}.
+     * This is the text the path was compiled from, or else the canonical
+     * form of the commands.  The text isn't checked, so if it has an error
+     * JavaFX draws nothing rather than the commands before the error.  The
+     * same String is returned every time so it is shared by all of the
+     * SVGPath Nodes using it.
+     * @return the path as a String
+     */
+    public String toSvgContent() {
+        if (source != null) {
+            return source;
+        }
+        String c = content;
+        if (c == null) {
+            content = c = canonicalContent();
+        }
+        return c;
+    }
+
+    // absolute commands, one letter each, with the shortest numbers
+    String canonicalContent() {
+        Geometry g = geometry();
+        byte[] commands = g.commands;
+        float[] coords = g.coords;
+        StringBuilder sb = new StringBuilder(commands.length * 2 + coords.length * 6);
+        int ci = 0;
+        for (byte cmd : commands) {
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            sb.append(COMMAND_CHAR[cmd]);
+            for (int i = 0; i < COORD_COUNT[cmd]; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                appendNumber(sb, coords[ci++]);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Float.toString is slow, most coordinates have a few decimal places
+    static void appendNumber(StringBuilder sb, float f) {
+        if (f == (int) f) {
+            sb.append((int) f);
+            return;
+        }
+        double a = Math.abs((double) f);
+        if (a < 1e9) {
+            for (int places = 1; places < DECIMAL_SCALE.length; places++) {
+                long scaled = Math.round(a * DECIMAL_SCALE[places]);
+                if ((float) (scaled / DECIMAL_SCALE[places]) == (float) a) {
+                    if (f < 0) {
+                        sb.append('-');
+                    }
+                    long whole = scaled / (long) DECIMAL_SCALE[places];
+                    String fraction = Long.toString(scaled % (long) DECIMAL_SCALE[places]);
+                    sb.append(whole).append('.');
+                    for (int i = fraction.length(); i < places; i++) {
+                        sb.append('0');
+                    }
+                    int end = fraction.length();
+                    while (fraction.charAt(end - 1) == '0') {
+                        end--;
+                    }
+                    sb.append(fraction, 0, end);
+                    return;
+                }
+            }
+        }
+        String s = Float.toString(f);
+        if (s.indexOf('E') >= 0) {
+            s = new BigDecimal(s).stripTrailingZeros().toPlainString();
+        }
+        sb.append(s);
+    }
+
+    /**
+     * Creates PathElements for a {@link Path}.  This avoids parsing a String
+     * for each Node at the cost of more objects per Node.
+     * @return new PathElements for this path
+     */
+    public PathElement[] toPathElements() {
+        Geometry g = geometry();
+        byte[] commands = g.commands;
+        float[] c = g.coords;
+        PathElement[] elements = new PathElement[commands.length];
+        int ci = 0;
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = switch (commands[i]) {
+                case MOVE_TO -> new MoveTo(c[ci], c[ci + 1]);
+                case LINE_TO -> new LineTo(c[ci], c[ci + 1]);
+                case QUAD_TO -> new QuadCurveTo(c[ci], c[ci + 1], c[ci + 2], c[ci + 3]);
+                case CUBIC_TO -> new CubicCurveTo(c[ci], c[ci + 1], c[ci + 2], c[ci + 3], c[ci + 4], c[ci + 5]);
+                default -> new ClosePath();
+            };
+            ci += COORD_COUNT[commands[i]];
+        }
+        return elements;
+    }
+
+    /**
+     * Creates a simplified copy of this path for drawing at a small scale.
+     * The curves are replaced by lines and then the points that are close to
+     * the line between their neighbours are removed with the Douglas-Peucker
+     * algorithm.  No part of the outline moves by more than the tolerance.
+     * @param tolerance the largest change allowed, in the coordinates of the path
+     * @return the simplified path, or this path if it wouldn't be smaller
+     */
+    public SvgPathData simplify(double tolerance) {
+        Geometry g = geometry();
+        if (g.commands.length == 0 || !(tolerance > 0)) {
+            return this;
+        }
+        SvgPathData simplified = new Simplifier(tolerance).simplify(g.commands, g.coords);
+        return simplified.geometry.coords.length < g.coords.length ? simplified : this;
+    }
+
+    /**
+     * Removes the points of a polyline or polygon that are within the
+     * tolerance of the line between the points kept on either side, with the
+     * Douglas-Peucker algorithm.  The first point is always kept, and the
+     * last point of a polyline.
+     * @param xy the coordinates, x then y for each point
+     * @param length the number of coordinates used
+     * @param closed true if the last point is joined to the first
+     * @param tolerance the largest change allowed
+     * @return the coordinates of the points that are kept
+     */
+    static double[] simplifyPoints(double[] xy, int length, boolean closed, double tolerance) {
+        int n = length / 2;
+        if (n < 3) {
+            return Arrays.copyOf(xy, n * 2);
+        }
+        double[] p = xy;
+        int last = n - 1;
+        if (closed) {
+            // the ring is split at the point farthest from the first, and the
+            // first point is repeated at the end to close it
+            p = Arrays.copyOf(xy, n * 2 + 2);
+            p[n * 2] = xy[0];
+            p[n * 2 + 1] = xy[1];
+            last = n;
+        }
+        boolean[] keep = new boolean[last + 1];
+        keep[0] = true;
+        keep[last] = true;
+        double tolerance2 = tolerance * tolerance;
+        if (closed) {
+            int far = 0;
+            double farthest = -1;
+            for (int i = 1; i < n; i++) {
+                double dx = p[i * 2] - p[0], dy = p[i * 2 + 1] - p[1];
+                double d = dx * dx + dy * dy;
+                if (d > farthest) {
+                    farthest = d;
+                    far = i;
+                }
+            }
+            keep[far] = true;
+            reduce(p, 0, far, tolerance2, keep);
+            reduce(p, far, last, tolerance2, keep);
+        } else {
+            reduce(p, 0, last, tolerance2, keep);
+        }
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                count++;
+            }
+        }
+        double[] result = new double[count * 2];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result[j++] = p[i * 2];
+                result[j++] = p[i * 2 + 1];
+            }
+        }
+        return result;
+    }
+
+    // iterative, paths with many thousands of points would overflow the stack
+    private static void reduce(double[] p, int first, int last, double tolerance2, boolean[] keep) {
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = first;
+        stack[top++] = last;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            int farthest = -1;
+            double max = tolerance2;
+            for (int i = a + 1; i < b; i++) {
+                double d = distance2(p, i, a, b);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0) {
+                keep[farthest] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = a;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = b;
+            }
+        }
+    }
+
+    // squared distance from point i to the segment from a to b
+    private static double distance2(double[] p, int i, int a, int b) {
+        double ax = p[a * 2], ay = p[a * 2 + 1];
+        double dx = p[b * 2] - ax, dy = p[b * 2 + 1] - ay;
+        double px = p[i * 2] - ax, py = p[i * 2 + 1] - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / len2)) : 0;
+        double ex = px - t * dx, ey = py - t * dy;
+        return ex * ex + ey * ey;
+    }
+
+    // minX, minY, maxX, maxY of the filled area, curves included exactly
+    private static double[] computeBounds(byte[] commands, float[] c) {
+        if (commands.length == 0) {
+            return new double[4];
+        }
+        double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double x = 0, y = 0, startX = 0, startY = 0;
+        int ci = 0;
+        for (byte cmd : commands) {
+            switch (cmd) {
+                case MOVE_TO -> {
+                    x = startX = c[ci];
+                    y = startY = c[ci + 1];
+                    include(b, x, y);
+                }
+                case LINE_TO -> {
+                    x = c[ci];
+                    y = c[ci + 1];
+                    include(b, x, y);
+                }
+                case QUAD_TO -> {
+                    quadExtrema(b, 0, x, c[ci], c[ci + 2]);
+                    quadExtrema(b, 1, y, c[ci + 1], c[ci + 3]);
+                    x = c[ci + 2];
+                    y = c[ci + 3];
+                    include(b, x, y);
+                }
+                case CUBIC_TO -> {
+                    cubicExtrema(b, 0, x, c[ci], c[ci + 2], c[ci + 4]);
+                    cubicExtrema(b, 1, y, c[ci + 1], c[ci + 3], c[ci + 5]);
+                    x = c[ci + 4];
+                    y = c[ci + 5];
+                    include(b, x, y);
+                }
+                case CLOSE -> {
+                    // back to the start, which a following curve begins from
+                    x = startX;
+                    y = startY;
+                }
+                default -> {
+                }
+            }
+            ci += COORD_COUNT[cmd];
+        }
+        return b;
+    }
+
+    private static void include(double[] b, double x, double y) {
+        includeAxis(b, 0, x);
+        includeAxis(b, 1, y);
+    }
+
+    private static void includeAxis(double[] b, int axis, double v) {
+        if (v < b[axis]) {
+            b[axis] = v;
+        }
+        if (v > b[axis + 2]) {
+            b[axis + 2] = v;
+        }
+    }
+
+    private static void quadExtrema(double[] b, int axis, double p0, double p1, double p2) {
+        double denom = p0 - 2 * p1 + p2;
+        if (denom != 0) {
+            double t = (p0 - p1) / denom;
+            if (t > 0 && t < 1) {
+                double mt = 1 - t;
+                includeAxis(b, axis, mt * mt * p0 + 2 * mt * t * p1 + t * t * p2);
+            }
+        }
+    }
+
+    private static void cubicExtrema(double[] b, int axis, double p0, double p1, double p2, double p3) {
+        // derivative is a*t^2 + b*t + c
+        double qa = 3 * (-p0 + 3 * p1 - 3 * p2 + p3);
+        double qb = 6 * (p0 - 2 * p1 + p2);
+        double qc = 3 * (p1 - p0);
+        if (Math.abs(qa) < 1e-12) {
+            if (qb != 0) {
+                cubicAt(b, axis, -qc / qb, p0, p1, p2, p3);
+            }
+            return;
+        }
+        double disc = qb * qb - 4 * qa * qc;
+        if (disc >= 0) {
+            double sq = Math.sqrt(disc);
+            cubicAt(b, axis, (-qb + sq) / (2 * qa), p0, p1, p2, p3);
+            cubicAt(b, axis, (-qb - sq) / (2 * qa), p0, p1, p2, p3);
+        }
+    }
+
+    private static void cubicAt(double[] b, int axis, double t, double p0, double p1, double p2, double p3) {
+        if (t > 0 && t < 1) {
+            double mt = 1 - t;
+            includeAxis(b, axis, mt * mt * mt * p0 + 3 * mt * mt * t * p1 + 3 * mt * t * t * p2 + t * t * t * p3);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof SvgPathData other
+                && Arrays.equals(geometry().commands, other.geometry().commands)
+                && Arrays.equals(geometry().coords, other.geometry().coords);
+    }
+
+    @Override
+    public int hashCode() {
+        Geometry g = geometry();
+        return 31 * Arrays.hashCode(g.commands) + Arrays.hashCode(g.coords);
+    }
+
+    @Override
+    public String toString() {
+        return toSvgContent();
+    }
+
+    // Flattens the curves into lines and removes points, one sub-path at a time
+    private static final class Simplifier {
+        // the most segments for one curve
+        private static final int MAX_SEGMENTS = 256;
+
+        // a quarter of the tolerance for flattening, the rest for removing points
+        private final double flatness;
+        private final double tolerance;
+
+        private double[] points = new double[64];
+        private int pointCount;
+        private byte[] commands = new byte[16];
+        private int commandCount;
+        private float[] coords = new float[64];
+        private int coordCount;
+
+        Simplifier(double tolerance) {
+            this.flatness = tolerance / 4;
+            this.tolerance = tolerance - flatness;
+        }
+
+        SvgPathData simplify(byte[] cmds, float[] c) {
+            double x = 0, y = 0, startX = 0, startY = 0;
+            int ci = 0;
+            for (byte cmd : cmds) {
+                switch (cmd) {
+                    case MOVE_TO -> {
+                        flush(false);
+                        x = startX = c[ci];
+                        y = startY = c[ci + 1];
+                        point(x, y);
+                    }
+                    case LINE_TO -> {
+                        begin(x, y);
+                        x = c[ci];
+                        y = c[ci + 1];
+                        point(x, y);
+                    }
+                    case QUAD_TO -> {
+                        begin(x, y);
+                        quad(x, y, c[ci], c[ci + 1], c[ci + 2], c[ci + 3]);
+                        x = c[ci + 2];
+                        y = c[ci + 3];
+                    }
+                    case CUBIC_TO -> {
+                        begin(x, y);
+                        cubic(x, y, c[ci], c[ci + 1], c[ci + 2], c[ci + 3], c[ci + 4], c[ci + 5]);
+                        x = c[ci + 4];
+                        y = c[ci + 5];
+                    }
+                    default -> {
+                        flush(true);
+                        x = startX;
+                        y = startY;
+                    }
+                }
+                ci += COORD_COUNT[cmd];
+            }
+            flush(false);
+            if (commandCount == 0) {
+                return EMPTY;
+            }
+            return new SvgPathData(Arrays.copyOf(commands, commandCount), Arrays.copyOf(coords, coordCount));
+        }
+
+        // a sub-path after a ClosePath starts where the last one did
+        private void begin(double x, double y) {
+            if (pointCount == 0) {
+                point(x, y);
+            }
+        }
+
+        private void point(double x, double y) {
+            if (pointCount + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[pointCount++] = x;
+            points[pointCount++] = y;
+        }
+
+        // the number of segments from Wang's formula, d(d-1)/8 * M / flatness
+        private int segments(double factor, double dd) {
+            double n = Math.ceil(Math.sqrt(factor * dd / flatness));
+            return (int) Math.max(1, Math.min(MAX_SEGMENTS, n));
+        }
+
+        private void quad(double x0, double y0, double x1, double y1, double x2, double y2) {
+            int n = segments(0.25, Math.hypot(x0 - 2 * x1 + x2, y0 - 2 * y1 + y2));
+            for (int i = 1; i <= n; i++) {
+                double t = (double) i / n, mt = 1 - t;
+                double a = mt * mt, b = 2 * mt * t, c = t * t;
+                point(a * x0 + b * x1 + c * x2, a * y0 + b * y1 + c * y2);
+            }
+        }
+
+        private void cubic(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3) {
+            double dd = Math.max(Math.hypot(x0 - 2 * x1 + x2, y0 - 2 * y1 + y2),
+                    Math.hypot(x1 - 2 * x2 + x3, y1 - 2 * y2 + y3));
+            int n = segments(0.75, dd);
+            for (int i = 1; i <= n; i++) {
+                double t = (double) i / n, mt = 1 - t;
+                double a = mt * mt * mt, b = 3 * mt * mt * t, c = 3 * mt * t * t, d = t * t * t;
+                point(a * x0 + b * x1 + c * x2 + d * x3, a * y0 + b * y1 + c * y2 + d * y3);
+            }
+        }
+
+        // a single point draws nothing unless it is closed
+        private void flush(boolean closed) {
+            if (pointCount > 2 || closed && pointCount == 2) {
+                double[] kept = simplifyPoints(points, pointCount, closed, tolerance);
+                add(MOVE_TO, kept[0], kept[1]);
+                for (int i = 2; i < kept.length; i += 2) {
+                    add(LINE_TO, kept[i], kept[i + 1]);
+                }
+                if (closed) {
+                    add(CLOSE);
+                }
+            }
+            pointCount = 0;
+        }
+
+        private void add(byte cmd, double... values) {
+            if (commandCount == commands.length) {
+                commands = Arrays.copyOf(commands, commandCount * 2);
+            }
+            commands[commandCount++] = cmd;
+            if (coordCount + values.length > coords.length) {
+                coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + values.length));
+            }
+            for (double v : values) {
+                coords[coordCount++] = (float) v;
+            }
+        }
+    }
+
+    // the compiled commands and their bounds
+    private static final class Geometry {
+        final byte[] commands;
+        final float[] coords;
+        final double minX, minY, maxX, maxY;
+
+        Geometry(byte[] commands, float[] coords) {
+            this.commands = commands;
+            this.coords = coords;
+            double[] b = computeBounds(commands, coords);
+            minX = b[0];
+            minY = b[1];
+            maxX = b[2];
+            maxY = b[3];
+        }
+    }
+
+    // Parses SVG path syntax into commands and absolute coordinates
+    private static final class Compiler {
+        private final CharSequence d;
+        private final SvgLexer lexer;
+
+        private byte[] commands = new byte[16];
+        private int commandCount;
+        private float[] coords = new float[64];
+        private int coordCount;
+
+        // current point, start of the sub-path and the last control point
+        private double x, y, startX, startY, ctrlX, ctrlY;
+        private char lastCommand;
+        private String error;
+
+        Compiler(CharSequence d) {
+            this.d = d;
+            this.lexer = new SvgLexer(d);
+        }
+
+        Geometry compile() {
+            parse();
+            if (error != null) {
+                LOGGER.log(Level.WARNING, () -> "Bad path data, " + error + ": " + d);
+            }
+            if (commandCount == 0) {
+                return EMPTY.geometry;
+            }
+            return new Geometry(Arrays.copyOf(commands, commandCount), Arrays.copyOf(coords, coordCount));
+        }
+
+        // stops at the first error, keeping the commands before it
+        private void parse() {
+            lexer.skipSeparator();
+            while (!lexer.atEnd() && error == null) {
+                char c = lexer.peek();
+                char cmd;
+                if (isCommand(c)) {
+                    cmd = c;
+                    lexer.consume(c);
+                } else if (lastCommand != 0 && lastCommand != 'Z' && lastCommand != 'z' && isNumberStart(c)) {
+                    // implicit repeat, a MoveTo is followed by LineTo
+                    cmd = switch (lastCommand) {
+                        case 'M' -> 'L';
+                        case 'm' -> 'l';
+                        default -> lastCommand;
+                    };
+                } else {
+                    error = "unexpected '" + c + "' at " + lexer.position();
+                    return;
+                }
+                if (lastCommand == 0 && cmd != 'M' && cmd != 'm') {
+                    error = "path must start with a moveto";
+                    return;
+                }
+                command(cmd);
+                lastCommand = cmd;
+                lexer.skipSeparator();
+            }
+        }
+
+        private void command(char cmd) {
+            boolean rel = Character.isLowerCase(cmd);
+            double ox = rel ? x : 0;
+            double oy = rel ? y : 0;
+            switch (Character.toUpperCase(cmd)) {
+                case 'M' -> {
+                    x = ox + number();
+                    y = oy + number();
+                    startX = x;
+                    startY = y;
+                    add(MOVE_TO, x, y);
+                    ctrlX = x;
+                    ctrlY = y;
+                }
+                case 'L' -> {
+                    x = ox + number();
+                    y = oy + number();
+                    lineTo();
+                }
+                case 'H' -> {
+                    x = ox + number();
+                    lineTo();
+                }
+                case 'V' -> {
+                    y = oy + number();
+                    lineTo();
+                }
+                case 'C' -> {
+                    double x1 = ox + number(), y1 = oy + number();
+                    double x2 = ox + number(), y2 = oy + number();
+                    x = ox + number();
+                    y = oy + number();
+                    cubicTo(x1, y1, x2, y2);
+                }
+                case 'S' -> {
+                    boolean smooth = isAny(lastCommand, "CcSs");
+                    // reflection of the previous control point about the current point
+                    double x1 = smooth ? 2 * x - ctrlX : x;
+                    double y1 = smooth ? 2 * y - ctrlY : y;
+                    double x2 = ox + number(), y2 = oy + number();
+                    x = ox + number();
+                    y = oy + number();
+                    cubicTo(x1, y1, x2, y2);
+                }
+                case 'Q' -> {
+                    double x1 = ox + number(), y1 = oy + number();
+                    x = ox + number();
+                    y = oy + number();
+                    quadTo(x1, y1);
+                }
+                case 'T' -> {
+                    boolean smooth = isAny(lastCommand, "QqTt");
+                    double x1 = smooth ? 2 * x - ctrlX : x;
+                    double y1 = smooth ? 2 * y - ctrlY : y;
+                    x = ox + number();
+                    y = oy + number();
+                    quadTo(x1, y1);
+                }
+                case 'A' -> {
+                    double rx = number(), ry = number(), angle = number();
+                    boolean largeArc = flag(), sweep = flag();
+                    double x0 = x, y0 = y;
+                    x = ox + number();
+                    y = oy + number();
+                    arcTo(x0, y0, rx, ry, angle, largeArc, sweep);
+                    ctrlX = x;
+                    ctrlY = y;
+                }
+                case 'Z' -> {
+                    add(CLOSE);
+                    x = startX;
+                    y = startY;
+                    ctrlX = x;
+                    ctrlY = y;
+                }
+                default -> error = "unknown command '" + cmd + "'";
+            }
+        }
+
+        private void lineTo() {
+            add(LINE_TO, x, y);
+            ctrlX = x;
+            ctrlY = y;
+        }
+
+        private void quadTo(double x1, double y1) {
+            add(QUAD_TO, x1, y1, x, y);
+            ctrlX = x1;
+            ctrlY = y1;
+        }
+
+        private void cubicTo(double x1, double y1, double x2, double y2) {
+            add(CUBIC_TO, x1, y1, x2, y2, x, y);
+            ctrlX = x2;
+            ctrlY = y2;
+        }
+
+        // SVG 1.1 implementation notes F.6, endpoint to center parameterization
+        private void arcTo(double x0, double y0, double rx, double ry, double angle, boolean largeArc, boolean sweep) {
+            if (x0 == x && y0 == y) {
+                return;
+            }
+            rx = Math.abs(rx);
+            ry = Math.abs(ry);
+            if (rx == 0 || ry == 0) {
+                add(LINE_TO, x, y);
+                return;
+            }
+            double phi = Math.toRadians(angle % 360.0);
+            double cos = Math.cos(phi);
+            double sin = Math.sin(phi);
+            double dx2 = (x0 - x) / 2;
+            double dy2 = (y0 - y) / 2;
+            double x1p = cos * dx2 + sin * dy2;
+            double y1p = -sin * dx2 + cos * dy2;
+            double lambda = (x1p * x1p) / (rx * rx) + (y1p * y1p) / (ry * ry);
+            if (lambda > 1) {
+                double s = Math.sqrt(lambda);
+                rx *= s;
+                ry *= s;
+            }
+            double rx2 = rx * rx, ry2 = ry * ry;
+            double num = rx2 * ry2 - rx2 * y1p * y1p - ry2 * x1p * x1p;
+            double den = rx2 * y1p * y1p + ry2 * x1p * x1p;
+            double coef = Math.sqrt(Math.max(0, num / den)) * (largeArc == sweep ? -1 : 1);
+            double cxp = coef * rx * y1p / ry;
+            double cyp = -coef * ry * x1p / rx;
+            double cx = cos * cxp - sin * cyp + (x0 + x) / 2;
+            double cy = sin * cxp + cos * cyp + (y0 + y) / 2;
+            double ux = (x1p - cxp) / rx, uy = (y1p - cyp) / ry;
+            double vx = (-x1p - cxp) / rx, vy = (-y1p - cyp) / ry;
+            double theta = Math.atan2(uy, ux);
+            double delta = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+            if (!sweep && delta > 0) {
+                delta -= 2 * Math.PI;
+            } else if (sweep && delta < 0) {
+                delta += 2 * Math.PI;
+            }
+            int segments = Math.max(1, (int) Math.ceil(Math.abs(delta) / (Math.PI / 2) - 1e-7));
+            double step = delta / segments;
+            double t = 4.0 / 3.0 * Math.tan(step / 4);
+            double cos1 = Math.cos(theta), sin1 = Math.sin(theta);
+            for (int i = 0; i < segments; i++) {
+                double th2 = theta + (i + 1) * step;
+                double cos2 = Math.cos(th2), sin2 = Math.sin(th2);
+                double p1x = cos1 - t * sin1, p1y = sin1 + t * cos1;
+                double p2x = cos2 + t * sin2, p2y = sin2 - t * cos2;
+                boolean last = i == segments - 1;
+                add(CUBIC_TO,
+                        cx + rx * cos * p1x - ry * sin * p1y, cy + rx * sin * p1x + ry * cos * p1y,
+                        cx + rx * cos * p2x - ry * sin * p2y, cy + rx * sin * p2x + ry * cos * p2y,
+                        last ? x : cx + rx * cos * cos2 - ry * sin * sin2,
+                        last ? y : cy + rx * sin * cos2 + ry * cos * sin2);
+                cos1 = cos2;
+                sin1 = sin2;
+            }
+        }
+
+        private void add(byte cmd, double... values) {
+            if (error != null) {
+                return; // incomplete command
+            }
+            if (commandCount == commands.length) {
+                commands = Arrays.copyOf(commands, commandCount * 2);
+            }
+            commands[commandCount++] = cmd;
+            if (coordCount + values.length > coords.length) {
+                coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + values.length));
+            }
+            for (double v : values) {
+                coords[coordCount++] = (float) v;
+            }
+        }
+
+        private static boolean isCommand(char c) {
+            return "MmLlHhVvCcSsQqTtAaZz".indexOf(c) >= 0;
+        }
+
+        private static boolean isAny(char c, String chars) {
+            return c != 0 && chars.indexOf(c) >= 0;
+        }
+
+        private static boolean isNumberStart(char c) {
+            return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+        }
+
+        // arc flags are a single 0 or 1 and need not be separated
+        private boolean flag() {
+            lexer.skipSeparator();
+            int f = lexer.flag();
+            if (f < 0 && error == null) {
+                error = "expected a flag at " + lexer.position();
+            }
+            return f == 1;
+        }
+
+        private double number() {
+            lexer.skipSeparator();
+            double v = lexer.number();
+            if (Double.isNaN(v)) {
+                if (error == null) {
+                    error = "expected a number at " + lexer.position();
+                }
+                return 0;
+            }
+            return v;
+        }
+    }
+}
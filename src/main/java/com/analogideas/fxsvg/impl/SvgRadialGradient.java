@@ -15,90 +15,52 @@
  */
 package com.analogideas.fxsvg.impl;
 
-import com.analogideas.fxsvg.SVGReader;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.Paint;
 import javafx.scene.paint.RadialGradient;
 import javafx.scene.paint.Stop;
-import javafx.scene.transform.Transform;
 
 /**
  *
  * @author scott
  */
-public class SvgRadialGradient implements SvgContainer, SvgObjWithId {
-    Map<String, Object> defs;
-    List<Stop> stops = new ArrayList<>();
-    String id;
-    double fx;
-    double fy;
-    double cx;
-    double cy;
-    double r;
-    boolean proportional = true;
-    CycleMethod cycle = CycleMethod.NO_CYCLE;
-    String transform;
-    String href;
+public class SvgRadialGradient extends SvgGradient {
+    // NaN when not set
+    double fx = Double.NaN;
+    double fy = Double.NaN;
+    double cx = Double.NaN;
+    double cy = Double.NaN;
+    double r = Double.NaN;
 
     public SvgRadialGradient(Map<String, Object> defs) {
-        this.defs = defs;
+        super(defs);
     }
-    
 
     @Override
-    public void id(String id) {
-        this.id = id;
-    }
-
-    @Override
-    public void add(SvgData svgObj) {
-        if (svgObj instanceof SvgStop svgStop) {
-            stops.add((Stop) svgStop.obj());
-        }
-    }
-
-    @Override
-    public String id() {
-        return id;
-    }
-
-    @Override
-    public Object obj() {
-        if (stops.isEmpty() && href != null) {
-            Object other = defs.get(href);
-            if (other instanceof RadialGradient otherGrad) {
-                stops.addAll(otherGrad.getStops());
-            }
-        }
-
+    Paint build(List<SvgGradient> chain, List<Stop> stops, boolean proportional,
+            CycleMethod cycle, double[] transform) {
+        Class<SvgRadialGradient> kind = SvgRadialGradient.class;
+        double cx = inherit(chain, kind, g -> g.cx, 0.5);
+        double cy = inherit(chain, kind, g -> g.cy, 0.5);
+        double r = inherit(chain, kind, g -> g.r, 0.5);
+        // the focus is the center unless it is set
+        double[] f = transform(transform, inherit(chain, kind, g -> g.fx, cx), inherit(chain, kind, g -> g.fy, cy));
+        double[] c = transform(transform, cx, cy);
         if (transform != null) {
-            // deal with gradient transform
-            Transform t = SVGReader.transformsFromString(transform);
-            var cp = t.transform(cx, cy);
-            cx = cp.getX(); 
-            cy = cp.getY();
-            var fp = t.transform(fx, fy);
-            fx = fp.getX();
-            fy = fp.getY();
-            var po = t.transform(0, 0); // transform origin so we can calc new 'r'
-            var pr = t.transform(r, 0); // since 'r' should only be scaled
-            var drx = pr.getX()-po.getX();
-            var dry = pr.getY()-po.getY();
-            r = Math.sqrt(drx*drx+dry*dry);
-            //System.out.println("After transform: cx="+cx+", cy="+cy+", fx="+fx+", fy="+fy+", r="+r);
+            // 'r' should only be scaled
+            double[] po = transform(transform, 0, 0);
+            double[] pr = transform(transform, r, 0);
+            r = Math.hypot(pr[0] - po[0], pr[1] - po[1]);
         }
         // convert fx,fy to polar coords.
-        double dx = fx-cx;
-        double dy = fy-cy;
-        double fDist = Math.sqrt(dx * dx + dy * dy);
-        double theta = Math.atan2(dy, dx);
-        double fAngle = Math.toDegrees(theta);
+        double dx = f[0] - c[0];
+        double dy = f[1] - c[1];
+        double fAngle = Math.toDegrees(Math.atan2(dy, dx));
         //fDist is relative to radius for JavaFX RadialGradient
-        fDist = fDist/r;
-        RadialGradient gradient = new RadialGradient(fAngle, fDist, cx, cy, r, proportional, cycle, stops);
-        return gradient;
+        double fDist = r > 0 ? Math.hypot(dx, dy) / r : 0.0;
+        return new RadialGradient(fAngle, fDist, c[0], c[1], r, proportional, cycle, stops);
     }
 
     public void setFx(double fx) {
@@ -120,22 +82,4 @@ public class SvgRadialGradient implements SvgContainer, SvgObjWithId {
     public void setR(double r) {
         this.r = r;
     }
-    
-    public void setCycleMethod(CycleMethod cycle) {
-        this.cycle = cycle;
-    }
-    
-    public void setProportional(boolean prop) {
-        this.proportional = prop;
-    }
-    
-    public void setTransform(String transform) {
-        this.transform = transform;
-    }
-
-    // currently only used to inherit stops
-    public void setHref(String href) {
-        this.href = href;
-    }
-
 }
@@ -15,7 +15,6 @@
  */
 package com.analogideas.fxsvg.impl;
 
-import javafx.scene.paint.Color;
 import javafx.scene.paint.Stop;
 
 /**
@@ -53,12 +52,7 @@ public class SvgStop implements SvgObjWithId {
 
     @Override
     public Object obj() {
-        if (opacity != 1.0) {
-            javafx.scene.paint.Color c = Color.valueOf(color);
-            c = c.deriveColor(0, 1.0, 1.0, opacity);
-            return new Stop(offset, c);
-        }
-        return new Stop(offset, Color.valueOf(color));
+        return new Stop(offset, SvgPaints.color(color, opacity));
     }
 
     @Override
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+/**
+ * Template for a symbol.  A symbol is only drawn by a use element, which
+ * may give it a viewport that the viewBox of the symbol is fitted to.
+ *
+ * @author scott
+ */
+public class SvgSymbol extends SvgGroup {
+
+    // minX, minY, width, height
+    private double[] viewBox;
+    private String preserveAspectRatio;
+    // NaN when not given
+    private double width = Double.NaN;
+    private double height = Double.NaN;
+
+    public void setViewBox(double[] viewBox) {
+        this.viewBox = viewBox.length == 4 && viewBox[2] > 0 && viewBox[3] > 0 ? viewBox : null;
+    }
+
+    public void setPreserveAspectRatio(String preserveAspectRatio) {
+        this.preserveAspectRatio = preserveAspectRatio;
+    }
+
+    public void setWidth(double width) {
+        this.width = width;
+    }
+
+    public void setHeight(double height) {
+        this.height = height;
+    }
+
+    /**
+     * The transform that fits the viewBox into the viewport of a use.  The
+     * size of the viewport is that of the use, or else that of the symbol.
+     * @param useWidth the width given by the use, or NaN
+     * @param useHeight the height given by the use, or NaN
+     * @return the transform in JavaFX row order, or null if there is no
+     * viewBox or the viewport has no size
+     */
+    public double[] viewBoxTransform(double useWidth, double useHeight) {
+        double w = Double.isNaN(useWidth) ? width : useWidth;
+        double h = Double.isNaN(useHeight) ? height : useHeight;
+        if (viewBox == null || !(w > 0) || !(h > 0)) {
+            return null;
+        }
+        double sx = w / viewBox[2];
+        double sy = h / viewBox[3];
+        String align = "xMidYMid";
+        boolean slice = false;
+        if (preserveAspectRatio != null) {
+            String[] parts = preserveAspectRatio.trim().split("\\s+");
+            align = parts[0];
+            slice = parts.length > 1 && "slice".equals(parts[1]);
+        }
+        double tx = -viewBox[0] * sx;
+        double ty = -viewBox[1] * sy;
+        if (!"none".equals(align)) {
+            double s = slice ? Math.max(sx, sy) : Math.min(sx, sy);
+            sx = s;
+            sy = s;
+            tx = -viewBox[0] * s + offset(align, "xMid", "xMax", w - viewBox[2] * s);
+            ty = -viewBox[1] * s + offset(align, "YMid", "YMax", h - viewBox[3] * s);
+        }
+        return new double[] {sx, 0, tx, 0, sy, ty};
+    }
+
+    private static double offset(String align, String mid, String max, double space) {
+        return align.contains(mid) ? space / 2 : align.contains(max) ? space : 0;
+    }
+
+}
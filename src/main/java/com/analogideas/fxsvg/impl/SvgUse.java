@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.transform.Affine;
+
+/**
+ * Template for a use element.  It refers to the template of the element
+ * it uses rather than copying it, so the geometry, paints and strings are
+ * shared by every use of the element.  A use only adds its own id, opacity,
+ * clip and transform, which includes the x and y position and the viewBox
+ * of a symbol.
+ * <p>
+ * Each use creates a new Node for the element, since JavaFX doesn't allow a
+ * Node to be in the scene graph twice.  The Node doesn't get the id of the
+ * element, so ids are not repeated for each use.  The Node is only put in a
+ * Group when the use has an id, a clip or extensions.
+ *
+ * @author scott
+ */
+public class SvgUse extends SvgElement {
+
+    SvgElement target;
+
+    /**
+     * The element this use refers to.
+     * @return the element, or null if it hasn't been found
+     */
+    public SvgElement target() {
+        return target;
+    }
+
+    /**
+     * Sets the element to draw, unless that would draw this use inside
+     * itself.  The element is marked as shared so it won't be changed when
+     * transforms are baked.
+     * @param target the element
+     * @return false if the element contains this use
+     */
+    public boolean setTarget(SvgElement target) {
+        if (contains(target, this, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+            return false;
+        }
+        this.target = target;
+        target.shared = true;
+        return true;
+    }
+
+    private static boolean contains(SvgElement e, SvgUse use, Set<SvgElement> visited) {
+        if (e == use) {
+            return true;
+        }
+        if (!visited.add(e)) {
+            return false;
+        }
+        if (e instanceof SvgUse u && u.target != null) {
+            return contains(u.target, use, visited);
+        }
+        if (e instanceof SvgGroup g) {
+            for (SvgElement child : g.children) {
+                if (contains(child, use, visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    Node newNode(boolean withId) {
+        if (target == null) {
+            Group group = new Group();
+            applyTo(group, withId);
+            return group;
+        }
+        Node node = target.newNode(false);
+        if (wraps(withId)) {
+            Group group = new Group(node);
+            applyTo(group, withId);
+            return group;
+        }
+        // one Node rather than a Group with one child
+        if (transform != null) {
+            double[] t = transform;
+            node.getTransforms().add(0, new Affine(t[0], t[1], t[2], t[3], t[4], t[5]));
+        }
+        if (opacity != 1.0) {
+            node.setOpacity(node.getOpacity() * opacity);
+        }
+        return node;
+    }
+
+    @Override
+    void intern() {
+        super.intern();
+        if (target != null) {
+            target.intern();
+        }
+    }
+
+    /**
+     * Checks if the Node of the element is put in a Group, which is only
+     * needed for the id, clip or extensions of the use.  Otherwise the
+     * transform and opacity of the use are applied to the Node of the
+     * element.
+     * @return true if the Node of this use is a Group
+     */
+    boolean wraps() {
+        return wraps(true);
+    }
+
+    boolean wraps(boolean withId) {
+        return (withId && id != null) || clip != null || customizers != null;
+    }
+
+    @Override
+    double[] localBounds() {
+        return target != null ? target.bounds() : null;
+    }
+
+    // the element is counted where it is defined, not for each use
+    @Override
+    public long weight() {
+        return super.weight() + 16;
+    }
+
+    @Override
+    public int nodeCount() {
+        if (target == null) {
+            return super.nodeCount();
+        }
+        return wraps() ? super.nodeCount() + target.nodeCount() : target.nodeCount();
+    }
+
+}
@@ -1,6 +1,8 @@
 module com.analogideas.fxsvg {
     requires java.logging;
+    requires java.management;
     requires java.xml;
+    requires jdk.jfr;
     requires javafx.controls;
     exports com.analogideas.fxsvg;
 }
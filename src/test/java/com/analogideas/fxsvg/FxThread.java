@@ -0,0 +1,60 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import org.junit.jupiter.api.Assumptions;
+
+/**
+ * Runs test code on the JavaFX Application Thread.  The platform is started
+ * once for all of the tests.  Where it can't start, e.g. with no display and
+ * no Monocle, the tests that need it are skipped rather than failed.
+ *
+ * @author scott
+ */
+final class FxThread {
+
+    private static Boolean started;
+
+    private FxThread() {
+    }
+
+    static synchronized void start() {
+        if (started == null) {
+            try {
+                CountDownLatch latch = new CountDownLatch(1);
+                Platform.startup(latch::countDown);
+                started = latch.await(10, TimeUnit.SECONDS);
+            } catch (IllegalStateException alreadyStarted) {
+                started = true;
+            } catch (RuntimeException | LinkageError | InterruptedException ex) {
+                started = false;
+            }
+        }
+        Assumptions.assumeTrue(started, "The JavaFX platform couldn't be started");
+    }
+
+    static <T> T call(Callable<T> task) throws Exception {
+        start();
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        return future.get(30, TimeUnit.SECONDS);
+    }
+}
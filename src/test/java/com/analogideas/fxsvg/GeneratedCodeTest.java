@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.SVGPath;
+import javafx.scene.shape.Shape;
+import javafx.scene.text.Text;
+import javafx.scene.transform.Transform;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the classes generated from the test SVG files by
+ * {@link SvgCodeGenerator} build the same Nodes as
+ * {@link SVGReader#buildNode()} with the same {@link SvgUnitContext#CSS},
+ * comparing the trees Node by Node.  The classes are generated by the
+ * {@code generateSvgJava} task in {@code build.gradle}.  The first
+ * difference in each file is reported.
+ *
+ * @author scott
+ */
+class GeneratedCodeTest {
+
+    static final String PACKAGE = "com.analogideas.fxsvg.generated";
+    static final File RESOURCES = new File("src/test/resources");
+
+    private final List<String> differences = new ArrayList<>();
+
+    @Test
+    void generatedClassesBuildTheSameNodes() throws Exception {
+        FxThread.start();
+        File[] files = RESOURCES.listFiles((dir, name) -> name.toLowerCase().endsWith(".svg"));
+        assertFalse(files == null || files.length == 0, "No SVG files in " + RESOURCES.getAbsolutePath());
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            SVGReader reader = new SVGReader(file);
+            reader.setUnitContext(SvgUnitContext.CSS);
+            Group expected = reader.buildNode();
+            Class<?> generated = Class.forName(PACKAGE + '.' + SvgCodeGenerator.className(name));
+            Group actual = (Group) generated.getMethod("newInstance").invoke(null);
+            compare(name, expected, actual);
+        }
+        assertTrue(differences.isEmpty(), String.join("\n", differences));
+    }
+
+    // stops at the first difference in the tree
+    private boolean compare(String where, Node expected, Node actual) {
+        if (expected == null || actual == null) {
+            return same(where, "node", expected, actual);
+        }
+        where = where + '/' + expected.getClass().getSimpleName() + (expected.getId() != null ? '#' + expected.getId() : "");
+        if (!same(where, "class", expected.getClass(), actual.getClass())
+                || !same(where, "id", expected.getId(), actual.getId())
+                || !same(where, "opacity", expected.getOpacity(), actual.getOpacity())
+                || !same(where, "transforms", matrices(expected.getTransforms()), matrices(actual.getTransforms()))
+                || !compare(where + "/clip", expected.getClip(), actual.getClip())) {
+            return false;
+        }
+        if (expected instanceof Shape e && !compareShape(where, e, (Shape) actual)) {
+            return false;
+        }
+        if (expected instanceof Parent e) {
+            List<Node> ec = e.getChildrenUnmodifiable();
+            List<Node> ac = ((Parent) actual).getChildrenUnmodifiable();
+            if (!same(where, "children", ec.size(), ac.size())) {
+                return false;
+            }
+            for (int i = 0; i < ec.size(); i++) {
+                if (!compare(where, ec.get(i), ac.get(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean compareShape(String where, Shape e, Shape a) {
+        if (!same(where, "fill", e.getFill(), a.getFill())
+                || !same(where, "stroke", e.getStroke(), a.getStroke())
+                || !same(where, "strokeWidth", e.getStrokeWidth(), a.getStrokeWidth())
+                || !same(where, "strokeMiterLimit", e.getStrokeMiterLimit(), a.getStrokeMiterLimit())
+                || !same(where, "strokeLineCap", e.getStrokeLineCap(), a.getStrokeLineCap())
+                || !same(where, "strokeLineJoin", e.getStrokeLineJoin(), a.getStrokeLineJoin())
+                || !same(where, "strokeDashArray", e.getStrokeDashArray(), a.getStrokeDashArray())) {
+            return false;
+        }
+        if (e instanceof SVGPath p) {
+            return same(where, "content", p.getContent(), ((SVGPath) a).getContent())
+                    && same(where, "fillRule", p.getFillRule(), ((SVGPath) a).getFillRule());
+        } else if (e instanceof Path p) {
+            return same(where, "elements", elements(p.getElements()), elements(((Path) a).getElements()))
+                    && same(where, "fillRule", p.getFillRule(), ((Path) a).getFillRule());
+        } else if (e instanceof Polygon p) {
+            return same(where, "points", p.getPoints(), ((Polygon) a).getPoints());
+        } else if (e instanceof Polyline p) {
+            return same(where, "points", p.getPoints(), ((Polyline) a).getPoints());
+        } else if (e instanceof Line l) {
+            Line b = (Line) a;
+            return same(where, "line", List.of(l.getStartX(), l.getStartY(), l.getEndX(), l.getEndY()),
+                    List.of(b.getStartX(), b.getStartY(), b.getEndX(), b.getEndY()));
+        } else if (e instanceof Rectangle r) {
+            Rectangle b = (Rectangle) a;
+            return same(where, "rect", List.of(r.getX(), r.getY(), r.getWidth(), r.getHeight(), r.getArcWidth(), r.getArcHeight()),
+                    List.of(b.getX(), b.getY(), b.getWidth(), b.getHeight(), b.getArcWidth(), b.getArcHeight()));
+        } else if (e instanceof Circle c) {
+            Circle b = (Circle) a;
+            return same(where, "circle", List.of(c.getCenterX(), c.getCenterY(), c.getRadius()),
+                    List.of(b.getCenterX(), b.getCenterY(), b.getRadius()));
+        } else if (e instanceof Ellipse c) {
+            Ellipse b = (Ellipse) a;
+            return same(where, "ellipse", List.of(c.getCenterX(), c.getCenterY(), c.getRadiusX(), c.getRadiusY()),
+                    List.of(b.getCenterX(), b.getCenterY(), b.getRadiusX(), b.getRadiusY()));
+        } else if (e instanceof Text t) {
+            Text b = (Text) a;
+            return same(where, "text", List.of(t.getX(), t.getY(), t.getText(), t.getFont()),
+                    List.of(b.getX(), b.getY(), b.getText(), b.getFont()));
+        }
+        return true;
+    }
+
+    private boolean same(String where, String property, Object expected, Object actual) {
+        if (Objects.equals(expected, actual)) {
+            return true;
+        }
+        differences.add(where + ": " + property + " expected " + expected + " but was " + actual);
+        return false;
+    }
+
+    private static List<List<Double>> matrices(List<Transform> transforms) {
+        List<List<Double>> m = new ArrayList<>();
+        for (Transform t : transforms) {
+            m.add(List.of(t.getMxx(), t.getMxy(), t.getTx(), t.getMyx(), t.getMyy(), t.getTy()));
+        }
+        return m;
+    }
+
+    // PathElements don't implement equals
+    private static List<List<Object>> elements(List<PathElement> elements) {
+        List<List<Object>> list = new ArrayList<>(elements.size());
+        for (PathElement pe : elements) {
+            if (pe instanceof MoveTo m) {
+                list.add(List.of("M", m.getX(), m.getY()));
+            } else if (pe instanceof LineTo l) {
+                list.add(List.of("L", l.getX(), l.getY()));
+            } else if (pe instanceof QuadCurveTo q) {
+                list.add(List.of("Q", q.getControlX(), q.getControlY(), q.getX(), q.getY()));
+            } else if (pe instanceof CubicCurveTo c) {
+                list.add(List.of("C", c.getControlX1(), c.getControlY1(), c.getControlX2(), c.getControlY2(), c.getX(), c.getY()));
+            } else if (pe instanceof ClosePath) {
+                list.add(List.of("Z"));
+            } else {
+                list.add(List.of(pe.getClass().getName()));
+            }
+        }
+        return list;
+    }
+}
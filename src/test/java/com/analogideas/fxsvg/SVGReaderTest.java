@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author scott
+ */
+class SVGReaderTest {
+
+    private static SvgDocument read(String svg) throws XMLStreamException {
+        return new SVGReader(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), "t").readDocument();
+    }
+
+    @Test
+    void textWithTspan() throws Exception {
+        SvgDocument document = read("""
+                <svg xmlns="http://www.w3.org/2000/svg">
+                  <g id="g">
+                    <text x="1" y="2">Hi <tspan font-weight="bold">there<tspan/></tspan>!</text>
+                    <rect width="3" height="4"/>
+                  </g>
+                  <rect width="5" height="6"/>
+                </svg>
+                """);
+        FxThread.call(() -> {
+            Group root = document.newInstance();
+            assertEquals(2, root.getChildren().size());
+            Group g = (Group) root.getChildren().get(0);
+            assertEquals("t-g", g.getId());
+            assertEquals(2, g.getChildren().size());
+            assertEquals("Hi there!", ((Text) g.getChildren().get(0)).getText());
+            assertTrue(g.getChildren().get(1) instanceof Rectangle);
+            assertEquals(5.0, ((Rectangle) root.getChildren().get(1)).getWidth());
+            return null;
+        });
+    }
+
+    @Test
+    void clipPathOutsideDefsIsNotDrawn() throws Exception {
+        SvgDocument document = read("""
+                <svg xmlns="http://www.w3.org/2000/svg">
+                  <clipPath id="c"><rect width="10" height="10"/></clipPath>
+                  <rect width="20" height="30" clip-path="url(#c)"/>
+                </svg>
+                """);
+        FxThread.call(() -> {
+            Group root = document.newInstance();
+            assertEquals(1, root.getChildren().size());
+            Rectangle r = (Rectangle) root.getChildren().get(0);
+            assertEquals(20.0, r.getWidth());
+            assertEquals(10.0, r.getClip().getBoundsInLocal().getWidth());
+            return null;
+        });
+    }
+
+    @Test
+    void usesAndClipsDontRepeatTheId() throws Exception {
+        SvgDocument document = read("""
+                <svg xmlns="http://www.w3.org/2000/svg">
+                  <defs>
+                    <path id="p" d="M0 0 L10 0 L10 10 Z"/>
+                    <clipPath id="c"><rect width="5" height="5"/></clipPath>
+                  </defs>
+                  <use href="#p" x="1"/>
+                  <use id="u" href="#p" x="2" clip-path="url(#c)"/>
+                </svg>
+                """);
+        FxThread.call(() -> {
+            SvgInstance instance = document.newIndexedInstance();
+            Group root = instance.getNode();
+            assertEquals(2, root.getChildren().size());
+            Node first = root.getChildren().get(0);
+            assertNull(first.getId());
+            Group second = (Group) root.getChildren().get(1);
+            assertEquals("t-u", second.getId());
+            assertNull(second.getChildren().get(0).getId());
+            assertNull(second.getClip().getId());
+            assertSame(second, instance.lookup("u"));
+            // the first use of an element is still found by the id of the element
+            assertSame(first, instance.lookup("p"));
+            return null;
+        });
+    }
+}
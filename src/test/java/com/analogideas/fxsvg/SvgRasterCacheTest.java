@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import javafx.scene.image.WritableImage;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The images are only made from empty documents, which are never
+ * rendered, so these run without a snapshot.
+ *
+ * @author scott
+ */
+class SvgRasterCacheTest {
+
+    private static SvgDocument empty() throws XMLStreamException {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>";
+        return new SVGReader(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), "empty").readDocument();
+    }
+
+    @Test
+    void emptyDocumentGivesTransparentSquare() throws Exception {
+        SvgDocument document = empty();
+        WritableImage image = FxThread.call(() -> new SvgRasterCache(1 << 20).image(document, 16, 2.0));
+        assertEquals(32.0, image.getWidth());
+        assertEquals(32.0, image.getHeight());
+        assertEquals(0, image.getPixelReader().getArgb(15, 15));
+    }
+
+    @Test
+    void imagesAreSharedByDocumentSizeAndScale() throws Exception {
+        SvgDocument document = empty();
+        SvgDocument other = empty();
+        FxThread.call(() -> {
+            SvgRasterCache cache = new SvgRasterCache(1 << 20);
+            WritableImage image = cache.image(document, 16, 1.0);
+            assertSame(image, cache.image(document, 16, 1.0));
+            assertNotSame(image, cache.image(document, 16, 2.0));
+            assertNotSame(image, cache.image(document, 24, 1.0));
+            assertNotSame(image, cache.image(other, 16, 1.0));
+            return null;
+        });
+    }
+
+    @Test
+    void leastRecentlyUsedImageIsEvicted() throws Exception {
+        SvgDocument document = empty();
+        FxThread.call(() -> {
+            // 4 bytes a pixel: 400, 576 and 484 bytes
+            SvgRasterCache cache = new SvgRasterCache(1000);
+            WritableImage ten = cache.image(document, 10, 1.0);
+            WritableImage twelve = cache.image(document, 12, 1.0);
+            // used again, so twelve is now the least recently used
+            assertSame(ten, cache.image(document, 10, 1.0));
+            WritableImage eleven = cache.image(document, 11, 1.0);
+            assertSame(ten, cache.image(document, 10, 1.0));
+            assertSame(eleven, cache.image(document, 11, 1.0));
+            assertNotSame(twelve, cache.image(document, 12, 1.0));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import javafx.scene.Group;
+import javafx.scene.shape.Rectangle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads absolute units without starting the JavaFX platform.  Run on its
+ * own the toolkit isn't running and the Screen can't be used, so the
+ * default context falls back to 96 pixels per inch.  After other tests
+ * have started the platform it asks the Screen on the FX thread.
+ *
+ * @author scott
+ */
+class SvgUnitContextTest {
+
+    private static final String SVG = """
+            <svg xmlns="http://www.w3.org/2000/svg">
+              <rect width="72pt" height="25.4mm"/>
+              <rect width="1in" height="2.54cm" style="stroke-width:6pt"/>
+            </svg>
+            """;
+
+    private static Group build(SvgUnitContext units) throws Exception {
+        SVGReader reader = new SVGReader(new ByteArrayInputStream(SVG.getBytes(StandardCharsets.UTF_8)), "t");
+        reader.setUnitContext(units);
+        return reader.buildNode();
+    }
+
+    @Test
+    void screenContextWithoutPlatform() throws Exception {
+        SvgUnitContext units = SvgUnitContext.screen();
+        Group root = build(units);
+        double dpi = units.dpi();
+        assertTrue(dpi > 0, "dpi " + dpi);
+        for (var node : root.getChildren()) {
+            Rectangle r = (Rectangle) node;
+            assertEquals(dpi, r.getWidth(), 1e-9);
+            assertEquals(dpi, r.getHeight(), 1e-9);
+        }
+        assertEquals(dpi / 12.0, ((Rectangle) root.getChildren().get(1)).getStrokeWidth(), 1e-9);
+    }
+
+    @Test
+    void cssContext() throws Exception {
+        Group root = build(SvgUnitContext.CSS);
+        Rectangle r = (Rectangle) root.getChildren().get(0);
+        assertEquals(96.0, r.getWidth(), 1e-9);
+        assertEquals(96.0, r.getHeight(), 1e-9);
+        assertEquals(8.0, ((Rectangle) root.getChildren().get(1)).getStrokeWidth(), 1e-9);
+    }
+
+    @Test
+    void fileWithAbsoluteUnitsWithoutPlatform() throws Exception {
+        File file = new File(GeneratedCodeTest.RESOURCES, "Arms_of_New_Brunswick.svg");
+        Group root = new SVGReader(file).buildNode();
+        assertFalse(root.getChildren().isEmpty());
+    }
+}
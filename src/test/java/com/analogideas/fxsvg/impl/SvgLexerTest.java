@@ -0,0 +1,139 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.transform.Transform;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the scanner for SVG micro-syntaxes.  Numbers must convert to
+ * exactly what {@link Double#parseDouble(java.lang.String)} gives, and
+ * transform lists to the same matrix as the JavaFX transforms.
+ *
+ * @author scott
+ */
+class SvgLexerTest {
+
+    private static final double DELTA = 1e-12;
+
+    @Test
+    void compactNumbers() {
+        assertArrayEquals(new double[] {1.5, 0.5}, SvgLexer.numbers("1.5.5"));
+        assertArrayEquals(new double[] {1, -2}, SvgLexer.numbers("1-2"));
+        assertArrayEquals(new double[] {0.5, 0.5}, SvgLexer.numbers(".5.5"));
+        assertArrayEquals(new double[] {-0.5, 0.5, 3, -4}, SvgLexer.numbers("-.5.5+3-4"));
+        assertArrayEquals(new double[] {1e-3, -2}, SvgLexer.numbers("1e-3-2"));
+    }
+
+    @Test
+    void exponents() {
+        for (String s : new String[] {"1e-3", "1E+2", "-2.5e3", "4E0", "7e22", "7e-22", ".5e1", "1e-30", "6.02e23"}) {
+            assertEquals(Double.parseDouble(s), SvgLexer.number(s, Double.NaN), s);
+        }
+        // an 'e' without digits belongs to a unit
+        assertArrayEquals(new double[] {1}, SvgLexer.numbers("1em"));
+        assertEquals(2.0, SvgLexer.number("2ex", Double.NaN));
+        assertEquals(3.0, SvgLexer.number("3e+", Double.NaN));
+    }
+
+    @Test
+    void longMantissaUsesParseDouble() {
+        for (String s : new String[] {"3.14159265358979323846", "0.1234567890123456789e-5",
+            "12345678901234567890123", "-0.000000000000000000000000123", "1.7976931348623157e308", "4.9e-324"}) {
+            assertEquals(Double.parseDouble(s), SvgLexer.number(s, Double.NaN), s);
+        }
+        // leading zeros are not significant digits
+        assertEquals(0.000123, SvgLexer.number("0000.000123", Double.NaN));
+    }
+
+    @Test
+    void separators() {
+        double[] expected = {1, 2, 3, 4, 5, 6};
+        assertArrayEquals(expected, SvgLexer.numbers("1,2,3,4,5,6"));
+        assertArrayEquals(expected, SvgLexer.numbers(" 1 2\t3\n4\r\n5 6 "));
+        assertArrayEquals(expected, SvgLexer.numbers("1, 2 ,3 , 4,\t5\n,6"));
+        assertArrayEquals(expected, SvgLexer.numbers(",1,2,3,,4,5,6,"));
+        assertArrayEquals(new double[] {1, 2}, SvgLexer.numbers("1 px 2"));
+        assertArrayEquals(new double[0], SvgLexer.numbers(""));
+    }
+
+    @Test
+    void numbersWithFallbackAndFractions() {
+        assertEquals(7.0, SvgLexer.number("x", 7.0));
+        assertEquals(12.0, SvgLexer.number("  12px", 0));
+        assertEquals(0.5, SvgLexer.fraction("50%", 1));
+        assertEquals(0.25, SvgLexer.fraction(" 0.25 ", 1));
+        assertEquals(1.0, SvgLexer.fraction("%", 1));
+    }
+
+    @Test
+    void transformFunctions() {
+        assertTransform(Transform.affine(1, 2, 3, 4, 5, 6), "matrix(1 2 3 4 5 6)");
+        assertTransform(Transform.translate(10, 0), "translate(10)");
+        assertTransform(Transform.translate(10, -20), "translate(10,-20)");
+        assertTransform(Transform.scale(2, 2), "scale(2)");
+        assertTransform(Transform.scale(2, 3), "scale(2 3)");
+        assertTransform(Transform.rotate(30, 0, 0), "rotate(30)");
+        assertTransform(Transform.rotate(30, 15, -5), "rotate(30 15 -5)");
+        assertTransform(Transform.shear(Math.tan(Math.toRadians(20)), 0), "skewX(20)");
+        assertTransform(Transform.shear(0, Math.tan(Math.toRadians(-15))), "skewY(-15)");
+    }
+
+    @Test
+    void transformLists() {
+        Transform expected = Transform.translate(10, 20)
+                .createConcatenation(Transform.rotate(45, 5, 5))
+                .createConcatenation(Transform.scale(2, 0.5))
+                .createConcatenation(Transform.shear(Math.tan(Math.toRadians(10)), 0));
+        assertTransform(expected, "translate(10,20) rotate(45,5,5)scale(2 .5) , skewX(10)");
+        assertTransform(expected, "translate(10 20)\n  rotate( 45 5 5 ) scale(2,0.5) skewX(10)");
+        // unknown functions and wrong parameter counts are skipped
+        assertTransform(Transform.translate(1, 2), "foo(3) translate(1 2) rotate(1 2) scale()");
+        assertNull(SvgLexer.transform(""));
+        assertNull(SvgLexer.transform("translate(0) scale(1)"));
+        assertNull(SvgLexer.transform("rotate(90) rotate(-90)"));
+    }
+
+    @Test
+    void styleDeclarations() {
+        assertEquals(List.of("fill=#fff", "stroke-width=2", "stroke=url(#a)"),
+                declarations("fill:#fff;stroke-width:2;stroke:url(#a)"));
+        assertEquals(List.of("fill=red", "font-family=Arial, sans-serif"),
+                declarations("  fill : red ; ;font-family:Arial, sans-serif;  "));
+        // no name or no ':' is skipped, a value may be empty or contain ':'
+        assertEquals(List.of("stroke=", "a=b:c"), declarations(":red;fill;stroke:;a:b:c"));
+        assertEquals(List.of(), declarations(""));
+    }
+
+    private static List<String> declarations(String style) {
+        List<String> list = new ArrayList<>();
+        SvgLexer.declarations(style, (name, value) -> list.add(name + '=' + value));
+        return list;
+    }
+
+    private static void assertTransform(Transform expected, String s) {
+        double[] m = SvgLexer.transform(s);
+        double[] e = {expected.getMxx(), expected.getMxy(), expected.getTx(),
+            expected.getMyx(), expected.getMyy(), expected.getTy()};
+        assertArrayEquals(e, m, DELTA, s);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2023 Scott W. Palmer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.analogideas.fxsvg.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import javafx.geometry.Bounds;
+import javafx.scene.shape.SVGPath;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the compiled path data against the path parser of JavaFX: the
+ * canonical content must draw the same shape as the original {@code d}, and
+ * the bounds of the compiled path must be those of the SVGPath.
+ *
+ * @author scott
+ */
+class SvgPathDataTest {
+
+    private static final double TOLERANCE = 1e-3;
+
+    @Test
+    void absoluteAndRelativeCommands() {
+        SvgPathData abs = SvgPathData.compile("M10 10 L20 10 L20 20 L10 20 Z");
+        SvgPathData rel = SvgPathData.compile("m10 10 l10 0 l0 10 l-10 0 z");
+        assertEquals("M10 10 L20 10 L20 20 L10 20 Z", abs.canonicalContent());
+        assertEquals(abs, rel);
+        // after z a relative command starts from the start of the sub-path
+        assertEquals("M10 10 L20 10 Z L15 15", SvgPathData.compile("m10 10 l10 0 z l5 5").canonicalContent());
+    }
+
+    @Test
+    void horizontalAndVerticalLines() {
+        assertEquals("M1 2 L5 2 L5 7 L3 7 L3 4",
+                SvgPathData.compile("M1 2 H5 V7 h-2 v-3").canonicalContent());
+    }
+
+    @Test
+    void smoothCubicReflectsTheControlPoint() {
+        assertEquals("M0 0 C10 0 20 10 20 20 C20 30 30 40 40 40",
+                SvgPathData.compile("M0 0 C10 0 20 10 20 20 S30 40 40 40").canonicalContent());
+        // without a cubic before it the first control point is the current point
+        assertEquals("M0 0 L10 0 C10 0 20 10 30 0",
+                SvgPathData.compile("M0 0 L10 0 S20 10 30 0").canonicalContent());
+    }
+
+    @Test
+    void smoothQuadReflectsTheControlPoint() {
+        assertEquals("M0 0 Q10 10 20 0 Q30 -10 40 0 Q50 10 60 0",
+                SvgPathData.compile("M0 0 Q10 10 20 0 T40 0 t20 0").canonicalContent());
+        assertEquals("M0 0 C5 5 10 5 10 0 Q10 0 20 0",
+                SvgPathData.compile("M0 0 C5 5 10 5 10 0 T20 0").canonicalContent());
+    }
+
+    @Test
+    void implicitRepeats() {
+        assertEquals("M0 0 L10 0 L10 10", SvgPathData.compile("M0 0 10 0 10 10").canonicalContent());
+        assertEquals("M1 1 L11 1 L11 11", SvgPathData.compile("m1 1 10 0 0 10").canonicalContent());
+        assertEquals("M0 0 Q1 1 2 0 Q3 -1 4 0", SvgPathData.compile("M0 0 Q1 1 2 0 3 -1 4 0").canonicalContent());
+    }
+
+    @Test
+    void arcsBecomeCubics() {
+        SvgPathData arc = SvgPathData.compile("M0 0 A10 10 0 0 1 20 0");
+        assertEquals(SvgPathData.MOVE_TO, arc.command(0));
+        for (int i = 1; i < arc.commandCount(); i++) {
+            assertEquals(SvgPathData.CUBIC_TO, arc.command(i));
+        }
+        float[] c = arc.coords();
+        assertEquals(20f, c[c.length - 2]);
+        assertEquals(0f, c[c.length - 1]);
+        assertSameAsSvgPath("M0 0 A10 10 0 0 1 20 0");
+        assertSameAsSvgPath("M0 0 A10 10 0 1 0 20 0");
+        assertSameAsSvgPath("M0 0 a30 10 45 1 1 20 20");
+        // radii too small are scaled up, zero radii draw a line
+        assertSameAsSvgPath("M0 0 A1 1 0 0 0 40 0");
+        assertEquals("M0 0 L10 10", SvgPathData.compile("M0 0 A0 5 0 0 0 10 10").canonicalContent());
+        // compact flags
+        assertEquals(SvgPathData.compile("M0 0 A10 10 0 1 1 20 0"), SvgPathData.compile("M0 0A10 10 0 1120 0"));
+    }
+
+    @Test
+    void errorsKeepTheCommandsBefore() {
+        List<String> messages = new ArrayList<>();
+        Logger logger = Logger.getLogger(SvgPathData.class.getName());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            // the data is compiled when first used
+            SvgPathData bad = SvgPathData.compile("M0 0 L10 0 L10 x");
+            assertTrue(messages.isEmpty(), messages.toString());
+            assertEquals("M0 0 L10 0", bad.canonicalContent());
+            assertEquals("M0 0", SvgPathData.compile("M0 0 # L10 10").canonicalContent());
+            assertTrue(SvgPathData.compile("L10 10").isEmpty());
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals(3, messages.size(), messages.toString());
+        assertTrue(messages.get(0).contains("expected a number at 15"), messages.get(0));
+        assertTrue(messages.get(1).contains("unexpected '#' at 5"), messages.get(1));
+        assertTrue(messages.get(2).contains("must start with a moveto"), messages.get(2));
+    }
+
+    @Test
+    void contentIsTheOriginalText() {
+        String d = "m10 10 l10 0 l0 10 l-10 0 z";
+        assertSame(d, SvgPathData.compile(d).toSvgContent());
+        // transformed paths have no text
+        SvgPathData p = SvgPathData.compile(d).transform(new double[] {1, 0, 0.5, 0, 1, 0});
+        assertEquals("M10.5 10 L20.5 10 L20.5 20 L10.5 20 Z", p.toSvgContent());
+        assertSame(p.toSvgContent(), p.toSvgContent());
+    }
+
+    @Test
+    void shortestNumbers() {
+        float[] values = {0.1f, -0.1f, 1.5f, -2.25f, 0.001f, 123.456f, 3.1415927f, 1e-7f, 1.2345678e-3f,
+            -0.000123f, 99999.99f, 1e-12f, 3e20f, 1234567.9f, Float.MIN_VALUE, 0.3f, 2f / 3};
+        for (float f : values) {
+            StringBuilder sb = new StringBuilder();
+            SvgPathData.appendNumber(sb, f);
+            String s = sb.toString();
+            assertFalse(s.contains("E"), s);
+            assertEquals(f, Float.parseFloat(s), s);
+            // no longer than Float.toString would be in plain notation
+            String plain = new BigDecimal(Float.toString(f)).stripTrailingZeros().toPlainString();
+            assertTrue(s.length() <= plain.length(), s + " " + plain);
+        }
+    }
+
+    @Test
+    void boundsIncludeCurveExtrema() {
+        SvgPathData p = SvgPathData.compile("M0 0 C0 -100 10 -100 10 0");
+        assertArrayEquals(new double[] {0, -75, 10, 0}, bounds(p), TOLERANCE);
+        assertSameAsSvgPath("M0 0 Q50 -100 0 10");
+        assertSameAsSvgPath("M10 10 C-20 40 60 -30 30 30 S0 0 5 50");
+    }
+
+    @Test
+    void curveAfterCloseStartsAtTheSubPathStart() {
+        // the quad starts at 0,0 after the Z, not at 10,10
+        SvgPathData p = SvgPathData.compile("M0 0 L10 0 L10 10 Z Q50 -100 0 10");
+        assertEquals(-47.619, p.minY(), TOLERANCE);
+        assertSameAsSvgPath("M0 0 L10 0 L10 10 Z Q50 -100 0 10");
+        assertSameAsSvgPath("M0 0 L10 0 L10 10 z c40 -100 40 -100 0 10 M20 20 h5 z t10 -30");
+    }
+
+    @Test
+    void transformedBounds() {
+        SvgPathData p = SvgPathData.compile("M0 0 L10 0 L10 10 Z").transform(new double[] {2, 0, 5, 0, 3, -1});
+        assertArrayEquals(new double[] {5, -1, 25, 29}, bounds(p), TOLERANCE);
+    }
+
+    private static double[] bounds(SvgPathData p) {
+        return new double[] {p.minX(), p.minY(), p.maxX(), p.maxY()};
+    }
+
+    // the compiled content draws the same as the original, and has its bounds,
+    // within the error of a cubic approximation for arcs
+    private static void assertSameAsSvgPath(String d) {
+        SvgPathData p = SvgPathData.compile(d);
+        Bounds fx = fxBounds(d);
+        double[] expected = bounds(fx);
+        double delta = TOLERANCE * Math.max(1, Math.max(fx.getWidth(), fx.getHeight()));
+        assertArrayEquals(expected, bounds(fxBounds(p.canonicalContent())), delta, d);
+        assertArrayEquals(expected, bounds(p), delta, d);
+    }
+
+    private static double[] bounds(Bounds b) {
+        return new double[] {b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY()};
+    }
+
+    private static Bounds fxBounds(String content) {
+        SVGPath path = new SVGPath();
+        path.setContent(content);
+        path.setStroke(null);
+        return path.getBoundsInLocal();
+    }
+}